@@ -1,6 +1,11 @@
 package com.hikvision.websocket.api;
 
+import org.apache.commons.lang3.StringUtils;
+
 import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * URL - Uniform Resource Locator (Immutable, ThreadSafe)
@@ -15,6 +20,11 @@ public class URL {
     protected int port;
     protected int connectTimeout;
 
+    /**
+     * transport parameters, such as tcp options
+     */
+    protected Map<String, String> parameters;
+
     // cache
     protected transient String rawAddress;
     protected transient long timestamp;
@@ -24,9 +34,19 @@ public class URL {
     }
 
     public URL(String host, int port, int connectTimeout) {
+        this(host, port, connectTimeout, null);
+    }
+
+    public URL(String host, int port, Map<String, String> parameters) {
+        this(host, port, 10000, parameters);
+    }
+
+    public URL(String host, int port, int connectTimeout, Map<String, String> parameters) {
         this.host = host;
         this.port = port;
         this.connectTimeout = connectTimeout;
+        this.parameters = parameters == null || parameters.isEmpty()
+                ? Collections.emptyMap() : Collections.unmodifiableMap(new HashMap<>(parameters));
     }
 
     public String getHost() {
@@ -49,6 +69,42 @@ public class URL {
         return timestamp;
     }
 
+    public Map<String, String> getParameters() {
+        return parameters;
+    }
+
+    public String getParameter(String key) {
+        return parameters.get(key);
+    }
+
+    public String getParameter(String key, String defaultValue) {
+        String value = getParameter(key);
+        return StringUtils.isEmpty(value) ? defaultValue : value;
+    }
+
+    public int getParameter(String key, int defaultValue) {
+        String value = getParameter(key);
+        return StringUtils.isEmpty(value) ? defaultValue : Integer.parseInt(value);
+    }
+
+    public long getParameter(String key, long defaultValue) {
+        String value = getParameter(key);
+        return StringUtils.isEmpty(value) ? defaultValue : Long.parseLong(value);
+    }
+
+    public double getParameter(String key, double defaultValue) {
+        String value = getParameter(key);
+        return StringUtils.isEmpty(value) ? defaultValue : Double.parseDouble(value);
+    }
+
+    public boolean getParameter(String key, boolean defaultValue) {
+        String value = getParameter(key);
+        return StringUtils.isEmpty(value) ? defaultValue : Boolean.parseBoolean(value);
+    }
+
+    public boolean hasParameter(String key) {
+        return StringUtils.isNotEmpty(getParameter(key));
+    }
 
     public InetSocketAddress toInetSocketAddress() {
         return new InetSocketAddress(getHost(), getPort());
@@ -1,28 +1,339 @@
 package com.hikvision.websocket.autoconfigure;
 
+import com.hikvision.websocket.api.URL;
+import com.hikvision.websocket.constants.CommonConstants;
+import com.hikvision.websocket.constants.Constants;
+import com.hikvision.websocket.governance.AdaptiveTimeoutConfig;
+import com.hikvision.websocket.governance.AdaptiveTimeoutRegistry;
+import com.hikvision.websocket.governance.AdmissionController;
+import com.hikvision.websocket.governance.CircuitBreakerConfig;
+import com.hikvision.websocket.governance.CircuitBreakerRegistry;
+import com.hikvision.websocket.governance.RateLimitRule;
+import com.hikvision.websocket.governance.RateLimiterRegistry;
+import com.hikvision.websocket.governance.RetryBudget;
+import com.hikvision.websocket.governance.RetryPolicy;
+import com.hikvision.websocket.governance.RetryRule;
+import com.hikvision.websocket.metrics.RequestTracer;
+import com.hikvision.websocket.metrics.WebsocketClientsEndpoint;
+import com.hikvision.websocket.metrics.WebsocketSdkMeterBinder;
+import com.hikvision.websocket.netty.EventLoopBulkhead;
+import com.hikvision.websocket.netty.EventLoopWatchdog;
+import com.hikvision.websocket.netty.NettyClient;
+import com.hikvision.websocket.netty.NettyServer;
+import com.hikvision.websocket.netty.dispatcher.Dispatcher;
+import com.hikvision.websocket.netty.gateway.WebSocketGateway;
 import com.hikvision.websocket.service.IDeviceCommunicationService;
+import com.hikvision.websocket.service.IReactiveDeviceCommunicationService;
 import com.hikvision.websocket.service.impl.DeviceCommunicationServiceImpl;
-import org.springframework.beans.factory.annotation.Value;
+import com.hikvision.websocket.service.impl.InboundChannelHandler;
+import com.hikvision.websocket.service.impl.ReactiveDeviceCommunicationServiceImpl;
+import com.hikvision.websocket.utils.VirtualThreads;
+import io.netty.channel.EventLoopGroup;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.SmartLifecycle;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
 /**
- * Autoload configuration bean
+ * Autoload configuration bean.
+ * It also binds the server for inbound devices and the websocket gateway on start, and drains and closes them
+ * and all device clients on shutdown, after the beans sending requests are stopped.
  *
  * @author zhangwei151
  * @date 2022/9/17 23:36
  */
 @Configuration
 @ConditionalOnClass({DeviceCommunicationServiceImpl.class})
-public class WebsocketSdkAutoConfig {
+@EnableConfigurationProperties(WebsocketSdkProperties.class)
+public class WebsocketSdkAutoConfig implements SmartLifecycle {
+
+    /**
+     * stop as late as possible, callers (web server, schedulers) may still send during their own shutdown
+     */
+    private static final int PHASE = Integer.MIN_VALUE + 1000;
+
+    private final WebsocketSdkProperties properties;
+
+    private volatile boolean running;
+
+    private volatile IDeviceCommunicationService deviceCommunicationService;
+
+    /**
+     * server of inbound devices, null unless enabled
+     */
+    private volatile NettyServer server;
 
-    @Value("${websocket.client.timeout:10000}")
-    private Integer requestTimeout;
+    /**
+     * websocket gateway of the consoles, null unless enabled
+     */
+    private volatile WebSocketGateway gateway;
+
+    public WebsocketSdkAutoConfig(WebsocketSdkProperties properties) {
+        this.properties = properties;
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "websocket.client.circuit-breaker", name = "enabled", matchIfMissing = true)
+    public CircuitBreakerRegistry circuitBreakerRegistry() {
+        WebsocketSdkProperties.CircuitBreaker breaker = properties.getClient().getCircuitBreaker();
+        return new CircuitBreakerRegistry(new CircuitBreakerConfig(breaker.getFailureThreshold(), breaker.getOpenDuration(),
+                breaker.getWindow(), breaker.getMinimumCalls(), breaker.getTimeoutRateThreshold()));
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "websocket.client.adaptive-timeout", name = "enabled")
+    public AdaptiveTimeoutRegistry adaptiveTimeoutRegistry() {
+        WebsocketSdkProperties.Client client = properties.getClient();
+        WebsocketSdkProperties.AdaptiveTimeout adaptive = client.getAdaptiveTimeout();
+        int ceiling = adaptive.getCeiling() != null ? adaptive.getCeiling() : client.getTimeout();
+        return new AdaptiveTimeoutRegistry(new AdaptiveTimeoutConfig(adaptive.getPercentile(), adaptive.getFloor(), ceiling,
+                adaptive.getAlpha(), adaptive.getMinimumSamples()));
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "websocket.client.rate-limit", name = "enabled")
+    public RateLimiterRegistry rateLimiterRegistry() {
+        WebsocketSdkProperties.RateLimit rateLimit = properties.getClient().getRateLimit();
+        List<RateLimitRule> rules = new ArrayList<>();
+        for (WebsocketSdkProperties.Rule rule : rateLimit.getRules()) {
+            rules.add(new RateLimitRule(rule.getDevices(), rule.getCommand(), rule.getPermitsPerSecond(), rule.getBurst()));
+        }
+        RateLimiterRegistry.Policy policy = RateLimiterRegistry.Policy.valueOf(rateLimit.getPolicy().trim().toUpperCase(Locale.ROOT));
+        return new RateLimiterRegistry(rules, policy, rateLimit.getMaxDelay());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "websocket.client.admission", name = "enabled", matchIfMissing = true)
+    public AdmissionController admissionController() {
+        WebsocketSdkProperties.Admission admission = properties.getClient().getAdmission();
+        AdmissionController.Policy policy = AdmissionController.Policy.valueOf(admission.getPolicy().trim().toUpperCase(Locale.ROOT));
+        return new AdmissionController(admission.getMaxRequests(), admission.getMaxBytes(), admission.getMaxDeviceRequests(),
+                admission.getMaxDeviceBytes(), policy, admission.getShedRatio());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "websocket.client.retry", name = "enabled")
+    public RetryPolicy retryPolicy() {
+        WebsocketSdkProperties.Retry retry = properties.getClient().getRetry();
+        List<RetryRule> rules = new ArrayList<>();
+        for (WebsocketSdkProperties.RetryRule rule : retry.getRules()) {
+            rules.add(new RetryRule(rule.getCommand(), rule.isIdempotent(), rule.getMaxAttempts(), rule.getBackoff(),
+                    rule.getMultiplier(), rule.getMaxBackoff()));
+        }
+        return new RetryPolicy(rules, new RetryBudget(retry.getBudgetRatio(), retry.getBudgetMaxRetries()));
+    }
 
     @Bean("deviceCommunicationService")
-    public IDeviceCommunicationService deviceCommunicationService(){
-        IDeviceCommunicationService deviceCommunicationService = new DeviceCommunicationServiceImpl(requestTimeout);
+    public IDeviceCommunicationService deviceCommunicationService(ObjectProvider<EventLoopGroup> eventLoopGroup,
+                                                                  ObjectProvider<CircuitBreakerRegistry> circuitBreakerRegistry,
+                                                                  ObjectProvider<AdaptiveTimeoutRegistry> adaptiveTimeoutRegistry,
+                                                                  ObjectProvider<RateLimiterRegistry> rateLimiterRegistry,
+                                                                  ObjectProvider<AdmissionController> admissionController,
+                                                                  ObjectProvider<RetryPolicy> retryPolicy){
+        WebsocketSdkProperties.Client client = properties.getClient();
+        // share the io threads of the application if it has its own event loop group
+        EventLoopGroup sharedGroup = eventLoopGroup.getIfUnique();
+        if (sharedGroup != null) {
+            NettyClient.useEventLoopGroup(sharedGroup);
+        } else {
+            NettyClient.setIoThreads(client.getIoThreads());
+        }
+        addBulkheads(client);
+        Dispatcher.setThreads(client.getDispatcherThreads());
+        RequestTracer.setSampleRate(properties.getMetrics().getTraceSampleRate());
+        DeviceCommunicationServiceImpl deviceCommunicationService = new DeviceCommunicationServiceImpl(client.getTimeout(), clientParameters(client));
+        deviceCommunicationService.setCircuitBreakerRegistry(circuitBreakerRegistry.getIfAvailable());
+        deviceCommunicationService.setAdaptiveTimeoutRegistry(adaptiveTimeoutRegistry.getIfAvailable());
+        deviceCommunicationService.setRateLimiterRegistry(rateLimiterRegistry.getIfAvailable());
+        deviceCommunicationService.setAdmissionController(admissionController.getIfAvailable());
+        deviceCommunicationService.setRetryPolicy(retryPolicy.getIfAvailable());
+        this.deviceCommunicationService = deviceCommunicationService;
         return deviceCommunicationService;
     }
+
+    @Override
+    public void start() {
+        NettyClient.start();
+        WebsocketSdkProperties.Watchdog watchdog = properties.getClient().getWatchdog();
+        if (watchdog.isEnabled()) {
+            EventLoopWatchdog.start(watchdog.getInterval(), watchdog.getThreshold());
+        }
+        WebsocketSdkProperties.Gateway gatewayProperties = properties.getGateway();
+        if (gatewayProperties.isEnabled() && gateway == null && deviceCommunicationService != null) {
+            gateway = new WebSocketGateway(gatewayUrl(gatewayProperties), deviceCommunicationService);
+            // events of the devices are pushed to the subscribed consoles
+            deviceCommunicationService.addEventListener(gateway.getBroker());
+        }
+        WebsocketSdkProperties.Server serverProperties = properties.getServer();
+        if (serverProperties.isEnabled() && server == null && deviceCommunicationService != null) {
+            server = new NettyServer(serverUrl(serverProperties, properties.getClient()),
+                    new InboundChannelHandler(deviceCommunicationService));
+        }
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        int timeout = properties.getClient().getShutdownTimeout();
+        long deadline = System.currentTimeMillis() + timeout;
+        // the consoles send requests, so the gateway goes first
+        WebSocketGateway g = gateway;
+        if (g != null) {
+            gateway = null;
+            IDeviceCommunicationService service = deviceCommunicationService;
+            if (service != null) {
+                service.removeEventListener(g.getBroker());
+            }
+            g.close(timeout);
+        }
+        NettyServer s = server;
+        if (s != null) {
+            server = null;
+            s.close((int) Math.max(0, deadline - System.currentTimeMillis()));
+        }
+        NettyClient.closeAll((int) Math.max(0, deadline - System.currentTimeMillis()));
+        EventLoopWatchdog.stop();
+        NettyClient.shutdownEventLoopGroup((int) Math.max(0, deadline - System.currentTimeMillis()));
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    private static void addBulkheads(WebsocketSdkProperties.Client client) {
+        Set<String> defined = new HashSet<>();
+        for (EventLoopBulkhead bulkhead : NettyClient.getBulkheads()) {
+            defined.add(bulkhead.getName());
+        }
+        for (WebsocketSdkProperties.Bulkhead bulkhead : client.getBulkheads()) {
+            if (defined.add(bulkhead.getName())) {
+                NettyClient.addBulkhead(new EventLoopBulkhead(bulkhead.getName(), bulkhead.getThreads(),
+                        bulkhead.getDevices(), bulkhead.getTenants()));
+            }
+        }
+    }
+
+    private static URL serverUrl(WebsocketSdkProperties.Server server, WebsocketSdkProperties.Client client) {
+        Map<String, String> parameters = clientParameters(client);
+        parameters.put(CommonConstants.IO_THREADS_KEY, String.valueOf(server.getIoThreads()));
+        parameters.put(CommonConstants.BACKLOG_KEY, String.valueOf(server.getBacklog()));
+        parameters.put(Constants.ACCEPTS_KEY, String.valueOf(server.getAccepts()));
+        parameters.put(Constants.IDLE_TIMEOUT_KEY, String.valueOf(server.getIdleTimeout()));
+        parameters.put(Constants.IDENTIFY_TIMEOUT_KEY, String.valueOf(server.getIdentifyTimeout()));
+        parameters.put(Constants.ACCEPTORS_KEY, String.valueOf(server.getAcceptors()));
+        parameters.put(Constants.ACCEPT_RATE_KEY, String.valueOf(server.getAcceptRate()));
+        return new URL(server.getHost(), server.getPort(), parameters);
+    }
+
+    private static URL gatewayUrl(WebsocketSdkProperties.Gateway gateway) {
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put(Constants.PATH_KEY, gateway.getPath());
+        parameters.put(CommonConstants.IO_THREADS_KEY, String.valueOf(gateway.getIoThreads()));
+        parameters.put(Constants.MAX_FRAME_SIZE_KEY, String.valueOf(gateway.getMaxFrameSize()));
+        parameters.put(Constants.MAX_PENDING_KEY, String.valueOf(gateway.getMaxPending()));
+        parameters.put(Constants.CONNECT_THREADS_KEY, String.valueOf(gateway.getConnectThreads()));
+        parameters.put(Constants.IDLE_TIMEOUT_KEY, String.valueOf(gateway.getIdleTimeout()));
+        parameters.put(Constants.COMPRESSION_KEY, String.valueOf(gateway.isCompression()));
+        parameters.put(Constants.SLOW_SUBSCRIBER_KEY, gateway.getSlowSubscriber());
+        return new URL(gateway.getHost(), gateway.getPort(), parameters);
+    }
+
+    /**
+     * convert the client properties to url parameters
+     */
+    private static Map<String, String> clientParameters(WebsocketSdkProperties.Client client) {
+        Map<String, String> parameters = new HashMap<>();
+        WebsocketSdkProperties.Transport transport = client.getTransport();
+        putIfPresent(parameters, Constants.TCP_KEEPALIVE_IDLE_KEY, transport.getKeepAliveIdle());
+        putIfPresent(parameters, Constants.TCP_KEEPALIVE_INTERVAL_KEY, transport.getKeepAliveInterval());
+        putIfPresent(parameters, Constants.TCP_KEEPALIVE_COUNT_KEY, transport.getKeepAliveCount());
+        putIfPresent(parameters, Constants.TCP_QUICKACK_KEY, transport.getQuickAck());
+        putIfPresent(parameters, Constants.EPOLL_MODE_KEY, transport.getEpollMode());
+        putIfPresent(parameters, Constants.EPOLL_BUSY_POLL_KEY, transport.getBusyPoll());
+        WebsocketSdkProperties.Backpressure backpressure = client.getBackpressure();
+        putIfPresent(parameters, Constants.WRITE_BUFFER_HIGH_WATER_MARK_KEY, backpressure.getHighWaterMark());
+        putIfPresent(parameters, Constants.WRITE_BUFFER_LOW_WATER_MARK_KEY, backpressure.getLowWaterMark());
+        putIfPresent(parameters, Constants.BACKPRESSURE_KEY, backpressure.getPolicy());
+        putIfPresent(parameters, Constants.BACKPRESSURE_TIMEOUT_KEY, backpressure.getTimeout());
+        putIfPresent(parameters, Constants.DISPATCHER_KEY, client.getDispatcher());
+        WebsocketSdkProperties.AdaptiveTimeout adaptive = client.getAdaptiveTimeout();
+        if (adaptive.isEnabled()) {
+            parameters.put(Constants.CONNECT_TIMEOUT_ADAPTIVE_KEY, Boolean.TRUE.toString());
+            putIfPresent(parameters, Constants.CONNECT_TIMEOUT_FLOOR_KEY, adaptive.getConnectFloor());
+            putIfPresent(parameters, Constants.CONNECT_TIMEOUT_PERCENTILE_KEY, adaptive.getPercentile());
+        }
+        return parameters;
+    }
+
+    private static void putIfPresent(Map<String, String> parameters, String key, Object value) {
+        if (value != null) {
+            parameters.put(key, String.valueOf(value));
+        }
+    }
+
+    /**
+     * metrics of the applications with micrometer, the binder is bound to the registries by spring boot
+     */
+    @Configuration
+    @ConditionalOnClass(name = "io.micrometer.core.instrument.binder.MeterBinder")
+    @ConditionalOnProperty(prefix = "websocket.metrics", name = "enabled", matchIfMissing = true)
+    static class MetricsConfiguration {
+
+        @Bean
+        public WebsocketSdkMeterBinder websocketSdkMeterBinder(WebsocketSdkProperties properties) {
+            return new WebsocketSdkMeterBinder(properties.getMetrics().isPerDevice());
+        }
+    }
+
+    /**
+     * client table of the applications with actuator, exposed like the other endpoints through management.endpoints
+     */
+    @Configuration
+    @ConditionalOnClass(name = "org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint")
+    static class EndpointConfiguration {
+
+        @Bean
+        @ConditionalOnAvailableEndpoint
+        public WebsocketClientsEndpoint websocketClientsEndpoint() {
+            return new WebsocketClientsEndpoint();
+        }
+    }
+
+    /**
+     * reactive service of the applications with reactor-core, e.g. WebFlux
+     */
+    @Configuration
+    @ConditionalOnClass(name = "reactor.core.publisher.Mono")
+    static class ReactiveConfiguration {
+
+        @Bean("reactiveDeviceCommunicationService")
+        public IReactiveDeviceCommunicationService reactiveDeviceCommunicationService(IDeviceCommunicationService deviceCommunicationService) {
+            if (VirtualThreads.isSupported()) {
+                // a request waiting for a connection or a writable channel parks a virtual thread, not a platform one
+                return new ReactiveDeviceCommunicationServiceImpl(deviceCommunicationService,
+                        Schedulers.fromExecutorService(VirtualThreads.newThreadPerTaskExecutor("websocket-reactive")));
+            }
+            return new ReactiveDeviceCommunicationServiceImpl(deviceCommunicationService);
+        }
+    }
 }
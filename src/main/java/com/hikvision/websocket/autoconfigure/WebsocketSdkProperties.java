@@ -0,0 +1,1204 @@
+package com.hikvision.websocket.autoconfigure;
+
+import com.hikvision.websocket.constants.CommonConstants;
+import com.hikvision.websocket.constants.Constants;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * websocket sdk configuration properties
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 10:40
+ */
+@ConfigurationProperties(prefix = "websocket")
+public class WebsocketSdkProperties {
+
+    private final Client client = new Client();
+
+    private final Server server = new Server();
+
+    private final Gateway gateway = new Gateway();
+
+    private final Metrics metrics = new Metrics();
+
+    public Client getClient() {
+        return client;
+    }
+
+    public Server getServer() {
+        return server;
+    }
+
+    public Gateway getGateway() {
+        return gateway;
+    }
+
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * micrometer metrics of the sdk, bound when the application has micrometer
+     */
+    public static class Metrics {
+
+        private boolean enabled = true;
+
+        /**
+         * also record the request latencies per device, a histogram per device
+         */
+        private boolean perDevice = false;
+
+        /**
+         * share of the requests whose latency is broken down into phases, from 0 (disabled) to 1 (all)
+         */
+        private double traceSampleRate = 0D;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public boolean isPerDevice() {
+            return perDevice;
+        }
+
+        public void setPerDevice(boolean perDevice) {
+            this.perDevice = perDevice;
+        }
+
+        public double getTraceSampleRate() {
+            return traceSampleRate;
+        }
+
+        public void setTraceSampleRate(double traceSampleRate) {
+            this.traceSampleRate = traceSampleRate;
+        }
+    }
+
+    /**
+     * server accepting the connections of devices which dial in, requests are routed to them by device id.
+     * Channel settings (backpressure, priority weights) are shared with the client.
+     */
+    public static class Server {
+
+        private boolean enabled = false;
+
+        /**
+         * bind address, all interfaces if not set
+         */
+        private String host = CommonConstants.ANYHOST_VALUE;
+
+        private int port = 7660;
+
+        private int ioThreads = Constants.DEFAULT_IO_THREADS;
+
+        /**
+         * accept queue length, raise it for reconnect storms of many devices
+         */
+        private int backlog = Constants.DEFAULT_BACKLOG;
+
+        /**
+         * max connections, 0 means unlimited
+         */
+        private int accepts = Constants.DEFAULT_ACCEPTS;
+
+        /**
+         * a connection sending nothing in this time(ms) is closed
+         */
+        private int idleTimeout = Constants.DEFAULT_IDLE_TIMEOUT;
+
+        /**
+         * a connection not identified by its first frame in this time(ms) is closed
+         */
+        private int identifyTimeout = Constants.DEFAULT_IDENTIFY_TIMEOUT;
+
+        /**
+         * acceptors bound to the port with SO_REUSEPORT (linux epoll only), the io threads are split among them
+         */
+        private int acceptors = Constants.DEFAULT_ACCEPTORS;
+
+        /**
+         * connections accepted per second, 0 means unlimited
+         */
+        private int acceptRate = 0;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getHost() {
+            return host;
+        }
+
+        public void setHost(String host) {
+            this.host = host;
+        }
+
+        public int getPort() {
+            return port;
+        }
+
+        public void setPort(int port) {
+            this.port = port;
+        }
+
+        public int getIoThreads() {
+            return ioThreads;
+        }
+
+        public void setIoThreads(int ioThreads) {
+            this.ioThreads = ioThreads;
+        }
+
+        public int getBacklog() {
+            return backlog;
+        }
+
+        public void setBacklog(int backlog) {
+            this.backlog = backlog;
+        }
+
+        public int getAccepts() {
+            return accepts;
+        }
+
+        public void setAccepts(int accepts) {
+            this.accepts = accepts;
+        }
+
+        public int getIdleTimeout() {
+            return idleTimeout;
+        }
+
+        public void setIdleTimeout(int idleTimeout) {
+            this.idleTimeout = idleTimeout;
+        }
+
+        public int getIdentifyTimeout() {
+            return identifyTimeout;
+        }
+
+        public void setIdentifyTimeout(int identifyTimeout) {
+            this.identifyTimeout = identifyTimeout;
+        }
+
+        public int getAcceptors() {
+            return acceptors;
+        }
+
+        public void setAcceptors(int acceptors) {
+            this.acceptors = acceptors;
+        }
+
+        public int getAcceptRate() {
+            return acceptRate;
+        }
+
+        public void setAcceptRate(int acceptRate) {
+            this.acceptRate = acceptRate;
+        }
+    }
+
+    /**
+     * websocket front end of browser consoles, the frames are device requests multiplexed by id
+     */
+    public static class Gateway {
+
+        private boolean enabled = false;
+
+        /**
+         * bind address, all interfaces if not set
+         */
+        private String host = CommonConstants.ANYHOST_VALUE;
+
+        private int port = 7670;
+
+        /**
+         * websocket path
+         */
+        private String path = Constants.DEFAULT_GATEWAY_PATH;
+
+        private int ioThreads = Constants.DEFAULT_IO_THREADS;
+
+        /**
+         * max size(bytes) of a websocket message
+         */
+        private int maxFrameSize = Constants.DEFAULT_MAX_FRAME_SIZE;
+
+        /**
+         * unanswered requests per websocket, more are rejected at once, 0 means unlimited
+         */
+        private int maxPending = Constants.DEFAULT_MAX_PENDING;
+
+        /**
+         * threads sending the requests to devices not connected yet
+         */
+        private int connectThreads = Constants.DEFAULT_CONNECT_THREADS;
+
+        /**
+         * a websocket sending nothing in this time(ms) is closed
+         */
+        private int idleTimeout = Constants.DEFAULT_IDLE_TIMEOUT;
+
+        /**
+         * accept permessage-deflate offered by the browsers
+         */
+        private boolean compression = true;
+
+        /**
+         * what to do with the events of a console above the high water mark unless it subscribes with its own policy:
+         * conflate (keep the latest per device and command) or drop
+         */
+        private String slowSubscriber = Constants.DEFAULT_SLOW_SUBSCRIBER;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getHost() {
+            return host;
+        }
+
+        public void setHost(String host) {
+            this.host = host;
+        }
+
+        public int getPort() {
+            return port;
+        }
+
+        public void setPort(int port) {
+            this.port = port;
+        }
+
+        public boolean isCompression() {
+            return compression;
+        }
+
+        public void setCompression(boolean compression) {
+            this.compression = compression;
+        }
+
+        public String getSlowSubscriber() {
+            return slowSubscriber;
+        }
+
+        public void setSlowSubscriber(String slowSubscriber) {
+            this.slowSubscriber = slowSubscriber;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public void setPath(String path) {
+            this.path = path;
+        }
+
+        public int getIoThreads() {
+            return ioThreads;
+        }
+
+        public void setIoThreads(int ioThreads) {
+            this.ioThreads = ioThreads;
+        }
+
+        public int getMaxFrameSize() {
+            return maxFrameSize;
+        }
+
+        public void setMaxFrameSize(int maxFrameSize) {
+            this.maxFrameSize = maxFrameSize;
+        }
+
+        public int getMaxPending() {
+            return maxPending;
+        }
+
+        public void setMaxPending(int maxPending) {
+            this.maxPending = maxPending;
+        }
+
+        public int getConnectThreads() {
+            return connectThreads;
+        }
+
+        public void setConnectThreads(int connectThreads) {
+            this.connectThreads = connectThreads;
+        }
+
+        public int getIdleTimeout() {
+            return idleTimeout;
+        }
+
+        public void setIdleTimeout(int idleTimeout) {
+            this.idleTimeout = idleTimeout;
+        }
+    }
+
+    public static class Client {
+
+        /**
+         * request timeout(ms)
+         */
+        private int timeout = 10000;
+
+        /**
+         * max time(ms) to drain in-flight requests on shutdown
+         */
+        private int shutdownTimeout = 10000;
+
+        /**
+         * io threads of the private worker pool, only used when the application has no EventLoopGroup bean
+         */
+        private int ioThreads = Constants.DEFAULT_IO_THREADS;
+
+        /**
+         * thread of the handler callbacks and response listeners: direct (io thread), all (worker pool)
+         * or ordered (worker pool, in order per device). Shared with the server.
+         */
+        private String dispatcher = Constants.DEFAULT_DISPATCHER;
+
+        /**
+         * worker threads of the all and ordered dispatchers
+         */
+        private int dispatcherThreads = CommonConstants.DEFAULT_THREADS;
+
+        private final Transport transport = new Transport();
+
+        private final Backpressure backpressure = new Backpressure();
+
+        private final CircuitBreaker circuitBreaker = new CircuitBreaker();
+
+        private final AdaptiveTimeout adaptiveTimeout = new AdaptiveTimeout();
+
+        private final RateLimit rateLimit = new RateLimit();
+
+        private final Admission admission = new Admission();
+
+        private final Retry retry = new Retry();
+
+        private final Watchdog watchdog = new Watchdog();
+
+        /**
+         * isolated worker thread pools per device class or tenant
+         */
+        private List<Bulkhead> bulkheads = new ArrayList<>();
+
+        public int getTimeout() {
+            return timeout;
+        }
+
+        public void setTimeout(int timeout) {
+            this.timeout = timeout;
+        }
+
+        public int getShutdownTimeout() {
+            return shutdownTimeout;
+        }
+
+        public void setShutdownTimeout(int shutdownTimeout) {
+            this.shutdownTimeout = shutdownTimeout;
+        }
+
+        public int getIoThreads() {
+            return ioThreads;
+        }
+
+        public void setIoThreads(int ioThreads) {
+            this.ioThreads = ioThreads;
+        }
+
+        public String getDispatcher() {
+            return dispatcher;
+        }
+
+        public void setDispatcher(String dispatcher) {
+            this.dispatcher = dispatcher;
+        }
+
+        public int getDispatcherThreads() {
+            return dispatcherThreads;
+        }
+
+        public void setDispatcherThreads(int dispatcherThreads) {
+            this.dispatcherThreads = dispatcherThreads;
+        }
+
+        public Transport getTransport() {
+            return transport;
+        }
+
+        public Backpressure getBackpressure() {
+            return backpressure;
+        }
+
+        public CircuitBreaker getCircuitBreaker() {
+            return circuitBreaker;
+        }
+
+        public AdaptiveTimeout getAdaptiveTimeout() {
+            return adaptiveTimeout;
+        }
+
+        public RateLimit getRateLimit() {
+            return rateLimit;
+        }
+
+        public Admission getAdmission() {
+            return admission;
+        }
+
+        public Retry getRetry() {
+            return retry;
+        }
+
+        public Watchdog getWatchdog() {
+            return watchdog;
+        }
+
+        public List<Bulkhead> getBulkheads() {
+            return bulkheads;
+        }
+
+        public void setBulkheads(List<Bulkhead> bulkheads) {
+            this.bulkheads = bulkheads;
+        }
+    }
+
+    /**
+     * probes the io threads and reports the ones blocked by slow callbacks with their stack
+     */
+    public static class Watchdog {
+
+        private boolean enabled = true;
+
+        /**
+         * time(ms) between the probes of an event loop
+         */
+        private long interval = 100;
+
+        /**
+         * lag(ms) from which an event loop is reported as stalled
+         */
+        private long threshold = 500;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getInterval() {
+            return interval;
+        }
+
+        public void setInterval(long interval) {
+            this.interval = interval;
+        }
+
+        public long getThreshold() {
+            return threshold;
+        }
+
+        public void setThreshold(long threshold) {
+            this.threshold = threshold;
+        }
+    }
+
+    public static class Bulkhead {
+
+        private String name;
+
+        private int threads = 1;
+
+        /**
+         * device address patterns assigned to the bulkhead, e.g. 10.1.*.*
+         */
+        private List<String> devices = new ArrayList<>();
+
+        /**
+         * tenant tags assigned to the bulkhead
+         */
+        private List<String> tenants = new ArrayList<>();
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public void setThreads(int threads) {
+            this.threads = threads;
+        }
+
+        public List<String> getDevices() {
+            return devices;
+        }
+
+        public void setDevices(List<String> devices) {
+            this.devices = devices;
+        }
+
+        public List<String> getTenants() {
+            return tenants;
+        }
+
+        public void setTenants(List<String> tenants) {
+            this.tenants = tenants;
+        }
+    }
+
+    /**
+     * budgets of outstanding requests and in-flight request bytes, non-positive means unlimited
+     */
+    public static class Admission {
+
+        private boolean enabled = true;
+
+        private long maxRequests = 100000;
+
+        private long maxBytes = 256L * 1024 * 1024;
+
+        private long maxDeviceRequests = 0;
+
+        private long maxDeviceBytes = 0;
+
+        /**
+         * reject: every request is rejected once a budget is used up,
+         * shed: low priority requests are rejected earlier to keep headroom for high priority ones
+         */
+        private String policy = "reject";
+
+        /**
+         * share of the budgets usable by low priority requests under the shed policy
+         */
+        private double shedRatio = 0.8;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getMaxRequests() {
+            return maxRequests;
+        }
+
+        public void setMaxRequests(long maxRequests) {
+            this.maxRequests = maxRequests;
+        }
+
+        public long getMaxBytes() {
+            return maxBytes;
+        }
+
+        public void setMaxBytes(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        public long getMaxDeviceRequests() {
+            return maxDeviceRequests;
+        }
+
+        public void setMaxDeviceRequests(long maxDeviceRequests) {
+            this.maxDeviceRequests = maxDeviceRequests;
+        }
+
+        public long getMaxDeviceBytes() {
+            return maxDeviceBytes;
+        }
+
+        public void setMaxDeviceBytes(long maxDeviceBytes) {
+            this.maxDeviceBytes = maxDeviceBytes;
+        }
+
+        public String getPolicy() {
+            return policy;
+        }
+
+        public void setPolicy(String policy) {
+            this.policy = policy;
+        }
+
+        public double getShedRatio() {
+            return shedRatio;
+        }
+
+        public void setShedRatio(double shedRatio) {
+            this.shedRatio = shedRatio;
+        }
+    }
+
+    /**
+     * automatic retries per dwCommand, capped by a retry budget
+     */
+    public static class Retry {
+
+        private boolean enabled = false;
+
+        /**
+         * retries allowed per request, e.g. 0.1 caps retries at 10% of the traffic
+         */
+        private double budgetRatio = 0.1;
+
+        /**
+         * retries that may be saved up when the traffic is low
+         */
+        private int budgetMaxRetries = 100;
+
+        /**
+         * a rule without command applies to the other commands, commands without rule are not retried
+         */
+        private List<RetryRule> rules = new ArrayList<>();
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public double getBudgetRatio() {
+            return budgetRatio;
+        }
+
+        public void setBudgetRatio(double budgetRatio) {
+            this.budgetRatio = budgetRatio;
+        }
+
+        public int getBudgetMaxRetries() {
+            return budgetMaxRetries;
+        }
+
+        public void setBudgetMaxRetries(int budgetMaxRetries) {
+            this.budgetMaxRetries = budgetMaxRetries;
+        }
+
+        public List<RetryRule> getRules() {
+            return rules;
+        }
+
+        public void setRules(List<RetryRule> rules) {
+            this.rules = rules;
+        }
+    }
+
+    public static class RetryRule {
+
+        private Integer command;
+
+        /**
+         * idempotent commands are also retried on timeout and channel inactive,
+         * the others only when the request could not be sent, e.g. connect failure
+         */
+        private boolean idempotent = false;
+
+        /**
+         * attempts including the first one
+         */
+        private int maxAttempts = 3;
+
+        /**
+         * backoff(ms) before the first retry, doubled by the multiplier for each further retry
+         */
+        private long backoff = 100;
+
+        private double multiplier = 2;
+
+        private long maxBackoff = 2000;
+
+        public Integer getCommand() {
+            return command;
+        }
+
+        public void setCommand(Integer command) {
+            this.command = command;
+        }
+
+        public boolean isIdempotent() {
+            return idempotent;
+        }
+
+        public void setIdempotent(boolean idempotent) {
+            this.idempotent = idempotent;
+        }
+
+        public int getMaxAttempts() {
+            return maxAttempts;
+        }
+
+        public void setMaxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+        }
+
+        public long getBackoff() {
+            return backoff;
+        }
+
+        public void setBackoff(long backoff) {
+            this.backoff = backoff;
+        }
+
+        public double getMultiplier() {
+            return multiplier;
+        }
+
+        public void setMultiplier(double multiplier) {
+            this.multiplier = multiplier;
+        }
+
+        public long getMaxBackoff() {
+            return maxBackoff;
+        }
+
+        public void setMaxBackoff(long maxBackoff) {
+            this.maxBackoff = maxBackoff;
+        }
+    }
+
+    /**
+     * token bucket rate limits per device class and dwCommand
+     */
+    public static class RateLimit {
+
+        private boolean enabled = false;
+
+        /**
+         * reject or delay an over-limit request
+         */
+        private String policy = "reject";
+
+        /**
+         * max delay(ms) of a request under the delay policy
+         */
+        private long maxDelay = 1000;
+
+        /**
+         * the first matching rule applies, per device and per command
+         */
+        private List<Rule> rules = new ArrayList<>();
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getPolicy() {
+            return policy;
+        }
+
+        public void setPolicy(String policy) {
+            this.policy = policy;
+        }
+
+        public long getMaxDelay() {
+            return maxDelay;
+        }
+
+        public void setMaxDelay(long maxDelay) {
+            this.maxDelay = maxDelay;
+        }
+
+        public List<Rule> getRules() {
+            return rules;
+        }
+
+        public void setRules(List<Rule> rules) {
+            this.rules = rules;
+        }
+    }
+
+    public static class Rule {
+
+        /**
+         * device address pattern, e.g. 10.1.*.*, 10.2.0.1-100 or 10.3.0.1:8000
+         */
+        private String devices = "*";
+
+        /**
+         * limited dwCommand, all commands of the device if not set
+         */
+        private Integer command;
+
+        private double permitsPerSecond;
+
+        private int burst = 1;
+
+        public String getDevices() {
+            return devices;
+        }
+
+        public void setDevices(String devices) {
+            this.devices = devices;
+        }
+
+        public Integer getCommand() {
+            return command;
+        }
+
+        public void setCommand(Integer command) {
+            this.command = command;
+        }
+
+        public double getPermitsPerSecond() {
+            return permitsPerSecond;
+        }
+
+        public void setPermitsPerSecond(double permitsPerSecond) {
+            this.permitsPerSecond = permitsPerSecond;
+        }
+
+        public int getBurst() {
+            return burst;
+        }
+
+        public void setBurst(int burst) {
+            this.burst = burst;
+        }
+    }
+
+    /**
+     * request and connect timeouts derived from the observed latencies of each device
+     */
+    public static class AdaptiveTimeout {
+
+        private boolean enabled = false;
+
+        /**
+         * latency percentile a timeout should cover
+         */
+        private double percentile = 0.999;
+
+        /**
+         * lower bound(ms) of a request timeout
+         */
+        private int floor = 200;
+
+        /**
+         * upper bound(ms) of a request timeout, the client timeout if not set
+         */
+        private Integer ceiling;
+
+        /**
+         * weight of a new latency sample
+         */
+        private double alpha = 0.125;
+
+        /**
+         * samples required before a dwCommand uses its own estimate instead of the one of its device
+         */
+        private int minimumSamples = 20;
+
+        /**
+         * lower bound(ms) of a connect timeout, the connect timeout of the url is the upper bound
+         */
+        private Integer connectFloor;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public double getPercentile() {
+            return percentile;
+        }
+
+        public void setPercentile(double percentile) {
+            this.percentile = percentile;
+        }
+
+        public int getFloor() {
+            return floor;
+        }
+
+        public void setFloor(int floor) {
+            this.floor = floor;
+        }
+
+        public Integer getCeiling() {
+            return ceiling;
+        }
+
+        public void setCeiling(Integer ceiling) {
+            this.ceiling = ceiling;
+        }
+
+        public double getAlpha() {
+            return alpha;
+        }
+
+        public void setAlpha(double alpha) {
+            this.alpha = alpha;
+        }
+
+        public int getMinimumSamples() {
+            return minimumSamples;
+        }
+
+        public void setMinimumSamples(int minimumSamples) {
+            this.minimumSamples = minimumSamples;
+        }
+
+        public Integer getConnectFloor() {
+            return connectFloor;
+        }
+
+        public void setConnectFloor(Integer connectFloor) {
+            this.connectFloor = connectFloor;
+        }
+    }
+
+    /**
+     * per device circuit breaker
+     */
+    public static class CircuitBreaker {
+
+        private boolean enabled = true;
+
+        /**
+         * consecutive failures that open the breaker
+         */
+        private int failureThreshold = 5;
+
+        /**
+         * time(ms) the breaker stays open before a probe request is allowed
+         */
+        private long openDuration = 30000;
+
+        /**
+         * time window(ms) of the timeout rate
+         */
+        private long window = 10000;
+
+        /**
+         * calls required in the window before the timeout rate is evaluated
+         */
+        private int minimumCalls = 20;
+
+        /**
+         * ratio of timed out calls in the window that opens the breaker
+         */
+        private double timeoutRateThreshold = 0.5;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getFailureThreshold() {
+            return failureThreshold;
+        }
+
+        public void setFailureThreshold(int failureThreshold) {
+            this.failureThreshold = failureThreshold;
+        }
+
+        public long getOpenDuration() {
+            return openDuration;
+        }
+
+        public void setOpenDuration(long openDuration) {
+            this.openDuration = openDuration;
+        }
+
+        public long getWindow() {
+            return window;
+        }
+
+        public void setWindow(long window) {
+            this.window = window;
+        }
+
+        public int getMinimumCalls() {
+            return minimumCalls;
+        }
+
+        public void setMinimumCalls(int minimumCalls) {
+            this.minimumCalls = minimumCalls;
+        }
+
+        public double getTimeoutRateThreshold() {
+            return timeoutRateThreshold;
+        }
+
+        public void setTimeoutRateThreshold(double timeoutRateThreshold) {
+            this.timeoutRateThreshold = timeoutRateThreshold;
+        }
+    }
+
+    /**
+     * outbound buffer limits of each client
+     */
+    public static class Backpressure {
+
+        /**
+         * outbound bytes above which the channel becomes unwritable
+         */
+        private Integer highWaterMark;
+
+        /**
+         * outbound bytes below which the channel becomes writable again
+         */
+        private Integer lowWaterMark;
+
+        /**
+         * none, fail or wait, applied to normal and low priority sends once the priority queues and the outbound
+         * buffer hold more than the high water mark. High priority sends are always queued.
+         */
+        private String policy;
+
+        /**
+         * max wait time(ms) for writability when the policy is wait
+         */
+        private Integer timeout;
+
+        public Integer getHighWaterMark() {
+            return highWaterMark;
+        }
+
+        public void setHighWaterMark(Integer highWaterMark) {
+            this.highWaterMark = highWaterMark;
+        }
+
+        public Integer getLowWaterMark() {
+            return lowWaterMark;
+        }
+
+        public void setLowWaterMark(Integer lowWaterMark) {
+            this.lowWaterMark = lowWaterMark;
+        }
+
+        public String getPolicy() {
+            return policy;
+        }
+
+        public void setPolicy(String policy) {
+            this.policy = policy;
+        }
+
+        public Integer getTimeout() {
+            return timeout;
+        }
+
+        public void setTimeout(Integer timeout) {
+            this.timeout = timeout;
+        }
+    }
+
+    /**
+     * native transport tuning, only applied when epoll or io_uring is in use
+     */
+    public static class Transport {
+
+        /**
+         * seconds idle before the first tcp keepalive probe
+         */
+        private Integer keepAliveIdle;
+
+        /**
+         * seconds between tcp keepalive probes
+         */
+        private Integer keepAliveInterval;
+
+        /**
+         * probes lost before the connection is dropped
+         */
+        private Integer keepAliveCount;
+
+        private Boolean quickAck;
+
+        /**
+         * epoll trigger mode: edge or level
+         */
+        private String epollMode;
+
+        /**
+         * epoll SO_BUSY_POLL in microseconds
+         */
+        private Integer busyPoll;
+
+        public Integer getKeepAliveIdle() {
+            return keepAliveIdle;
+        }
+
+        public void setKeepAliveIdle(Integer keepAliveIdle) {
+            this.keepAliveIdle = keepAliveIdle;
+        }
+
+        public Integer getKeepAliveInterval() {
+            return keepAliveInterval;
+        }
+
+        public void setKeepAliveInterval(Integer keepAliveInterval) {
+            this.keepAliveInterval = keepAliveInterval;
+        }
+
+        public Integer getKeepAliveCount() {
+            return keepAliveCount;
+        }
+
+        public void setKeepAliveCount(Integer keepAliveCount) {
+            this.keepAliveCount = keepAliveCount;
+        }
+
+        public Boolean getQuickAck() {
+            return quickAck;
+        }
+
+        public void setQuickAck(Boolean quickAck) {
+            this.quickAck = quickAck;
+        }
+
+        public String getEpollMode() {
+            return epollMode;
+        }
+
+        public void setEpollMode(String epollMode) {
+            this.epollMode = epollMode;
+        }
+
+        public Integer getBusyPoll() {
+            return busyPoll;
+        }
+
+        public void setBusyPoll(Integer busyPoll) {
+            this.busyPoll = busyPoll;
+        }
+    }
+}
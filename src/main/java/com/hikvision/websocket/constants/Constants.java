@@ -77,6 +77,24 @@ public interface Constants {
 
     int DEFAULT_CONNECT_TIMEOUT = 3000;
 
+    /**
+     * derive the connect timeout from the observed connect latencies, the configured connect timeout becomes the ceiling
+     */
+    String CONNECT_TIMEOUT_ADAPTIVE_KEY = "connect.timeout.adaptive";
+
+    String CONNECT_TIMEOUT_FLOOR_KEY = "connect.timeout.floor";
+
+    int DEFAULT_CONNECT_TIMEOUT_FLOOR = 500;
+
+    String CONNECT_TIMEOUT_PERCENTILE_KEY = "connect.timeout.percentile";
+
+    double DEFAULT_CONNECT_TIMEOUT_PERCENTILE = 0.999D;
+
+    /**
+     * weight of a new connect latency sample
+     */
+    double CONNECT_LATENCY_ALPHA = 0.125D;
+
     String SERIALIZATION_KEY = "serialization";
 
     String DEFAULT_REMOTING_SERIALIZATION_PROPERTY_KEY = "DUBBO_DEFAULT_SERIALIZATION";
@@ -109,14 +127,111 @@ public interface Constants {
 
     String NETTY_EPOLL_ENABLE_KEY = "netty.epoll.enable";
 
+    /**
+     * io_uring is an incubator transport, so it must be enabled explicitly
+     */
+    String NETTY_IO_URING_ENABLE_KEY = "netty.io_uring.enable";
+
+    /**
+     * seconds the connection stays idle before tcp keepalive probes are sent (native transport only)
+     */
+    String TCP_KEEPALIVE_IDLE_KEY = "tcp.keepalive.idle";
+
+    /**
+     * seconds between tcp keepalive probes (native transport only)
+     */
+    String TCP_KEEPALIVE_INTERVAL_KEY = "tcp.keepalive.interval";
+
+    /**
+     * unacknowledged tcp keepalive probes before the connection is dropped (native transport only)
+     */
+    String TCP_KEEPALIVE_COUNT_KEY = "tcp.keepalive.count";
+
+    String TCP_QUICKACK_KEY = "tcp.quickack";
+
+    /**
+     * epoll trigger mode, edge or level
+     */
+    String EPOLL_MODE_KEY = "epoll.mode";
+
+    /**
+     * SO_BUSY_POLL in microseconds, zero means disabled
+     */
+    String EPOLL_BUSY_POLL_KEY = "epoll.busy.poll";
+
+    /**
+     * the channel becomes unwritable once the outbound buffer exceeds the high water mark,
+     * and writable again after it drains below the low water mark
+     */
+    String WRITE_BUFFER_HIGH_WATER_MARK_KEY = "write.buffer.high.water.mark";
+
+    String WRITE_BUFFER_LOW_WATER_MARK_KEY = "write.buffer.low.water.mark";
+
+    int DEFAULT_WRITE_BUFFER_HIGH_WATER_MARK = 64 * 1024;
+
+    int DEFAULT_WRITE_BUFFER_LOW_WATER_MARK = 32 * 1024;
+
+    /**
+     * what to do when sending to an unwritable channel: none, fail or wait
+     */
+    String BACKPRESSURE_KEY = "backpressure";
+
+    String BACKPRESSURE_NONE = "none";
+
+    String BACKPRESSURE_FAIL = "fail";
+
+    String BACKPRESSURE_WAIT = "wait";
+
+    String DEFAULT_BACKPRESSURE = BACKPRESSURE_WAIT;
+
+    /**
+     * max milliseconds to wait for writability when the backpressure policy is wait
+     */
+    String BACKPRESSURE_TIMEOUT_KEY = "backpressure.timeout";
+
+    int DEFAULT_BACKPRESSURE_TIMEOUT = 3000;
+
+    /**
+     * time(ms) a timed out request keeps its place in the reply order, a reply later than this is not expected
+     */
+    long LATE_REPLY_WINDOW = 60000;
+
+    /**
+     * writes per round of the high, normal and low priority outbound queues
+     */
+    String PRIORITY_WEIGHTS_KEY = "priority.weights";
+
+    String DEFAULT_PRIORITY_WEIGHTS = "8,4,1";
+
+    /**
+     * name of the event loop bulkhead the client is assigned to
+     */
+    String EVENT_LOOP_GROUP_KEY = "event.loop.group";
+
+    /**
+     * tenant tag of the client, assigns it to the bulkhead serving the tenant
+     */
+    String TENANT_KEY = "tenant";
+
     String BIND_IP_KEY = "bind.ip";
 
     String BIND_PORT_KEY = "bind.port";
 
     String SENT_KEY = "sent";
 
+    /**
+     * thread model of the handler callbacks and response listeners: direct, all or ordered
+     */
     String DISPATCHER_KEY = "dispatcher";
 
+    String DISPATCHER_DIRECT = "direct";
+
+    String DISPATCHER_ALL = "all";
+
+    String DISPATCHER_ORDERED = "ordered";
+
+    String DEFAULT_DISPATCHER = DISPATCHER_DIRECT;
+
     String CHANNEL_ATTRIBUTE_READONLY_KEY = "channel.readonly";
 
     String CHANNEL_READONLYEVENT_SENT_KEY = "channel.readonly.sent";
@@ -141,4 +256,67 @@ public interface Constants {
     String CONNECTIONS_KEY = "connections";
 
     int DEFAULT_BACKLOG = 1024;
+
+    /**
+     * wait time(ms) of the server for the first frame of an inbound connection, which identifies the device
+     */
+    String IDENTIFY_TIMEOUT_KEY = "identify.timeout";
+
+    int DEFAULT_IDENTIFY_TIMEOUT = 10 * 1000;
+
+    /**
+     * server channels bound to the same port with SO_REUSEPORT, each with its own worker threads (epoll only)
+     */
+    String ACCEPTORS_KEY = "acceptors";
+
+    int DEFAULT_ACCEPTORS = 1;
+
+    /**
+     * connections accepted per second over all acceptors of a server, 0 means unlimited
+     */
+    String ACCEPT_RATE_KEY = "accept.rate";
+
+    String GATEWAY_BOSS_POOL_NAME = "WebSocketGatewayBoss";
+
+    String GATEWAY_WORKER_POOL_NAME = "WebSocketGatewayWorker";
+
+    /**
+     * websocket path of the gateway
+     */
+    String PATH_KEY = "path";
+
+    String DEFAULT_GATEWAY_PATH = "/ws";
+
+    /**
+     * max websocket frame (message) size of the gateway
+     */
+    String MAX_FRAME_SIZE_KEY = "max.frame.size";
+
+    int DEFAULT_MAX_FRAME_SIZE = 64 * 1024;
+
+    /**
+     * unanswered requests per websocket connection, more are rejected at once
+     */
+    String MAX_PENDING_KEY = "max.pending";
+
+    int DEFAULT_MAX_PENDING = 1024;
+
+    /**
+     * threads sending the requests of the gateway which may wait, e.g. to connect the device
+     */
+    String CONNECT_THREADS_KEY = "connect.threads";
+
+    int DEFAULT_CONNECT_THREADS = 4;
+
+    /**
+     * whether the gateway accepts permessage-deflate
+     */
+    String COMPRESSION_KEY = "compression";
+
+    /**
+     * default policy for the events of slow subscribers: conflate, drop
+     */
+    String SLOW_SUBSCRIBER_KEY = "slow.subscriber";
+
+    String DEFAULT_SLOW_SUBSCRIBER = "conflate";
 }
@@ -0,0 +1,18 @@
+package com.hikvision.websocket.exception;
+
+import java.net.InetSocketAddress;
+
+/**
+ * the request is rejected because the outstanding request or in-flight byte budget is used up
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 13:30
+ */
+public class AdmissionRejectedException extends RemotingException {
+
+    private static final long serialVersionUID = -6017839504612771245L;
+
+    public AdmissionRejectedException(InetSocketAddress remoteAddress) {
+        super(null, remoteAddress, "Request to " + remoteAddress + " is rejected, cause: outstanding request budget exceeded.");
+    }
+}
@@ -0,0 +1,18 @@
+package com.hikvision.websocket.exception;
+
+import java.net.InetSocketAddress;
+
+/**
+ * the request is rejected because the circuit breaker of the device is open
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 11:05
+ */
+public class CircuitBreakerOpenException extends RemotingException {
+
+    private static final long serialVersionUID = -3146580934518390452L;
+
+    public CircuitBreakerOpenException(InetSocketAddress remoteAddress) {
+        super(null, remoteAddress, "Request to " + remoteAddress + " is rejected, cause: circuit breaker is open.");
+    }
+}
@@ -0,0 +1,18 @@
+package com.hikvision.websocket.exception;
+
+import java.net.InetSocketAddress;
+
+/**
+ * the request is rejected because the device or its command exceeds the rate limit
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 12:10
+ */
+public class RateLimitExceededException extends RemotingException {
+
+    private static final long serialVersionUID = 5203184791660284317L;
+
+    public RateLimitExceededException(InetSocketAddress remoteAddress, int command) {
+        super(null, remoteAddress, "Request(command: " + command + ") to " + remoteAddress + " is rejected, cause: rate limit exceeded.");
+    }
+}
@@ -0,0 +1,55 @@
+package com.hikvision.websocket.factory;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.socket.ServerSocketChannel;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.incubator.channel.uring.IOUringChannelOption;
+import io.netty.incubator.channel.uring.IOUringEventLoopGroup;
+import io.netty.incubator.channel.uring.IOUringServerSocketChannel;
+import io.netty.incubator.channel.uring.IOUringSocketChannel;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Isolates the io_uring incubator classes, the transport is an optional dependency
+ * and this class must only be loaded after {@link NettyEventLoopFactory} found it available.
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 10:12
+ */
+final class IOUringSupport {
+
+    static final String IO_URING_CLASS = "io.netty.incubator.channel.uring.IOUring";
+
+    private IOUringSupport() {
+    }
+
+    static EventLoopGroup eventLoopGroup(int threads, ThreadFactory threadFactory) {
+        return new IOUringEventLoopGroup(threads, threadFactory);
+    }
+
+    static Class<? extends SocketChannel> socketChannelClass() {
+        return IOUringSocketChannel.class;
+    }
+
+    static Class<? extends ServerSocketChannel> serverSocketChannelClass() {
+        return IOUringServerSocketChannel.class;
+    }
+
+    static void keepAlive(Bootstrap bootstrap, int idle, int interval, int count) {
+        if (idle > 0) {
+            bootstrap.option(IOUringChannelOption.TCP_KEEPIDLE, idle);
+        }
+        if (interval > 0) {
+            bootstrap.option(IOUringChannelOption.TCP_KEEPINTVL, interval);
+        }
+        if (count > 0) {
+            bootstrap.option(IOUringChannelOption.TCP_KEEPCNT, count);
+        }
+    }
+
+    static void quickAck(Bootstrap bootstrap, boolean quickAck) {
+        bootstrap.option(IOUringChannelOption.TCP_QUICKACK, quickAck);
+    }
+}
@@ -16,9 +16,14 @@
  */
 package com.hikvision.websocket.factory;
 
+import com.hikvision.websocket.api.URL;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
 import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollMode;
 import io.netty.channel.epoll.EpollServerSocketChannel;
 import io.netty.channel.epoll.EpollSocketChannel;
 import io.netty.channel.nio.NioEventLoopGroup;
@@ -27,34 +32,193 @@ import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.channel.socket.nio.NioSocketChannel;
 import io.netty.util.concurrent.DefaultThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.concurrent.ThreadFactory;
 
 import static com.hikvision.websocket.constants.CommonConstants.OS_LINUX_PREFIX;
 import static com.hikvision.websocket.constants.CommonConstants.OS_NAME_KEY;
+import static com.hikvision.websocket.constants.Constants.EPOLL_BUSY_POLL_KEY;
+import static com.hikvision.websocket.constants.Constants.EPOLL_MODE_KEY;
 import static com.hikvision.websocket.constants.Constants.NETTY_EPOLL_ENABLE_KEY;
+import static com.hikvision.websocket.constants.Constants.NETTY_IO_URING_ENABLE_KEY;
+import static com.hikvision.websocket.constants.Constants.TCP_KEEPALIVE_COUNT_KEY;
+import static com.hikvision.websocket.constants.Constants.TCP_KEEPALIVE_IDLE_KEY;
+import static com.hikvision.websocket.constants.Constants.TCP_KEEPALIVE_INTERVAL_KEY;
+import static com.hikvision.websocket.constants.Constants.TCP_QUICKACK_KEY;
 
 public class NettyEventLoopFactory {
+
+    private static final Logger logger = LoggerFactory.getLogger(NettyEventLoopFactory.class);
+
+    /**
+     * the transport is decided once, event loop groups and channel classes must always match
+     */
+    private static final Transport TRANSPORT = detectTransport();
+
+    private static final String EPOLL_PACKAGE = "io.netty.channel.epoll.";
+
+    private static final String IO_URING_PACKAGE = "io.netty.incubator.channel.uring.";
+
     public static EventLoopGroup eventLoopGroup(int threads, String threadFactoryName) {
         ThreadFactory threadFactory = new DefaultThreadFactory(threadFactoryName, true);
-        return shouldEpoll() ? new EpollEventLoopGroup(threads, threadFactory) :
-                new NioEventLoopGroup(threads, threadFactory);
+        switch (TRANSPORT) {
+            case IO_URING:
+                return IOUringSupport.eventLoopGroup(threads, threadFactory);
+            case EPOLL:
+                return new EpollEventLoopGroup(threads, threadFactory);
+            default:
+                return new NioEventLoopGroup(threads, threadFactory);
+        }
     }
 
     public static Class<? extends SocketChannel> socketChannelClass() {
-        return shouldEpoll() ? EpollSocketChannel.class : NioSocketChannel.class;
+        return socketChannelClass(TRANSPORT);
+    }
+
+    public static Class<? extends SocketChannel> socketChannelClass(Transport transport) {
+        switch (transport) {
+            case IO_URING:
+                return IOUringSupport.socketChannelClass();
+            case EPOLL:
+                return EpollSocketChannel.class;
+            default:
+                return NioSocketChannel.class;
+        }
     }
 
     public static Class<? extends ServerSocketChannel> serverSocketChannelClass() {
-        return shouldEpoll() ? EpollServerSocketChannel.class : NioServerSocketChannel.class;
+        switch (TRANSPORT) {
+            case IO_URING:
+                return IOUringSupport.serverSocketChannelClass();
+            case EPOLL:
+                return EpollServerSocketChannel.class;
+            default:
+                return NioServerSocketChannel.class;
+        }
+    }
+
+    public static Transport transport() {
+        return TRANSPORT;
+    }
+
+    /**
+     * The transport of a given group, which may be supplied by the host application
+     * and differ from the detected one. Channels must be created with the matching class.
+     *
+     * @param group event loop group
+     * @return transport of the group
+     */
+    public static Transport transport(EventLoopGroup group) {
+        String loopClass = group.next().getClass().getName();
+        if (loopClass.startsWith(EPOLL_PACKAGE)) {
+            return Transport.EPOLL;
+        }
+        if (loopClass.startsWith(IO_URING_PACKAGE)) {
+            return Transport.IO_URING;
+        }
+        return Transport.NIO;
     }
 
-    private static boolean shouldEpoll() {
-        if (Boolean.parseBoolean(System.getProperty(NETTY_EPOLL_ENABLE_KEY, "false"))) {
-            String osName = System.getProperty(OS_NAME_KEY);
-            return osName.toLowerCase().contains(OS_LINUX_PREFIX) && Epoll.isAvailable();
+    /**
+     * Apply the native tcp options carried by the url. Options the current transport
+     * does not support are ignored, nio falls back to the kernel defaults.
+     *
+     * @param bootstrap client bootstrap
+     * @param url       client url
+     */
+    public static void applyTransportOptions(Bootstrap bootstrap, URL url) {
+        applyTransportOptions(bootstrap, url, TRANSPORT);
+    }
+
+    public static void applyTransportOptions(Bootstrap bootstrap, URL url, Transport transport) {
+        int idle = url.getParameter(TCP_KEEPALIVE_IDLE_KEY, 0);
+        int interval = url.getParameter(TCP_KEEPALIVE_INTERVAL_KEY, 0);
+        int count = url.getParameter(TCP_KEEPALIVE_COUNT_KEY, 0);
+        switch (transport) {
+            case EPOLL:
+                if (idle > 0) {
+                    bootstrap.option(EpollChannelOption.TCP_KEEPIDLE, idle);
+                }
+                if (interval > 0) {
+                    bootstrap.option(EpollChannelOption.TCP_KEEPINTVL, interval);
+                }
+                if (count > 0) {
+                    bootstrap.option(EpollChannelOption.TCP_KEEPCNT, count);
+                }
+                if (url.hasParameter(TCP_QUICKACK_KEY)) {
+                    bootstrap.option(EpollChannelOption.TCP_QUICKACK, url.getParameter(TCP_QUICKACK_KEY, false));
+                }
+                if (url.hasParameter(EPOLL_MODE_KEY)) {
+                    bootstrap.option(EpollChannelOption.EPOLL_MODE, "level".equalsIgnoreCase(url.getParameter(EPOLL_MODE_KEY))
+                            ? EpollMode.LEVEL_TRIGGERED : EpollMode.EDGE_TRIGGERED);
+                }
+                int busyPoll = url.getParameter(EPOLL_BUSY_POLL_KEY, 0);
+                if (busyPoll > 0) {
+                    bootstrap.option(EpollChannelOption.SO_BUSY_POLL, busyPoll);
+                }
+                break;
+            case IO_URING:
+                IOUringSupport.keepAlive(bootstrap, idle, interval, count);
+                if (url.hasParameter(TCP_QUICKACK_KEY)) {
+                    IOUringSupport.quickAck(bootstrap, url.getParameter(TCP_QUICKACK_KEY, false));
+                }
+                break;
+            default:
+                if (logger.isDebugEnabled() && (idle > 0 || interval > 0 || count > 0 || url.hasParameter(TCP_QUICKACK_KEY))) {
+                    logger.debug("Native tcp options of " + url + " are ignored by the nio transport.");
+                }
+        }
+    }
+
+    /**
+     * whether several server channels may bind the same port, only the epoll transport supports SO_REUSEPORT
+     */
+    public static boolean isReusePortSupported() {
+        return TRANSPORT == Transport.EPOLL;
+    }
+
+    /**
+     * Let several server channels bind the same port, the kernel balances the incoming connections
+     * over their accept queues. Ignored unless {@link #isReusePortSupported()}.
+     *
+     * @param bootstrap server bootstrap
+     */
+    public static void reusePort(ServerBootstrap bootstrap) {
+        if (isReusePortSupported()) {
+            bootstrap.option(EpollChannelOption.SO_REUSEPORT, true);
+        }
+    }
+
+    private static Transport detectTransport() {
+        String osName = System.getProperty(OS_NAME_KEY);
+        if (osName == null || !osName.toLowerCase().contains(OS_LINUX_PREFIX)) {
+            return Transport.NIO;
+        }
+        if (Boolean.parseBoolean(System.getProperty(NETTY_IO_URING_ENABLE_KEY, "false"))) {
+            if (isIOUringAvailable()) {
+                return Transport.IO_URING;
+            }
+            logger.warn("io_uring transport is enabled but not available, fall back to epoll.");
+        }
+        // epoll is used by default on linux, -Dnetty.epoll.enable=false turns it off
+        if (Boolean.parseBoolean(System.getProperty(NETTY_EPOLL_ENABLE_KEY, "true")) && Epoll.isAvailable()) {
+            return Transport.EPOLL;
         }
+        return Transport.NIO;
+    }
+
+    private static boolean isIOUringAvailable() {
+        try {
+            Class<?> ioUring = Class.forName(IOUringSupport.IO_URING_CLASS, true, NettyEventLoopFactory.class.getClassLoader());
+            return (Boolean) ioUring.getMethod("isAvailable").invoke(null);
+        } catch (Throwable t) {
+            return false;
+        }
+    }
 
-        return false;
+    public enum Transport {
+        NIO, EPOLL, IO_URING
     }
 }
@@ -0,0 +1,76 @@
+package com.hikvision.websocket.governance;
+
+/**
+ * Adaptive timeout settings, shared by the estimators of all devices
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 11:40
+ */
+public class AdaptiveTimeoutConfig {
+
+    /**
+     * latency percentile the timeout should cover, e.g. 0.999
+     */
+    private final double percentile;
+
+    /**
+     * lower bound(ms) of an adaptive timeout
+     */
+    private final int floor;
+
+    /**
+     * upper bound(ms) of an adaptive timeout
+     */
+    private final int ceiling;
+
+    /**
+     * weight of a new latency sample
+     */
+    private final double alpha;
+
+    /**
+     * samples required before the estimate of a command replaces the one of its device
+     */
+    private final int minimumSamples;
+
+    /**
+     * z-score of the percentile
+     */
+    private final double z;
+
+    public AdaptiveTimeoutConfig(double percentile, int floor, int ceiling, double alpha, int minimumSamples) {
+        if (floor <= 0 || ceiling < floor) {
+            throw new IllegalArgumentException("require 0 < floor <= ceiling, floor: " + floor + ", ceiling: " + ceiling);
+        }
+        this.percentile = percentile;
+        this.floor = floor;
+        this.ceiling = ceiling;
+        this.alpha = alpha;
+        this.minimumSamples = minimumSamples;
+        this.z = LatencyEstimator.zScore(percentile);
+    }
+
+    public double getPercentile() {
+        return percentile;
+    }
+
+    public int getFloor() {
+        return floor;
+    }
+
+    public int getCeiling() {
+        return ceiling;
+    }
+
+    public double getAlpha() {
+        return alpha;
+    }
+
+    public int getMinimumSamples() {
+        return minimumSamples;
+    }
+
+    public double getZ() {
+        return z;
+    }
+}
@@ -0,0 +1,98 @@
+package com.hikvision.websocket.governance;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Request timeouts per device and dwCommand, derived from the observed latencies.
+ * <p>
+ * A command uses its own estimate once it has enough samples, before that the estimate of the
+ * device, and the configured timeout while the device has no samples at all.
+ * Timed out requests are recorded with the timeout as latency, so a slowing device widens its
+ * timeout up to the ceiling instead of failing at a stale estimate.
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 11:40
+ */
+public class AdaptiveTimeoutRegistry {
+
+    private final ConcurrentMap<InetSocketAddress, DeviceLatency> devices = new ConcurrentHashMap<>();
+
+    private final AdaptiveTimeoutConfig config;
+
+    public AdaptiveTimeoutRegistry(AdaptiveTimeoutConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * @param defaultTimeout timeout(ms) used before any latency is observed
+     * @return request timeout(ms) within [floor, ceiling]
+     */
+    public int timeout(InetSocketAddress address, int command, int defaultTimeout) {
+        DeviceLatency device = devices.get(address);
+        if (device == null) {
+            return defaultTimeout;
+        }
+        LatencyEstimator estimator = device.commands.get(command);
+        if (estimator == null || estimator.getSamples() < config.getMinimumSamples()) {
+            estimator = device.total;
+        }
+        long estimate = estimator.estimate(config.getZ());
+        if (estimate < 0L) {
+            return defaultTimeout;
+        }
+        return (int) Math.max(config.getFloor(), Math.min(config.getCeiling(), estimate));
+    }
+
+    /**
+     * @param latency latency(ms) of the request, the timeout if it timed out
+     */
+    public void record(InetSocketAddress address, int command, long latency) {
+        DeviceLatency device = getOrAdd(address);
+        device.total.record(latency);
+        LatencyEstimator estimator = device.commands.get(command);
+        if (estimator == null) {
+            estimator = device.commands.computeIfAbsent(command, k -> new LatencyEstimator(config.getAlpha()));
+        }
+        estimator.record(latency);
+    }
+
+    /**
+     * forget the latencies of a removed device
+     */
+    public void remove(InetSocketAddress address) {
+        devices.remove(address);
+    }
+
+    /**
+     * @return latency estimator of the device, null if never recorded
+     */
+    public LatencyEstimator get(InetSocketAddress address) {
+        DeviceLatency device = devices.get(address);
+        return device == null ? null : device.total;
+    }
+
+    public AdaptiveTimeoutConfig getConfig() {
+        return config;
+    }
+
+    private DeviceLatency getOrAdd(InetSocketAddress address) {
+        DeviceLatency device = devices.get(address);
+        if (device == null) {
+            device = devices.computeIfAbsent(address, k -> new DeviceLatency(config.getAlpha()));
+        }
+        return device;
+    }
+
+    private static final class DeviceLatency {
+
+        private final LatencyEstimator total;
+
+        private final ConcurrentMap<Integer, LatencyEstimator> commands = new ConcurrentHashMap<>();
+
+        private DeviceLatency(double alpha) {
+            this.total = new LatencyEstimator(alpha);
+        }
+    }
+}
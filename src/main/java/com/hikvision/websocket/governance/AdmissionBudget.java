@@ -0,0 +1,83 @@
+package com.hikvision.websocket.governance;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Outstanding requests and in-flight bytes against their limits, global or of one device.
+ * Counters are raised optimistically and rolled back when a limit is exceeded, so concurrent
+ * admissions may overshoot a limit by at most the number of racing callers.
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 13:30
+ */
+public class AdmissionBudget {
+
+    /**
+     * max outstanding requests, non-positive means unlimited
+     */
+    private final long maxRequests;
+
+    /**
+     * max in-flight request bytes, non-positive means unlimited
+     */
+    private final long maxBytes;
+
+    private final AtomicLong requests = new AtomicLong();
+
+    private final AtomicLong bytes = new AtomicLong();
+
+    public AdmissionBudget(long maxRequests, long maxBytes) {
+        this.maxRequests = maxRequests;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @param size  request bytes
+     * @param ratio share of the limits the request may use, below 1 for requests shed early
+     * @return false if a limit is exceeded, nothing is taken then
+     */
+    boolean tryAcquire(long size, double ratio) {
+        long n = requests.incrementAndGet();
+        long b = bytes.addAndGet(size);
+        if ((maxRequests > 0 && n > maxRequests * ratio) || (maxBytes > 0 && b > maxBytes * ratio)) {
+            release(size);
+            return false;
+        }
+        return true;
+    }
+
+    void release(long size) {
+        requests.decrementAndGet();
+        bytes.addAndGet(-size);
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    public long getMaxRequests() {
+        return maxRequests;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * @return the higher utilization of the request and the byte limit, 0 if unlimited
+     */
+    public double getUtilization() {
+        double res = 0D;
+        if (maxRequests > 0) {
+            res = (double) requests.get() / maxRequests;
+        }
+        if (maxBytes > 0) {
+            res = Math.max(res, (double) bytes.get() / maxBytes);
+        }
+        return res;
+    }
+}
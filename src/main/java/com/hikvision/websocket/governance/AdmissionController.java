@@ -0,0 +1,167 @@
+package com.hikvision.websocket.governance;
+
+import com.hikvision.websocket.netty.exchange.Priority;
+
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Admission control of outstanding requests and in-flight bytes, globally and per device.
+ * <p>
+ * A request holds its share of the budgets from admission until its future completes, so the memory
+ * held by queued requests and pending futures is bounded no matter how fast callers submit.
+ * Under {@link Policy#REJECT} every request is rejected once a budget is used up; under
+ * {@link Policy#SHED} low priority requests are rejected earlier, keeping headroom for the high
+ * priority ones.
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 13:30
+ */
+public class AdmissionController {
+
+    public enum Policy {
+        REJECT, SHED
+    }
+
+    private final AdmissionBudget global;
+
+    private final long maxDeviceRequests;
+
+    private final long maxDeviceBytes;
+
+    private final Policy policy;
+
+    /**
+     * share of the budgets usable by each priority, in the order of {@link Priority}
+     */
+    private final double[] ratios;
+
+    private final ConcurrentMap<InetSocketAddress, AdmissionBudget> devices = new ConcurrentHashMap<>();
+
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * @param shedRatio share of the budgets usable by low priority requests under {@link Policy#SHED},
+     *                  normal priority requests use the mean of it and 1
+     */
+    public AdmissionController(long maxRequests, long maxBytes, long maxDeviceRequests, long maxDeviceBytes,
+                               Policy policy, double shedRatio) {
+        this.global = new AdmissionBudget(maxRequests, maxBytes);
+        this.maxDeviceRequests = maxDeviceRequests;
+        this.maxDeviceBytes = maxDeviceBytes;
+        this.policy = policy;
+        this.ratios = new double[Priority.values().length];
+        for (Priority priority : Priority.values()) {
+            double ratio = 1D;
+            if (policy == Policy.SHED) {
+                if (priority == Priority.LOW) {
+                    ratio = shedRatio;
+                } else if (priority == Priority.NORMAL) {
+                    ratio = (1D + shedRatio) / 2D;
+                }
+            }
+            ratios[priority.ordinal()] = ratio;
+        }
+    }
+
+    /**
+     * Admit a request, the returned permit must be released once the request completes
+     *
+     * @param size request bytes
+     * @return permit, null if the request is rejected
+     */
+    public Permit tryAcquire(InetSocketAddress address, long size, Priority priority) {
+        double ratio = ratios[priority.ordinal()];
+        AdmissionBudget device = getOrAdd(address);
+        if (device != null && !device.tryAcquire(size, ratio)) {
+            rejected.increment();
+            return null;
+        }
+        if (!global.tryAcquire(size, ratio)) {
+            if (device != null) {
+                device.release(size);
+            }
+            rejected.increment();
+            return null;
+        }
+        return new Permit(device, size);
+    }
+
+    /**
+     * forget the budget of a removed device, permits held for it are still released correctly
+     */
+    public void remove(InetSocketAddress address) {
+        devices.remove(address);
+    }
+
+    public AdmissionBudget getGlobal() {
+        return global;
+    }
+
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * utilization of each device budget, for dashboards
+     *
+     * @return device address -> utilization
+     */
+    public Map<InetSocketAddress, Double> getDeviceUtilizations() {
+        Map<InetSocketAddress, Double> res = new HashMap<>();
+        for (Map.Entry<InetSocketAddress, AdmissionBudget> entry : devices.entrySet()) {
+            res.put(entry.getKey(), entry.getValue().getUtilization());
+        }
+        return res;
+    }
+
+    private AdmissionBudget getOrAdd(InetSocketAddress address) {
+        if (address == null || (maxDeviceRequests <= 0 && maxDeviceBytes <= 0)) {
+            return null;
+        }
+        AdmissionBudget budget = devices.get(address);
+        if (budget == null) {
+            budget = devices.computeIfAbsent(address, k -> new AdmissionBudget(maxDeviceRequests, maxDeviceBytes));
+        }
+        return budget;
+    }
+
+    /**
+     * share of the budgets held by an admitted request
+     */
+    public final class Permit {
+
+        private final AdmissionBudget device;
+
+        private final long size;
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(AdmissionBudget device, long size) {
+            this.device = device;
+            this.size = size;
+        }
+
+        /**
+         * give the share back, only the first call takes effect
+         */
+        public void release() {
+            if (!released.compareAndSet(false, true)) {
+                return;
+            }
+            global.release(size);
+            if (device != null) {
+                device.release(size);
+            }
+        }
+    }
+}
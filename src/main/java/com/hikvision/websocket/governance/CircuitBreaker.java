@@ -0,0 +1,155 @@
+package com.hikvision.websocket.governance;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Circuit breaker of one device.
+ * <p>
+ * CLOSED: requests pass, it opens after consecutive failures or too many timeouts in a time window.
+ * OPEN: requests are rejected immediately until the open duration elapses.
+ * HALF_OPEN: a single probe request passes, its result closes or reopens the breaker.
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 11:05
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final CircuitBreakerConfig config;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+    /**
+     * the half-open probe is in flight
+     */
+    private final AtomicBoolean probing = new AtomicBoolean();
+
+    private volatile long openedAt;
+
+    private final AtomicLong windowStart = new AtomicLong(System.currentTimeMillis());
+
+    private final AtomicInteger windowCalls = new AtomicInteger();
+
+    private final AtomicInteger windowTimeouts = new AtomicInteger();
+
+    private final LongAdder rejected = new LongAdder();
+
+    public CircuitBreaker(CircuitBreakerConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * Whether a request may pass, a permitted request must report its result by
+     * {@link #onSuccess()}, {@link #onFailure(boolean)} or {@link #release()}
+     *
+     * @return false if the request should be rejected
+     */
+    public boolean tryAcquire() {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return true;
+        }
+        if (current == State.OPEN) {
+            if (System.currentTimeMillis() - openedAt < config.getOpenDuration()) {
+                rejected.increment();
+                return false;
+            }
+            state.compareAndSet(State.OPEN, State.HALF_OPEN);
+        }
+        if (probing.compareAndSet(false, true)) {
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    /**
+     * whether the breaker rejects requests, without taking the half-open probe
+     */
+    public boolean isOpen() {
+        return state.get() == State.OPEN && System.currentTimeMillis() - openedAt < config.getOpenDuration();
+    }
+
+    public void onSuccess() {
+        consecutiveFailures.set(0);
+        countCall(false);
+        if (state.get() != State.CLOSED) {
+            state.set(State.CLOSED);
+            probing.set(false);
+        }
+    }
+
+    /**
+     * @param timeout whether the failure is a response timeout
+     */
+    public void onFailure(boolean timeout) {
+        if (state.get() == State.HALF_OPEN) {
+            open();
+            return;
+        }
+        boolean timeoutRateExceeded = countCall(timeout);
+        if (consecutiveFailures.incrementAndGet() >= config.getFailureThreshold() || timeoutRateExceeded) {
+            open();
+        }
+    }
+
+    /**
+     * the permitted request ended without telling anything about the device, e.g. the caller is interrupted
+     */
+    public void release() {
+        probing.set(false);
+    }
+
+    public State getState() {
+        if (state.get() == State.OPEN && !isOpen()) {
+            return State.HALF_OPEN;
+        }
+        return state.get();
+    }
+
+    public int getConsecutiveFailures() {
+        return consecutiveFailures.get();
+    }
+
+    /**
+     * requests rejected by this breaker
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    private void open() {
+        openedAt = System.currentTimeMillis();
+        state.set(State.OPEN);
+        probing.set(false);
+        consecutiveFailures.set(0);
+        windowCalls.set(0);
+        windowTimeouts.set(0);
+    }
+
+    /**
+     * count the call in the current time window
+     *
+     * @return true if the timeout rate of the window exceeds the threshold
+     */
+    private boolean countCall(boolean timeout) {
+        long now = System.currentTimeMillis();
+        long start = windowStart.get();
+        if (now - start >= config.getWindow() && windowStart.compareAndSet(start, now)) {
+            windowCalls.set(0);
+            windowTimeouts.set(0);
+        }
+        int calls = windowCalls.incrementAndGet();
+        int timeouts = timeout ? windowTimeouts.incrementAndGet() : windowTimeouts.get();
+        return calls >= config.getMinimumCalls() && timeouts >= calls * config.getTimeoutRateThreshold();
+    }
+}
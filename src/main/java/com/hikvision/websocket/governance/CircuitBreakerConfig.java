@@ -0,0 +1,66 @@
+package com.hikvision.websocket.governance;
+
+/**
+ * Circuit breaker thresholds, shared by the breakers of all devices
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 11:05
+ */
+public class CircuitBreakerConfig {
+
+    /**
+     * consecutive failures that open the breaker
+     */
+    private final int failureThreshold;
+
+    /**
+     * time(ms) the breaker stays open before a probe request is allowed
+     */
+    private final long openDuration;
+
+    /**
+     * time window(ms) of the timeout rate
+     */
+    private final long window;
+
+    /**
+     * calls required in the window before the timeout rate is evaluated
+     */
+    private final int minimumCalls;
+
+    /**
+     * ratio of timed out calls in the window that opens the breaker
+     */
+    private final double timeoutRateThreshold;
+
+    public CircuitBreakerConfig(int failureThreshold, long openDuration, long window, int minimumCalls, double timeoutRateThreshold) {
+        if (failureThreshold <= 0) {
+            throw new IllegalArgumentException("failureThreshold <= 0");
+        }
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+        this.window = window;
+        this.minimumCalls = minimumCalls;
+        this.timeoutRateThreshold = timeoutRateThreshold;
+    }
+
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    public long getOpenDuration() {
+        return openDuration;
+    }
+
+    public long getWindow() {
+        return window;
+    }
+
+    public int getMinimumCalls() {
+        return minimumCalls;
+    }
+
+    public double getTimeoutRateThreshold() {
+        return timeoutRateThreshold;
+    }
+}
@@ -0,0 +1,60 @@
+package com.hikvision.websocket.governance;
+
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Circuit breakers per device address
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 11:05
+ */
+public class CircuitBreakerRegistry {
+
+    private final ConcurrentMap<InetSocketAddress, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    private final CircuitBreakerConfig config;
+
+    public CircuitBreakerRegistry(CircuitBreakerConfig config) {
+        this.config = config;
+    }
+
+    public CircuitBreaker getOrAdd(InetSocketAddress address) {
+        CircuitBreaker breaker = breakers.get(address);
+        if (breaker == null) {
+            breaker = breakers.computeIfAbsent(address, k -> new CircuitBreaker(config));
+        }
+        return breaker;
+    }
+
+    public CircuitBreaker get(InetSocketAddress address) {
+        return breakers.get(address);
+    }
+
+    /**
+     * forget the breaker of a removed device
+     */
+    public void remove(InetSocketAddress address) {
+        breakers.remove(address);
+    }
+
+    /**
+     * breaker state of every device, for dashboards
+     *
+     * @return device address -> breaker state
+     */
+    public Map<InetSocketAddress, CircuitBreaker.State> getStates() {
+        Map<InetSocketAddress, CircuitBreaker.State> res = new HashMap<>();
+        for (Map.Entry<InetSocketAddress, CircuitBreaker> entry : breakers.entrySet()) {
+            res.put(entry.getKey(), entry.getValue().getState());
+        }
+        return res;
+    }
+
+    public Map<InetSocketAddress, CircuitBreaker> getBreakers() {
+        return breakers;
+    }
+}
@@ -0,0 +1,106 @@
+package com.hikvision.websocket.governance;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Exponentially weighted moving average and variance of observed latencies.
+ * <p>
+ * The latency is treated as normally distributed around the mean, so a percentile is estimated
+ * as {@code mean + z * stddev}, the same idea as the tcp retransmission timeout (rfc 6298).
+ * Updates are lock free, a sample allocates one immutable snapshot.
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 11:40
+ */
+public class LatencyEstimator {
+
+    private static final Snapshot EMPTY = new Snapshot(0D, 0D, 0L);
+
+    /**
+     * weight of a new sample
+     */
+    private final double alpha;
+
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(EMPTY);
+
+    public LatencyEstimator(double alpha) {
+        if (alpha <= 0D || alpha > 1D) {
+            throw new IllegalArgumentException("alpha should be in (0, 1]");
+        }
+        this.alpha = alpha;
+    }
+
+    /**
+     * @param latency observed latency in ms
+     */
+    public void record(long latency) {
+        Snapshot prev;
+        Snapshot next;
+        do {
+            prev = snapshot.get();
+            if (prev.samples == 0L) {
+                // first sample, assume a spread of half the latency like rfc 6298
+                next = new Snapshot(latency, (latency / 2D) * (latency / 2D), 1L);
+            } else {
+                double diff = latency - prev.mean;
+                double mean = prev.mean + alpha * diff;
+                double variance = (1D - alpha) * (prev.variance + alpha * diff * diff);
+                next = new Snapshot(mean, variance, prev.samples + 1L);
+            }
+        } while (!snapshot.compareAndSet(prev, next));
+    }
+
+    /**
+     * @param z z-score of the wanted percentile, see {@link #zScore(double)}
+     * @return estimated latency(ms) of the percentile, -1 without samples
+     */
+    public long estimate(double z) {
+        Snapshot current = snapshot.get();
+        if (current.samples == 0L) {
+            return -1L;
+        }
+        return (long) Math.ceil(current.mean + z * Math.sqrt(current.variance));
+    }
+
+    public double getMean() {
+        return snapshot.get().mean;
+    }
+
+    public double getStdDev() {
+        return Math.sqrt(snapshot.get().variance);
+    }
+
+    public long getSamples() {
+        return snapshot.get().samples;
+    }
+
+    /**
+     * z-score of a percentile of the standard normal distribution,
+     * rational approximation 26.2.23 of Abramowitz and Stegun, error below 4.5e-4
+     *
+     * @param percentile in [0.5, 1)
+     */
+    public static double zScore(double percentile) {
+        if (percentile < 0.5D || percentile >= 1D) {
+            throw new IllegalArgumentException("percentile should be in [0.5, 1)");
+        }
+        double t = Math.sqrt(-2D * Math.log(1D - percentile));
+        return t - (2.515517D + 0.802853D * t + 0.010328D * t * t)
+                / (1D + 1.432788D * t + 0.189269D * t * t + 0.001308D * t * t * t);
+    }
+
+    private static final class Snapshot {
+
+        private final double mean;
+
+        private final double variance;
+
+        private final long samples;
+
+        private Snapshot(double mean, double variance, long samples) {
+            this.mean = mean;
+            this.variance = variance;
+            this.samples = samples;
+        }
+    }
+}
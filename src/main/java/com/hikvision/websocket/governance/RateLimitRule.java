@@ -0,0 +1,95 @@
+package com.hikvision.websocket.governance;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Rate limit of a device class, optionally of a single dwCommand.
+ * Every matched device gets its own bucket, the counters are shared by the class.
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 12:10
+ */
+public class RateLimitRule {
+
+    /**
+     * device address pattern, see {@link com.hikvision.websocket.utils.NetUtils#matchIpRange(String, String, int)}
+     */
+    private final String devices;
+
+    /**
+     * limited dwCommand, null limits all commands of the device together
+     */
+    private final Integer command;
+
+    private final double permitsPerSecond;
+
+    private final int burst;
+
+    private final LongAdder permitted = new LongAdder();
+
+    private final LongAdder delayed = new LongAdder();
+
+    private final LongAdder rejected = new LongAdder();
+
+    public RateLimitRule(String devices, Integer command, double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0D || burst <= 0) {
+            throw new IllegalArgumentException("permitsPerSecond and burst should be positive, devices: " + devices);
+        }
+        this.devices = devices == null ? "*" : devices;
+        this.command = command;
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+    }
+
+    TokenBucket newBucket() {
+        return new TokenBucket(permitsPerSecond, burst);
+    }
+
+    void onPermitted(boolean delay) {
+        permitted.increment();
+        if (delay) {
+            delayed.increment();
+        }
+    }
+
+    void onRejected() {
+        rejected.increment();
+    }
+
+    public String getDevices() {
+        return devices;
+    }
+
+    public Integer getCommand() {
+        return command;
+    }
+
+    public double getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    /**
+     * requests passed, including the delayed ones
+     */
+    public long getPermitted() {
+        return permitted.sum();
+    }
+
+    public long getDelayed() {
+        return delayed.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "RateLimitRule{devices=" + devices + ", command=" + command + ", permitsPerSecond=" + permitsPerSecond
+                + ", burst=" + burst + "}";
+    }
+}
@@ -0,0 +1,178 @@
+package com.hikvision.websocket.governance;
+
+import com.hikvision.websocket.utils.NetUtils;
+
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket rate limiters per device and dwCommand.
+ * <p>
+ * The rules are matched once per device, the first rule without command limits all requests of the device
+ * and the first rule of each command limits that command. Devices matching no rule are not limited at all.
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 12:10
+ */
+public class RateLimiterRegistry {
+
+    public enum Policy {
+        /**
+         * reject the over-limit request
+         */
+        REJECT,
+        /**
+         * send the over-limit request once a permit is available, reject it if that takes longer than the max delay
+         */
+        DELAY
+    }
+
+    private final List<RateLimitRule> rules;
+
+    private final Policy policy;
+
+    /**
+     * max delay(ns) of a request, which also bounds the requests waiting for a permit to rate * max delay
+     */
+    private final long maxDelay;
+
+    private final ConcurrentMap<InetSocketAddress, DeviceLimiter> devices = new ConcurrentHashMap<>();
+
+    /**
+     * @param maxDelay max delay(ms) of a request under the delay policy
+     */
+    public RateLimiterRegistry(List<RateLimitRule> rules, Policy policy, long maxDelay) {
+        this.rules = Collections.unmodifiableList(new ArrayList<>(rules));
+        this.policy = policy;
+        this.maxDelay = policy == Policy.DELAY ? TimeUnit.MILLISECONDS.toNanos(maxDelay) : 0L;
+    }
+
+    /**
+     * Take a permit for a request. A command permit may be consumed even if the device limit rejects the request.
+     *
+     * @return delay(ns) before the request may be sent, -1 if the request is rejected
+     */
+    public long acquire(InetSocketAddress address, int command) {
+        DeviceLimiter limiter = getOrAdd(address);
+        if (limiter == DeviceLimiter.UNLIMITED) {
+            return 0L;
+        }
+        long delay = 0L;
+        Limit commandLimit = limiter.commands.get(command);
+        if (commandLimit != null) {
+            delay = commandLimit.reserve(maxDelay);
+            if (delay < 0L) {
+                return -1L;
+            }
+        }
+        if (limiter.device != null) {
+            long deviceDelay = limiter.device.reserve(maxDelay);
+            if (deviceDelay < 0L) {
+                return -1L;
+            }
+            delay = Math.max(delay, deviceDelay);
+        }
+        return delay;
+    }
+
+    /**
+     * forget the buckets of a removed device
+     */
+    public void remove(InetSocketAddress address) {
+        devices.remove(address);
+    }
+
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * rules with their throttling counters
+     */
+    public List<RateLimitRule> getRules() {
+        return rules;
+    }
+
+    private DeviceLimiter getOrAdd(InetSocketAddress address) {
+        DeviceLimiter limiter = devices.get(address);
+        if (limiter == null) {
+            limiter = devices.computeIfAbsent(address, this::resolve);
+        }
+        return limiter;
+    }
+
+    private DeviceLimiter resolve(InetSocketAddress address) {
+        Limit device = null;
+        Map<Integer, Limit> commands = new HashMap<>();
+        for (RateLimitRule rule : rules) {
+            if (!matches(rule, address)) {
+                continue;
+            }
+            if (rule.getCommand() == null) {
+                if (device == null) {
+                    device = new Limit(rule);
+                }
+            } else if (!commands.containsKey(rule.getCommand())) {
+                commands.put(rule.getCommand(), new Limit(rule));
+            }
+        }
+        if (device == null && commands.isEmpty()) {
+            return DeviceLimiter.UNLIMITED;
+        }
+        return new DeviceLimiter(device, commands);
+    }
+
+    private static boolean matches(RateLimitRule rule, InetSocketAddress address) {
+        String host = address.getAddress() != null ? address.getAddress().getHostAddress() : address.getHostString();
+        try {
+            return NetUtils.matchIpRange(rule.getDevices(), host, address.getPort());
+        } catch (UnknownHostException | IllegalArgumentException e) {
+            // e.g. an ipv4 pattern against an ipv6 device
+            return false;
+        }
+    }
+
+    private static final class Limit {
+
+        private final RateLimitRule rule;
+
+        private final TokenBucket bucket;
+
+        private Limit(RateLimitRule rule) {
+            this.rule = rule;
+            this.bucket = rule.newBucket();
+        }
+
+        private long reserve(long maxDelay) {
+            long delay = bucket.reserve(maxDelay);
+            if (delay < 0L) {
+                rule.onRejected();
+            } else {
+                rule.onPermitted(delay > 0L);
+            }
+            return delay;
+        }
+    }
+
+    private static final class DeviceLimiter {
+
+        private static final DeviceLimiter UNLIMITED = new DeviceLimiter(null, Collections.emptyMap());
+
+        private final Limit device;
+
+        private final Map<Integer, Limit> commands;
+
+        private DeviceLimiter(Limit device, Map<Integer, Limit> commands) {
+            this.device = device;
+            this.commands = commands;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.hikvision.websocket.governance;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caps retries at a ratio of the requests, so retries cannot multiply the load during an incident.
+ * Every request deposits the ratio of a token, every retry withdraws a whole token.
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 14:10
+ */
+public class RetryBudget {
+
+    /**
+     * tokens are counted in thousandths
+     */
+    private static final long TOKEN = 1000L;
+
+    private final long deposit;
+
+    private final long capacity;
+
+    private final AtomicLong balance;
+
+    private final LongAdder retries = new LongAdder();
+
+    private final LongAdder exhausted = new LongAdder();
+
+    /**
+     * @param ratio      retries per request, e.g. 0.1 allows retries of 10% of the traffic
+     * @param maxRetries retries that may be saved up, the budget starts full
+     */
+    public RetryBudget(double ratio, int maxRetries) {
+        if (ratio < 0D || maxRetries < 0) {
+            throw new IllegalArgumentException("ratio and maxRetries should not be negative");
+        }
+        this.deposit = (long) (ratio * TOKEN);
+        this.capacity = maxRetries * TOKEN;
+        this.balance = new AtomicLong(capacity);
+    }
+
+    public void onRequest() {
+        for (; ; ) {
+            long current = balance.get();
+            long next = Math.min(capacity, current + deposit);
+            if (next == current || balance.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return false if the budget is exhausted and the request should not be retried
+     */
+    public boolean tryRetry() {
+        for (; ; ) {
+            long current = balance.get();
+            if (current < TOKEN) {
+                exhausted.increment();
+                return false;
+            }
+            if (balance.compareAndSet(current, current - TOKEN)) {
+                retries.increment();
+                return true;
+            }
+        }
+    }
+
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    /**
+     * retries refused because the budget is exhausted
+     */
+    public long getExhausted() {
+        return exhausted.sum();
+    }
+
+    public double getBalance() {
+        return (double) balance.get() / TOKEN;
+    }
+}
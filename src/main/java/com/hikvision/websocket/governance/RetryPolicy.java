@@ -0,0 +1,72 @@
+package com.hikvision.websocket.governance;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Retry rules per dwCommand sharing one retry budget
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 14:10
+ */
+public class RetryPolicy {
+
+    private final Map<Integer, RetryRule> rules = new HashMap<>();
+
+    /**
+     * rule of the commands without their own one, null means they are not retried
+     */
+    private final RetryRule defaultRule;
+
+    private final RetryBudget budget;
+
+    public RetryPolicy(List<RetryRule> rules, RetryBudget budget) {
+        RetryRule fallback = null;
+        for (RetryRule rule : rules) {
+            if (rule.getCommand() == null) {
+                fallback = rule;
+            } else {
+                this.rules.put(rule.getCommand(), rule);
+            }
+        }
+        this.defaultRule = fallback;
+        this.budget = budget;
+    }
+
+    /**
+     * @return rule of the command, null if it is not retried
+     */
+    public RetryRule ruleOf(int command) {
+        RetryRule rule = rules.get(command);
+        return rule != null ? rule : defaultRule;
+    }
+
+    /**
+     * @param attempt the failed attempt, starting from 1
+     * @return whether another attempt is allowed, it is charged to the budget
+     */
+    public boolean tryRetry(RetryRule rule, int attempt) {
+        return attempt < rule.getMaxAttempts() && budget.tryRetry();
+    }
+
+    /**
+     * exponential backoff with jitter, between half and the whole backoff
+     *
+     * @param attempt the failed attempt, starting from 1
+     * @return backoff(ms) before the next attempt
+     */
+    public long backoff(RetryRule rule, int attempt) {
+        double backoff = rule.getBackoff() * Math.pow(rule.getMultiplier(), attempt - 1);
+        long max = (long) Math.min(rule.getMaxBackoff(), backoff);
+        if (max <= 1L) {
+            return max;
+        }
+        return ThreadLocalRandom.current().nextLong(max / 2, max + 1);
+    }
+
+    public RetryBudget getBudget() {
+        return budget;
+    }
+}
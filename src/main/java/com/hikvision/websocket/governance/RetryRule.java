@@ -0,0 +1,71 @@
+package com.hikvision.websocket.governance;
+
+/**
+ * Retry settings of a dwCommand
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 14:10
+ */
+public class RetryRule {
+
+    /**
+     * the command, null for the commands without their own rule
+     */
+    private final Integer command;
+
+    /**
+     * an idempotent command is retried on timeout and channel inactive, the others only when the
+     * request never reached the connection (e.g. connect failure)
+     */
+    private final boolean idempotent;
+
+    /**
+     * attempts including the first one
+     */
+    private final int maxAttempts;
+
+    /**
+     * backoff(ms) before the first retry
+     */
+    private final long backoff;
+
+    private final double multiplier;
+
+    private final long maxBackoff;
+
+    public RetryRule(Integer command, boolean idempotent, int maxAttempts, long backoff, double multiplier, long maxBackoff) {
+        if (maxAttempts <= 0) {
+            throw new IllegalArgumentException("maxAttempts <= 0, command: " + command);
+        }
+        this.command = command;
+        this.idempotent = idempotent;
+        this.maxAttempts = maxAttempts;
+        this.backoff = backoff;
+        this.multiplier = multiplier < 1D ? 1D : multiplier;
+        this.maxBackoff = Math.max(backoff, maxBackoff);
+    }
+
+    public Integer getCommand() {
+        return command;
+    }
+
+    public boolean isIdempotent() {
+        return idempotent;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public long getBackoff() {
+        return backoff;
+    }
+
+    public double getMultiplier() {
+        return multiplier;
+    }
+
+    public long getMaxBackoff() {
+        return maxBackoff;
+    }
+}
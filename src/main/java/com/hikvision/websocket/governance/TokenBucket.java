@@ -0,0 +1,73 @@
+package com.hikvision.websocket.governance;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock free token bucket.
+ * <p>
+ * Implemented as the generic cell rate algorithm: instead of a token count the bucket keeps the
+ * theoretical arrival time of the next permit, so refilling needs no timer and acquiring is a
+ * single CAS on one long.
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 12:10
+ */
+public class TokenBucket {
+
+    /**
+     * nanoseconds to refill one permit
+     */
+    private final long interval;
+
+    /**
+     * how far the arrival time may run ahead of now, burst - 1 permits
+     */
+    private final long tolerance;
+
+    /**
+     * theoretical arrival time(ns) of the next permit
+     */
+    private final AtomicLong arrival;
+
+    /**
+     * @param permitsPerSecond refill rate
+     * @param burst            bucket capacity
+     */
+    public TokenBucket(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0D || burst <= 0) {
+            throw new IllegalArgumentException("permitsPerSecond and burst should be positive");
+        }
+        this.interval = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+        this.tolerance = interval * (burst - 1);
+        this.arrival = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * take a permit if one is available now
+     */
+    public boolean tryAcquire() {
+        return reserve(0L) == 0L;
+    }
+
+    /**
+     * Reserve a permit which becomes available within the max delay
+     *
+     * @param maxDelay max delay(ns) the caller accepts
+     * @return delay(ns) until the permit is available, -1 if it is not available within the max delay
+     */
+    public long reserve(long maxDelay) {
+        for (; ; ) {
+            long now = System.nanoTime();
+            long prev = arrival.get();
+            long next = Math.max(prev, now);
+            long delay = next - tolerance - now;
+            if (delay > maxDelay) {
+                return -1L;
+            }
+            if (arrival.compareAndSet(prev, next + interval)) {
+                return Math.max(0L, delay);
+            }
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.hikvision.websocket.metrics;
+
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Request, connect and traffic statistics of the sdk, over all clients and inbound devices.
+ * Nothing is recorded until enabled, e.g. by {@link WebsocketSdkMeterBinder}.
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 20:10
+ */
+public final class ClientMetrics {
+
+    private static volatile boolean enabled;
+
+    /**
+     * whether the latencies are also recorded per device, one histogram per device
+     */
+    private static volatile boolean perDevice;
+
+    private static final ConcurrentMap<Integer, LatencyHistogram> COMMAND_LATENCIES = new ConcurrentHashMap<>();
+
+    private static final ConcurrentMap<InetSocketAddress, LatencyHistogram> DEVICE_LATENCIES = new ConcurrentHashMap<>();
+
+    /**
+     * completed requests by response status
+     */
+    private static final LongAdder[] STATUS_COUNTS = new LongAdder[256];
+
+    private static final LatencyHistogram CONNECT_DURATION = new LatencyHistogram();
+
+    private static final LongAdder CONNECT_FAILURES = new LongAdder();
+
+    private static final LongAdder BYTES_IN = new LongAdder();
+
+    private static final LongAdder BYTES_OUT = new LongAdder();
+
+    private static final List<Listener> LISTENERS = new CopyOnWriteArrayList<>();
+
+    static {
+        for (int i = 0; i < STATUS_COUNTS.length; i++) {
+            STATUS_COUNTS[i] = new LongAdder();
+        }
+    }
+
+    private ClientMetrics() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean enabled) {
+        ClientMetrics.enabled = enabled;
+    }
+
+    public static boolean isPerDevice() {
+        return perDevice;
+    }
+
+    public static void setPerDevice(boolean perDevice) {
+        ClientMetrics.perDevice = perDevice;
+    }
+
+    /**
+     * a request completed, answered or not
+     *
+     * @param device address of the device, null if unknown
+     * @param nanos  time(ns) since the request was created
+     */
+    public static void requestCompleted(int command, InetSocketAddress device, byte status, long nanos) {
+        if (!enabled) {
+            return;
+        }
+        STATUS_COUNTS[status & 0xFF].increment();
+        LatencyHistogram histogram = COMMAND_LATENCIES.get(command);
+        if (histogram == null) {
+            histogram = addHistogram(command);
+        }
+        histogram.record(nanos);
+        if (perDevice && device != null) {
+            histogram = DEVICE_LATENCIES.get(device);
+            if (histogram == null) {
+                histogram = addHistogram(device);
+            }
+            histogram.record(nanos);
+        }
+    }
+
+    /**
+     * @param nanos time(ns) the connect took
+     */
+    public static void connected(long nanos) {
+        if (enabled) {
+            CONNECT_DURATION.record(nanos);
+        }
+    }
+
+    public static void connectFailed() {
+        if (enabled) {
+            CONNECT_FAILURES.increment();
+        }
+    }
+
+    public static void bytesIn(int bytes) {
+        if (enabled) {
+            BYTES_IN.add(bytes);
+        }
+    }
+
+    public static void bytesOut(int bytes) {
+        if (enabled) {
+            BYTES_OUT.add(bytes);
+        }
+    }
+
+    /**
+     * forget the latencies of a device which is gone
+     */
+    public static void remove(InetSocketAddress device) {
+        if (device != null && DEVICE_LATENCIES.remove(device) != null) {
+            for (Listener listener : LISTENERS) {
+                listener.onDeviceRemoved(device);
+            }
+        }
+    }
+
+    public static Map<Integer, LatencyHistogram> getCommandLatencies() {
+        return Collections.unmodifiableMap(COMMAND_LATENCIES);
+    }
+
+    public static Map<InetSocketAddress, LatencyHistogram> getDeviceLatencies() {
+        return Collections.unmodifiableMap(DEVICE_LATENCIES);
+    }
+
+    public static long getStatusCount(byte status) {
+        return STATUS_COUNTS[status & 0xFF].sum();
+    }
+
+    public static LatencyHistogram getConnectDuration() {
+        return CONNECT_DURATION;
+    }
+
+    public static long getConnectFailures() {
+        return CONNECT_FAILURES.sum();
+    }
+
+    public static long getBytesIn() {
+        return BYTES_IN.sum();
+    }
+
+    public static long getBytesOut() {
+        return BYTES_OUT.sum();
+    }
+
+    /**
+     * listen to the histograms added and removed after the listener is added
+     */
+    public static void addListener(Listener listener) {
+        LISTENERS.add(listener);
+    }
+
+    public static void removeListener(Listener listener) {
+        LISTENERS.remove(listener);
+    }
+
+    private static LatencyHistogram addHistogram(int command) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        LatencyHistogram old = COMMAND_LATENCIES.putIfAbsent(command, histogram);
+        if (old != null) {
+            return old;
+        }
+        for (Listener listener : LISTENERS) {
+            listener.onCommand(command, histogram);
+        }
+        return histogram;
+    }
+
+    private static LatencyHistogram addHistogram(InetSocketAddress device) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        LatencyHistogram old = DEVICE_LATENCIES.putIfAbsent(device, histogram);
+        if (old != null) {
+            return old;
+        }
+        for (Listener listener : LISTENERS) {
+            listener.onDevice(device, histogram);
+        }
+        return histogram;
+    }
+
+    /**
+     * notified of new histograms, so a meter registry can expose the commands and devices seen later
+     */
+    public interface Listener {
+
+        void onCommand(int command, LatencyHistogram histogram);
+
+        void onDevice(InetSocketAddress device, LatencyHistogram histogram);
+
+        void onDeviceRemoved(InetSocketAddress device);
+    }
+}
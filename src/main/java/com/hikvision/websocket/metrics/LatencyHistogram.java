@@ -0,0 +1,117 @@
+package com.hikvision.websocket.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram with fixed buckets, recording is a few striped adds so concurrent io threads
+ * do not contend on it
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 20:10
+ */
+public final class LatencyHistogram {
+
+    /**
+     * upper bounds(ms) of the buckets, a last bucket takes the rest
+     */
+    private static final long[] BOUNDS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 30000};
+
+    /**
+     * the bounds in ns, a latency is compared untruncated so 1.9ms does not fall into the 1ms bucket
+     */
+    private static final long[] BOUNDS_NANOS = new long[BOUNDS.length];
+
+    /**
+     * the max covers the latencies of the last one to two windows, like the decaying max of micrometer
+     */
+    private static final long MAX_WINDOW_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    static {
+        for (int i = 0; i < BOUNDS.length; i++) {
+            BOUNDS_NANOS[i] = TimeUnit.MILLISECONDS.toNanos(BOUNDS[i]);
+        }
+    }
+
+    private final LongAdder[] buckets = new LongAdder[BOUNDS.length + 1];
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder totalNanos = new LongAdder();
+
+    private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0L);
+
+    /**
+     * max of the previous window
+     */
+    private volatile long previousMaxNanos;
+
+    private final AtomicLong maxRotatedAt = new AtomicLong(System.nanoTime());
+
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * @param nanos latency(ns)
+     */
+    public void record(long nanos) {
+        long latency = Math.max(0L, nanos);
+        buckets[bucketOf(latency)].increment();
+        count.increment();
+        totalNanos.add(latency);
+        maxNanos.accumulate(latency);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public double getTotalTime(TimeUnit unit) {
+        return (double) totalNanos.sum() / unit.toNanos(1);
+    }
+
+    /**
+     * @return max latency of the last one to two minutes, 0 if none was recorded meanwhile
+     */
+    public double getMax(TimeUnit unit) {
+        long now = System.nanoTime();
+        long rotatedAt = maxRotatedAt.get();
+        if (now - rotatedAt >= MAX_WINDOW_NANOS && maxRotatedAt.compareAndSet(rotatedAt, now)) {
+            previousMaxNanos = maxNanos.getThenReset();
+        }
+        return (double) Math.max(previousMaxNanos, maxNanos.get()) / unit.toNanos(1);
+    }
+
+    /**
+     * @return upper bounds(ms) of the buckets but the last one, which is unbounded
+     */
+    public static long[] getBounds() {
+        return BOUNDS.clone();
+    }
+
+    /**
+     * @param bucket index of the bucket, {@code getBounds().length} for the unbounded one
+     * @return count of the latencies up to the bound of the bucket, like a prometheus {@code le} bucket
+     */
+    public long getCumulativeCount(int bucket) {
+        long res = 0L;
+        for (int i = 0; i <= bucket && i < buckets.length; i++) {
+            res += buckets[i].sum();
+        }
+        return res;
+    }
+
+    private static int bucketOf(long nanos) {
+        for (int i = 0; i < BOUNDS_NANOS.length; i++) {
+            if (nanos <= BOUNDS_NANOS[i]) {
+                return i;
+            }
+        }
+        return BOUNDS.length;
+    }
+}
@@ -0,0 +1,135 @@
+package com.hikvision.websocket.metrics;
+
+import com.hikvision.websocket.netty.exchange.Request;
+import com.hikvision.websocket.netty.exchange.RequestTrace;
+import com.hikvision.websocket.netty.exchange.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Samples requests and breaks their latency down into phases: queue (enqueue to encode), flush (encode to
+ * written), network (written to the first byte of the response), decode (first byte to decoded) and
+ * complete (decoded to the future completed).
+ * <p>
+ * A sampled request carries a {@link RequestTrace} in its trace slot, an unsampled one costs a single
+ * volatile read and allocates nothing. Finished traces go to the phase histograms and the listeners,
+ * e.g. to be exported as spans.
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 20:50
+ */
+public final class RequestTracer {
+
+    private static final Logger logger = LoggerFactory.getLogger(RequestTracer.class);
+
+    /**
+     * share of the requests traced, 0 means tracing is disabled
+     */
+    private static volatile double sampleRate;
+
+    private static final Map<Phase, LatencyHistogram> PHASES = new EnumMap<>(Phase.class);
+
+    private static final List<Listener> LISTENERS = new CopyOnWriteArrayList<>();
+
+    static {
+        for (Phase phase : Phase.values()) {
+            PHASES.put(phase, new LatencyHistogram());
+        }
+    }
+
+    private RequestTracer() {
+    }
+
+    public static boolean isEnabled() {
+        return sampleRate > 0D;
+    }
+
+    public static double getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * @param sampleRate share of the requests traced from 0 (disabled) to 1 (all)
+     */
+    public static void setSampleRate(double sampleRate) {
+        RequestTracer.sampleRate = Math.max(0D, Math.min(1D, sampleRate));
+    }
+
+    /**
+     * the request is queued for sending, start its trace if it is sampled
+     */
+    public static void start(Request request) {
+        double rate = sampleRate;
+        if (rate <= 0D) {
+            request.setTrace(null);
+            return;
+        }
+        boolean sampled = rate >= 1D || ThreadLocalRandom.current().nextDouble() < rate;
+        // a retried request starts a new trace per attempt
+        request.setTrace(sampled ? new RequestTrace(System.nanoTime()) : null);
+    }
+
+    /**
+     * the future of the request is completed with the response, finish its trace
+     */
+    public static void complete(Request request, Response response) {
+        RequestTrace trace = request.getTrace();
+        if (trace == null) {
+            return;
+        }
+        trace.setFirstByte(response.getFirstByteTime());
+        trace.setDecoded(response.getDecodeTime());
+        trace.setCompleted(System.nanoTime());
+        record(Phase.QUEUE, RequestTrace.between(trace.getEnqueued(), trace.getEncoded()));
+        record(Phase.FLUSH, RequestTrace.between(trace.getEncoded(), trace.getFlushed()));
+        record(Phase.NETWORK, RequestTrace.between(trace.getFlushed(), trace.getFirstByte()));
+        record(Phase.DECODE, RequestTrace.between(trace.getFirstByte(), trace.getDecoded()));
+        record(Phase.COMPLETE, RequestTrace.between(trace.getDecoded(), trace.getCompleted()));
+        record(Phase.TOTAL, RequestTrace.between(trace.getEnqueued(), trace.getCompleted()));
+        for (Listener listener : LISTENERS) {
+            try {
+                listener.onTrace(request, response, trace);
+            } catch (Throwable t) {
+                logger.warn("Failed to notify trace listener, cause: " + t.getMessage(), t);
+            }
+        }
+    }
+
+    public static Map<Phase, LatencyHistogram> getPhases() {
+        return Collections.unmodifiableMap(PHASES);
+    }
+
+    public static void addListener(Listener listener) {
+        LISTENERS.add(listener);
+    }
+
+    public static void removeListener(Listener listener) {
+        LISTENERS.remove(listener);
+    }
+
+    private static void record(Phase phase, long nanos) {
+        if (nanos >= 0L) {
+            PHASES.get(phase).record(nanos);
+        }
+    }
+
+    public enum Phase {
+
+        QUEUE, FLUSH, NETWORK, DECODE, COMPLETE, TOTAL
+    }
+
+    /**
+     * receives the finished traces, invoked on the completing thread and must not block
+     */
+    public interface Listener {
+
+        void onTrace(Request request, Response response, RequestTrace trace);
+    }
+}
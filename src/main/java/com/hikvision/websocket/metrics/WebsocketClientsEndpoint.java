@@ -0,0 +1,295 @@
+package com.hikvision.websocket.metrics;
+
+import com.hikvision.websocket.netty.NettyClient;
+import com.hikvision.websocket.netty.exchange.ResultCollector;
+import io.netty.channel.EventLoop;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.EventExecutorGroup;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Actuator endpoint listing the clients of the devices: connection state, channel age, pending requests,
+ * read and write times, outbound buffer and event loop. Pages are ordered by device address,
+ * {@code top} lists the clients with the highest smoothed latency instead.
+ * <p>
+ * The client table is iterated without locking and only volatile fields of the clients are read, so a listing
+ * never waits for the io threads. Only the references of the matching clients are collected, the descriptors
+ * are built for the returned page.
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 21:40
+ */
+@Endpoint(id = "websocketclients")
+public class WebsocketClientsEndpoint {
+
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    private static final Comparator<NettyClient> BY_ADDRESS = Comparator
+            .comparing((NettyClient c) -> c.getUrl().getHost())
+            .thenComparingInt(c -> c.getUrl().getPort());
+
+    /**
+     * @param page          page index from 0
+     * @param size          page size, at most {@value #MAX_PAGE_SIZE}
+     * @param state         connected, disconnected, closing or closed
+     * @param host          prefix of the device host, e.g. a subnet
+     * @param minPending    least count of pending requests
+     * @param minPendingAge least age(ms) of the oldest pending request
+     * @param top           list this many clients with the highest latency instead of a page
+     */
+    @ReadOperation
+    public ClientsDescriptor clients(@Nullable Integer page, @Nullable Integer size, @Nullable String state,
+                                     @Nullable String host, @Nullable Integer minPending, @Nullable Long minPendingAge,
+                                     @Nullable Integer top) {
+        State expected = state == null || state.isEmpty() ? null : parseState(state);
+        int least = minPending == null ? 0 : minPending;
+        long leastAge = minPendingAge == null ? -1L : minPendingAge;
+        List<NettyClient> matched = new ArrayList<>();
+        for (NettyClient client : NettyClient.getClients()) {
+            if ((expected == null || stateOf(client) == expected)
+                    && (host == null || client.getUrl().getHost().startsWith(host))
+                    && client.getResultCollector().getPendingCount() >= least
+                    && (leastAge < 0L || client.getResultCollector().getOldestPendingAge() >= leastAge)) {
+                matched.add(client);
+            }
+        }
+        if (top != null && top > 0) {
+            return new ClientsDescriptor(matched.size(), 0, describe(slowest(matched, Math.min(top, MAX_PAGE_SIZE))));
+        }
+        int pageSize = size == null || size <= 0 ? DEFAULT_PAGE_SIZE : Math.min(size, MAX_PAGE_SIZE);
+        int pageIndex = page == null ? 0 : Math.max(page, 0);
+        matched.sort(BY_ADDRESS);
+        int from = (int) Math.min((long) pageIndex * pageSize, matched.size());
+        int to = Math.min(from + pageSize, matched.size());
+        return new ClientsDescriptor(matched.size(), pageIndex, describe(matched.subList(from, to)));
+    }
+
+    /**
+     * the n clients with the highest latency, by a bounded heap over a snapshot of the latencies
+     */
+    private static List<NettyClient> slowest(List<NettyClient> clients, int n) {
+        PriorityQueue<Ranked> heap = new PriorityQueue<>(n + 1, Comparator.comparingLong((Ranked r) -> r.latency));
+        for (NettyClient client : clients) {
+            long latency = client.getResultCollector().getSmoothedLatency();
+            if (heap.size() < n) {
+                heap.offer(new Ranked(client, latency));
+            } else if (latency > heap.peek().latency) {
+                heap.poll();
+                heap.offer(new Ranked(client, latency));
+            }
+        }
+        List<NettyClient> res = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            res.add(heap.poll().client);
+        }
+        // the heap yields the lowest first
+        Collections.reverse(res);
+        return res;
+    }
+
+    private static List<ClientDescriptor> describe(List<NettyClient> clients) {
+        long now = System.currentTimeMillis();
+        // event loop -> name, resolved once per group
+        Map<EventExecutor, String> loops = new IdentityHashMap<>();
+        List<ClientDescriptor> res = new ArrayList<>(clients.size());
+        for (NettyClient client : clients) {
+            res.add(new ClientDescriptor(client, now, loopName(loops, client)));
+        }
+        return res;
+    }
+
+    private static String loopName(Map<EventExecutor, String> loops, NettyClient client) {
+        EventLoop loop = client.getEventLoop();
+        if (loop == null) {
+            return null;
+        }
+        String name = loops.get(loop);
+        if (name == null) {
+            String group = client.getBulkheadName() == null ? "shared" : client.getBulkheadName();
+            EventExecutorGroup parent = loop.parent();
+            if (parent != null) {
+                int i = 0;
+                for (EventExecutor executor : parent) {
+                    loops.put(executor, group + "-" + i++);
+                }
+            }
+            name = loops.get(loop);
+            if (name == null) {
+                name = group;
+                loops.put(loop, name);
+            }
+        }
+        return name;
+    }
+
+    /**
+     * @throws InvalidEndpointRequestException on an unknown state, answered with 400
+     */
+    private static State parseState(String state) {
+        try {
+            return State.valueOf(state.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidEndpointRequestException("Unknown state " + state + ", expected one of "
+                    + Arrays.toString(State.values()), "Unknown state " + state);
+        }
+    }
+
+    private static State stateOf(NettyClient client) {
+        if (client.isClosed()) {
+            return State.CLOSED;
+        }
+        if (client.isClosing()) {
+            return State.CLOSING;
+        }
+        return client.isChannelActive() ? State.CONNECTED : State.DISCONNECTED;
+    }
+
+    public enum State {
+
+        CONNECTED, DISCONNECTED, CLOSING, CLOSED
+    }
+
+    private static final class Ranked {
+
+        private final NettyClient client;
+
+        private final long latency;
+
+        private Ranked(NettyClient client, long latency) {
+            this.client = client;
+            this.latency = latency;
+        }
+    }
+
+    public static final class ClientsDescriptor {
+
+        /**
+         * count of the clients matching the filters
+         */
+        private final int total;
+
+        private final int page;
+
+        private final List<ClientDescriptor> clients;
+
+        private ClientsDescriptor(int total, int page, List<ClientDescriptor> clients) {
+            this.total = total;
+            this.page = page;
+            this.clients = clients;
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        public int getPage() {
+            return page;
+        }
+
+        public List<ClientDescriptor> getClients() {
+            return clients;
+        }
+    }
+
+    /**
+     * times are epoch ms and ages are ms, null or -1 if unknown
+     */
+    public static final class ClientDescriptor {
+
+        private final String device;
+
+        private final State state;
+
+        private final long channelAge;
+
+        private final int pending;
+
+        private final long oldestPendingAge;
+
+        private final double latency;
+
+        private final Long lastRead;
+
+        private final Long lastWrite;
+
+        private final long outboundBytes;
+
+        private final String eventLoop;
+
+        private ClientDescriptor(NettyClient client, long now, String eventLoop) {
+            ResultCollector collector = client.getResultCollector();
+            long connectedAt = client.getConnectedAt();
+            long lastReadTime = client.getLastReadTime();
+            long lastWriteTime = client.getLastWriteTime();
+            this.device = client.getUrl().getHost() + ":" + client.getUrl().getPort();
+            this.state = stateOf(client);
+            this.channelAge = connectedAt == 0L ? -1L : now - connectedAt;
+            this.pending = collector.getPendingCount();
+            this.oldestPendingAge = collector.getOldestPendingAge();
+            this.latency = collector.getSmoothedLatency() / (double) TimeUnit.MILLISECONDS.toNanos(1L);
+            this.lastRead = lastReadTime == 0L ? null : lastReadTime;
+            this.lastWrite = lastWriteTime == 0L ? null : lastWriteTime;
+            this.outboundBytes = client.getPendingOutboundBytes();
+            this.eventLoop = eventLoop;
+        }
+
+        public String getDevice() {
+            return device;
+        }
+
+        public State getState() {
+            return state;
+        }
+
+        public long getChannelAge() {
+            return channelAge;
+        }
+
+        public int getPending() {
+            return pending;
+        }
+
+        public long getOldestPendingAge() {
+            return oldestPendingAge;
+        }
+
+        /**
+         * @return smoothed latency(ms) of the requests
+         */
+        public double getLatency() {
+            return latency;
+        }
+
+        public Long getLastRead() {
+            return lastRead;
+        }
+
+        public Long getLastWrite() {
+            return lastWrite;
+        }
+
+        public long getOutboundBytes() {
+            return outboundBytes;
+        }
+
+        public String getEventLoop() {
+            return eventLoop;
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.hikvision.websocket.metrics;
+
+import com.hikvision.websocket.netty.DeviceSession;
+import com.hikvision.websocket.netty.EventLoopWatchdog;
+import com.hikvision.websocket.netty.NettyChannel;
+import com.hikvision.websocket.netty.NettyClient;
+import com.hikvision.websocket.netty.NettyServer;
+import com.hikvision.websocket.netty.exchange.Response;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.netty.buffer.PoolArenaMetric;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocatorMetric;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exposes the {@link ClientMetrics}, the connection tables and the pooled allocator to Micrometer.
+ * Binding enables the recording of {@link ClientMetrics}.
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 20:10
+ */
+public class WebsocketSdkMeterBinder implements MeterBinder {
+
+    private static final byte[] STATUSES = {Response.OK, Response.CLIENT_TIMEOUT, Response.SERVER_TIMEOUT,
+            Response.CHANNEL_INACTIVE, Response.BAD_REQUEST, Response.BAD_RESPONSE, Response.SERVICE_NOT_FOUND,
+            Response.SERVICE_ERROR, Response.SERVER_ERROR, Response.CLIENT_ERROR};
+
+    private static final String[] STATUS_NAMES = {"ok", "client_timeout", "server_timeout", "channel_inactive",
+            "bad_request", "bad_response", "service_not_found", "service_error", "server_error", "client_error"};
+
+    private final boolean perDevice;
+
+    public WebsocketSdkMeterBinder(boolean perDevice) {
+        this.perDevice = perDevice;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        ClientMetrics.setPerDevice(perDevice);
+        ClientMetrics.setEnabled(true);
+
+        for (int i = 0; i < STATUSES.length; i++) {
+            byte status = STATUSES[i];
+            FunctionCounter.builder("websocket.responses", this, b -> ClientMetrics.getStatusCount(status))
+                    .tag("status", STATUS_NAMES[i])
+                    .description("completed requests by response status")
+                    .register(registry);
+        }
+        Gauge.builder("websocket.requests.pending", this, b -> pendingRequests())
+                .description("requests waiting for their response")
+                .register(registry);
+        Gauge.builder("websocket.clients", this, b -> NettyClient.getClientCount())
+                .description("clients connecting to devices")
+                .register(registry);
+        Gauge.builder("websocket.channels", this, b -> NettyChannel.getChannelCount())
+                .description("live channels, outbound and inbound")
+                .register(registry);
+        Gauge.builder("websocket.sessions", this, b -> NettyServer.getSessions().size())
+                .description("identified devices connected to the server")
+                .register(registry);
+
+        bindHistogram(registry, "websocket.connect.duration", Tags.empty(), ClientMetrics.getConnectDuration());
+        FunctionCounter.builder("websocket.connect.failures", this, b -> ClientMetrics.getConnectFailures())
+                .description("connects refused or timed out")
+                .register(registry);
+
+        FunctionCounter.builder("websocket.bytes", this, b -> ClientMetrics.getBytesIn())
+                .tag("direction", "in")
+                .baseUnit(BaseUnits.BYTES)
+                .register(registry);
+        FunctionCounter.builder("websocket.bytes", this, b -> ClientMetrics.getBytesOut())
+                .tag("direction", "out")
+                .baseUnit(BaseUnits.BYTES)
+                .register(registry);
+
+        bindAllocator(registry, PooledByteBufAllocator.DEFAULT.metric());
+
+        // latency breakdown of the sampled requests
+        for (Map.Entry<RequestTracer.Phase, LatencyHistogram> entry : RequestTracer.getPhases().entrySet()) {
+            bindHistogram(registry, "websocket.request.phase",
+                    Tags.of("phase", entry.getKey().name().toLowerCase(Locale.ROOT)), entry.getValue());
+        }
+
+        bindWatchdog(registry);
+
+        RegistryListener listener = new RegistryListener(registry);
+        ClientMetrics.addListener(listener);
+        // histograms added before the listener, a histogram added meanwhile is registered twice which is a no-op
+        for (Map.Entry<Integer, LatencyHistogram> entry : ClientMetrics.getCommandLatencies().entrySet()) {
+            listener.onCommand(entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<InetSocketAddress, LatencyHistogram> entry : ClientMetrics.getDeviceLatencies().entrySet()) {
+            listener.onDevice(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private void bindWatchdog(MeterRegistry registry) {
+        FunctionCounter.builder("websocket.eventloop.stalls", this, b -> EventLoopWatchdog.getStallCount())
+                .description("event loops blocked past the watchdog threshold")
+                .register(registry);
+        LoopListener listener = new LoopListener(registry);
+        EventLoopWatchdog.addListener(listener);
+        for (Map.Entry<String, LatencyHistogram> entry : EventLoopWatchdog.getLags().entrySet()) {
+            listener.onLoop(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private static int pendingRequests() {
+        int res = NettyClient.getPendingRequests();
+        for (DeviceSession session : NettyServer.getSessions()) {
+            res += session.getResultCollector().getPendingCount();
+        }
+        return res;
+    }
+
+    /**
+     * register the histogram as a function timer and cumulative buckets tagged by their bound, like a prometheus histogram
+     *
+     * @return the registered meters
+     */
+    private static List<Meter> bindHistogram(MeterRegistry registry, String name, Tags tags, LatencyHistogram histogram) {
+        List<Meter> meters = new ArrayList<>();
+        meters.add(FunctionTimer.builder(name, histogram, LatencyHistogram::getCount,
+                h -> h.getTotalTime(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS)
+                .tags(tags)
+                .register(registry));
+        meters.add(TimeGauge.builder(name + ".max", histogram, TimeUnit.MILLISECONDS, h -> h.getMax(TimeUnit.MILLISECONDS))
+                .tags(tags)
+                .register(registry));
+        long[] bounds = LatencyHistogram.getBounds();
+        for (int i = 0; i <= bounds.length; i++) {
+            int bucket = i;
+            String le = i < bounds.length ? String.valueOf(bounds[i] / 1000D) : "+Inf";
+            meters.add(FunctionCounter.builder(name + ".buckets", histogram, h -> h.getCumulativeCount(bucket))
+                    .tags(tags.and("le", le))
+                    .description("latencies up to le seconds")
+                    .register(registry));
+        }
+        return meters;
+    }
+
+    private static void bindAllocator(MeterRegistry registry, PooledByteBufAllocatorMetric metric) {
+        Gauge.builder("websocket.allocator.used", metric, PooledByteBufAllocatorMetric::usedDirectMemory)
+                .tag("type", "direct")
+                .baseUnit(BaseUnits.BYTES)
+                .register(registry);
+        Gauge.builder("websocket.allocator.used", metric, PooledByteBufAllocatorMetric::usedHeapMemory)
+                .tag("type", "heap")
+                .baseUnit(BaseUnits.BYTES)
+                .register(registry);
+        Gauge.builder("websocket.allocator.thread.caches", metric, PooledByteBufAllocatorMetric::numThreadLocalCaches)
+                .register(registry);
+        bindArenas(registry, "direct", metric.directArenas());
+        bindArenas(registry, "heap", metric.heapArenas());
+    }
+
+    private static void bindArenas(MeterRegistry registry, String type, List<PoolArenaMetric> arenas) {
+        for (int i = 0; i < arenas.size(); i++) {
+            Tags tags = Tags.of(Tag.of("type", type), Tag.of("arena", String.valueOf(i)));
+            PoolArenaMetric arena = arenas.get(i);
+            Gauge.builder("websocket.allocator.arena.active", arena, PoolArenaMetric::numActiveBytes)
+                    .tags(tags)
+                    .baseUnit(BaseUnits.BYTES)
+                    .register(registry);
+            Gauge.builder("websocket.allocator.arena.allocations", arena, PoolArenaMetric::numActiveAllocations)
+                    .tags(tags)
+                    .register(registry);
+        }
+    }
+
+    /**
+     * registers the lag histograms of the event loops probed after binding
+     */
+    private static final class LoopListener implements EventLoopWatchdog.Listener {
+
+        private final MeterRegistry registry;
+
+        private final Map<String, List<Meter>> loopMeters = new ConcurrentHashMap<>();
+
+        LoopListener(MeterRegistry registry) {
+            this.registry = registry;
+        }
+
+        @Override
+        public void onLoop(String loop, LatencyHistogram lag) {
+            loopMeters.computeIfAbsent(loop, l -> bindHistogram(registry, "websocket.eventloop.lag", Tags.of("loop", l), lag));
+        }
+
+        @Override
+        public void onLoopRemoved(String loop) {
+            List<Meter> meters = loopMeters.remove(loop);
+            if (meters != null) {
+                for (Meter meter : meters) {
+                    registry.remove(meter);
+                }
+            }
+        }
+
+        @Override
+        public void onStall(EventLoopWatchdog.Stall stall) {
+        }
+    }
+
+    /**
+     * registers the histograms of the commands and devices seen after binding
+     */
+    private static final class RegistryListener implements ClientMetrics.Listener {
+
+        private final MeterRegistry registry;
+
+        private final Map<InetSocketAddress, List<Meter>> deviceMeters = new ConcurrentHashMap<>();
+
+        RegistryListener(MeterRegistry registry) {
+            this.registry = registry;
+        }
+
+        @Override
+        public void onCommand(int command, LatencyHistogram histogram) {
+            bindHistogram(registry, "websocket.request.duration", Tags.of("command", String.valueOf(command)), histogram);
+        }
+
+        @Override
+        public void onDevice(InetSocketAddress device, LatencyHistogram histogram) {
+            Tags tags = Tags.of("device", device.getHostString() + ":" + device.getPort());
+            deviceMeters.put(device, bindHistogram(registry, "websocket.device.request.duration", tags, histogram));
+        }
+
+        @Override
+        public void onDeviceRemoved(InetSocketAddress device) {
+            List<Meter> meters = deviceMeters.remove(device);
+            if (meters != null) {
+                for (Meter meter : meters) {
+                    registry.remove(meter);
+                }
+            }
+        }
+    }
+}
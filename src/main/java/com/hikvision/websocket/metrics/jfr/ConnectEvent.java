@@ -0,0 +1,34 @@
+package com.hikvision.websocket.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * a connect attempt of a client, see {@link com.hikvision.websocket.netty.NettyClient#doConnect()}
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 21:20
+ */
+@Name("com.hikvision.websocket.Connect")
+@Label("Device Connect")
+@Category({"Websocket SDK", "Connection"})
+@Description("A connect attempt to a device")
+@Threshold("10 ms")
+@StackTrace(false)
+final class ConnectEvent extends Event {
+
+    @Label("Device")
+    String device;
+
+    @Label("Success")
+    boolean success;
+
+    @Label("Connect Timeout")
+    @Description("Connect timeout(ms) of the attempt")
+    int connectTimeout;
+}
@@ -0,0 +1,37 @@
+package com.hikvision.websocket.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * decoding of a response frame on the io thread, disabled by default for its volume
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 21:20
+ */
+@Name("com.hikvision.websocket.Decode")
+@Label("Frame Decode")
+@Category({"Websocket SDK", "Codec"})
+@Description("Decoding of a response frame")
+@Enabled(false)
+@Threshold("1 ms")
+@StackTrace(false)
+final class DecodeEvent extends Event {
+
+    @Label("Device")
+    String device;
+
+    @Label("Command")
+    int command;
+
+    @Label("Frame Size")
+    @DataAmount
+    int bytes;
+}
@@ -0,0 +1,86 @@
+package com.hikvision.websocket.metrics.jfr;
+
+import java.net.InetSocketAddress;
+
+/**
+ * Java Flight Recorder events of the sdk: connect attempts, reconnects, request round trips, decoded frames
+ * and timeouts, so device latency can be read next to the GC and lock events of the same recording.
+ * <p>
+ * A begin method returns a token to pass to its end method, null while no recording enables the event or
+ * when the JVM has no JFR, so nothing is allocated then. Connects, reconnects and requests are committed
+ * above the threshold of their event type (10ms, 0ms and 20ms by default), frame decoding is disabled by default.
+ * Thresholds are changed in the recording settings like those of the JDK events.
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 21:20
+ */
+public final class JfrEvents {
+
+    private static final boolean AVAILABLE = isAvailable();
+
+    private JfrEvents() {
+    }
+
+    public static Object beginConnect() {
+        return AVAILABLE ? JfrSupport.beginConnect() : null;
+    }
+
+    public static void endConnect(Object token, InetSocketAddress device, boolean success, int connectTimeout) {
+        if (token != null) {
+            JfrSupport.endConnect(token, toString(device), success, connectTimeout);
+        }
+    }
+
+    public static Object beginReconnect() {
+        return AVAILABLE ? JfrSupport.beginReconnect() : null;
+    }
+
+    public static void endReconnect(Object token, InetSocketAddress device, boolean success) {
+        if (token != null) {
+            JfrSupport.endReconnect(token, toString(device), success);
+        }
+    }
+
+    public static Object beginRequest() {
+        return AVAILABLE ? JfrSupport.beginRequest() : null;
+    }
+
+    public static void endRequest(Object token, InetSocketAddress device, int command, int requestBytes, int responseBytes, byte status) {
+        if (token != null) {
+            JfrSupport.endRequest(token, toString(device), command, requestBytes, responseBytes, status);
+        }
+    }
+
+    public static Object beginDecode() {
+        return AVAILABLE ? JfrSupport.beginDecode() : null;
+    }
+
+    public static void endDecode(Object token, InetSocketAddress device, int command, int bytes) {
+        if (token != null) {
+            JfrSupport.endDecode(token, toString(device), command, bytes);
+        }
+    }
+
+    /**
+     * @param waited time(ns) the request waited
+     */
+    public static void timeout(InetSocketAddress device, int command, long waited) {
+        if (AVAILABLE) {
+            JfrSupport.timeout(toString(device), command, waited);
+        }
+    }
+
+    private static String toString(InetSocketAddress device) {
+        return device == null ? null : device.getHostString() + ":" + device.getPort();
+    }
+
+    private static boolean isAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event", false, JfrEvents.class.getClassLoader());
+            return true;
+        } catch (Throwable t) {
+            // a JVM before 8u262
+            return false;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.hikvision.websocket.metrics.jfr;
+
+import jdk.jfr.EventType;
+
+/**
+ * The calls into jdk.jfr, only loaded once {@link JfrEvents} has found JFR on the running JVM.
+ * An event is only created while a recording enables its type.
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 21:20
+ */
+final class JfrSupport {
+
+    private static final EventType CONNECT = EventType.getEventType(ConnectEvent.class);
+
+    private static final EventType RECONNECT = EventType.getEventType(ReconnectEvent.class);
+
+    private static final EventType REQUEST = EventType.getEventType(RequestEvent.class);
+
+    private static final EventType DECODE = EventType.getEventType(DecodeEvent.class);
+
+    private static final EventType TIMEOUT = EventType.getEventType(TimeoutEvent.class);
+
+    private JfrSupport() {
+    }
+
+    static Object beginConnect() {
+        if (!CONNECT.isEnabled()) {
+            return null;
+        }
+        ConnectEvent event = new ConnectEvent();
+        event.begin();
+        return event;
+    }
+
+    static void endConnect(Object token, String device, boolean success, int connectTimeout) {
+        ConnectEvent event = (ConnectEvent) token;
+        event.end();
+        if (event.shouldCommit()) {
+            event.device = device;
+            event.success = success;
+            event.connectTimeout = connectTimeout;
+            event.commit();
+        }
+    }
+
+    static Object beginReconnect() {
+        if (!RECONNECT.isEnabled()) {
+            return null;
+        }
+        ReconnectEvent event = new ReconnectEvent();
+        event.begin();
+        return event;
+    }
+
+    static void endReconnect(Object token, String device, boolean success) {
+        ReconnectEvent event = (ReconnectEvent) token;
+        event.end();
+        if (event.shouldCommit()) {
+            event.device = device;
+            event.success = success;
+            event.commit();
+        }
+    }
+
+    static Object beginRequest() {
+        if (!REQUEST.isEnabled()) {
+            return null;
+        }
+        RequestEvent event = new RequestEvent();
+        event.begin();
+        return event;
+    }
+
+    static void endRequest(Object token, String device, int command, int requestBytes, int responseBytes, byte status) {
+        RequestEvent event = (RequestEvent) token;
+        event.end();
+        if (event.shouldCommit()) {
+            event.device = device;
+            event.command = command;
+            event.requestBytes = requestBytes;
+            event.responseBytes = responseBytes;
+            event.status = status;
+            event.commit();
+        }
+    }
+
+    static Object beginDecode() {
+        if (!DECODE.isEnabled()) {
+            return null;
+        }
+        DecodeEvent event = new DecodeEvent();
+        event.begin();
+        return event;
+    }
+
+    static void endDecode(Object token, String device, int command, int bytes) {
+        DecodeEvent event = (DecodeEvent) token;
+        event.end();
+        if (event.shouldCommit()) {
+            event.device = device;
+            event.command = command;
+            event.bytes = bytes;
+            event.commit();
+        }
+    }
+
+    static void timeout(String device, int command, long waited) {
+        if (!TIMEOUT.isEnabled()) {
+            return;
+        }
+        TimeoutEvent event = new TimeoutEvent();
+        event.device = device;
+        event.command = command;
+        event.waited = waited;
+        event.commit();
+    }
+}
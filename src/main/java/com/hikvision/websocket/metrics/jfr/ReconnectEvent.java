@@ -0,0 +1,30 @@
+package com.hikvision.websocket.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * a client connecting again after its connection was lost or reset
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 21:20
+ */
+@Name("com.hikvision.websocket.Reconnect")
+@Label("Device Reconnect")
+@Category({"Websocket SDK", "Connection"})
+@Description("A client connecting again to a device, by a send after the connection was lost or explicitly")
+@Threshold("0 ms")
+@StackTrace(false)
+final class ReconnectEvent extends Event {
+
+    @Label("Device")
+    String device;
+
+    @Label("Success")
+    boolean success;
+}
@@ -0,0 +1,44 @@
+package com.hikvision.websocket.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * round trip of a request, from the creation of its future until it is completed
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 21:20
+ */
+@Name("com.hikvision.websocket.Request")
+@Label("Device Request")
+@Category({"Websocket SDK", "Request"})
+@Description("Round trip of a request to a device, committed on the thread completing it")
+@Threshold("20 ms")
+@StackTrace(false)
+final class RequestEvent extends Event {
+
+    @Label("Device")
+    String device;
+
+    @Label("Command")
+    @Description("dwCommand of the request")
+    int command;
+
+    @Label("Request Size")
+    @DataAmount
+    int requestBytes;
+
+    @Label("Response Size")
+    @DataAmount
+    int responseBytes;
+
+    @Label("Status")
+    @Description("Status of the response, see Response")
+    byte status;
+}
@@ -0,0 +1,33 @@
+package com.hikvision.websocket.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * a request completed without a response in time
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 21:20
+ */
+@Name("com.hikvision.websocket.Timeout")
+@Label("Request Timeout")
+@Category({"Websocket SDK", "Request"})
+@Description("A request not answered in time or before its deadline")
+@StackTrace(false)
+final class TimeoutEvent extends Event {
+
+    @Label("Device")
+    String device;
+
+    @Label("Command")
+    int command;
+
+    @Label("Waited")
+    @Timespan(Timespan.NANOSECONDS)
+    long waited;
+}
@@ -0,0 +1,172 @@
+package com.hikvision.websocket.netty;
+
+import com.hikvision.websocket.api.URL;
+import com.hikvision.websocket.exception.RemotingException;
+import com.hikvision.websocket.metrics.RequestTracer;
+import com.hikvision.websocket.netty.dispatcher.Dispatcher;
+import com.hikvision.websocket.netty.exchange.Request;
+import com.hikvision.websocket.netty.exchange.Response;
+import com.hikvision.websocket.netty.exchange.ResponseFuture;
+import com.hikvision.websocket.netty.exchange.ResultCollector;
+import com.hikvision.websocket.netty.remoting.ChannelHandler;
+import com.hikvision.websocket.netty.remoting.ExchangeChannel;
+
+import java.net.InetSocketAddress;
+
+/**
+ * Connection of a device dialing in to the {@link NettyServer}, identified by the struAddress of its first frame.
+ * Requests to the device are correlated with its responses like those of a {@link NettyClient}.
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 14:50
+ */
+public class DeviceSession implements ExchangeChannel {
+
+    private final String deviceId;
+
+    private final NettyChannel channel;
+
+    private final NettyServer server;
+
+    private final ResultCollector resultCollector = new ResultCollector();
+
+    DeviceSession(String deviceId, NettyChannel channel, NettyServer server) {
+        this.deviceId = deviceId;
+        this.channel = channel;
+        this.server = server;
+        resultCollector.setExecutor(Dispatcher.of(server.getUrl()).executor(channel.getRemoteAddress()));
+        resultCollector.setRemoteAddress(channel.getRemoteAddress());
+    }
+
+    public String getDeviceId() {
+        return deviceId;
+    }
+
+    public NettyServer getServer() {
+        return server;
+    }
+
+    public ResultCollector getResultCollector() {
+        return resultCollector;
+    }
+
+    /**
+     * Complete the request waiting for the message
+     *
+     * @return false if no request waits for a response, the message is sent by the device on its own
+     */
+    public boolean received(Object message) {
+        return resultCollector.received(message);
+    }
+
+    /**
+     * Send a request, the future is completed with {@link Response#CLIENT_TIMEOUT} if the device
+     * does not answer in time.
+     *
+     * @param request request
+     * @param timeout wait time(ms), non-positive means no timeout besides the deadline of the request
+     * @return response future
+     */
+    @Override
+    public ResponseFuture<Request, Response> request(Request request, int timeout) {
+        ResponseFuture<Request, Response> future = resultCollector.createFuture(request, timeout, getRemoteAddress());
+        if (future.isDone()) {
+            // deadline exceeded before send
+            return future;
+        }
+        RequestTracer.start(request);
+        try {
+            send(future);
+        } catch (RemotingException e) {
+            resultCollector.clear(future);
+            throw e;
+        }
+        return future;
+    }
+
+    @Override
+    public boolean isWritable() {
+        return channel.isWritable();
+    }
+
+    @Override
+    public InetSocketAddress getRemoteAddress() {
+        return channel.getRemoteAddress();
+    }
+
+    @Override
+    public boolean isConnected() {
+        return channel.isConnected();
+    }
+
+    @Override
+    public URL getUrl() {
+        return channel.getUrl();
+    }
+
+    @Override
+    public ChannelHandler getChannelHandler() {
+        return channel.getChannelHandler();
+    }
+
+    @Override
+    public InetSocketAddress getLocalAddress() {
+        return channel.getLocalAddress();
+    }
+
+    @Override
+    public void send(Object message) throws RemotingException {
+        send(message, false);
+    }
+
+    @Override
+    public void send(Object message, boolean sent) throws RemotingException {
+        if (!channel.isConnected()) {
+            throw new RemotingException(channel, "Failed to send message " + message + " to device " + deviceId
+                    + ", cause: the device is disconnected");
+        }
+        channel.send(message, sent);
+    }
+
+    /**
+     * Graceful close: wait for the responses of in-flight requests, flush the outbound buffer and then close
+     *
+     * @param timeout wait time(ms)
+     */
+    @Override
+    public void close(int timeout) {
+        startClose();
+        long start = System.currentTimeMillis();
+        while (resultCollector.hasPending() && System.currentTimeMillis() - start < timeout) {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        channel.close((int) Math.max(0, timeout - (System.currentTimeMillis() - start)));
+        resultCollector.failAll(Response.CHANNEL_INACTIVE, "device session closed: " + deviceId);
+    }
+
+    @Override
+    public void close() {
+        channel.close();
+        resultCollector.failAll(Response.CHANNEL_INACTIVE, "device session closed: " + deviceId);
+    }
+
+    @Override
+    public void startClose() {
+        channel.startClose();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return channel.isClosed();
+    }
+
+    @Override
+    public String toString() {
+        return "DeviceSession [deviceId=" + deviceId + ", channel=" + channel + "]";
+    }
+}
@@ -0,0 +1,175 @@
+package com.hikvision.websocket.netty;
+
+import com.hikvision.websocket.api.URL;
+import com.hikvision.websocket.utils.NetUtils;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.SingleThreadEventExecutor;
+
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.hikvision.websocket.factory.NettyEventLoopFactory.eventLoopGroup;
+
+/**
+ * A named event loop group isolating the io of a device class or tenant from the other clients,
+ * so a burst of one class cannot delay the io of another.
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 13:50
+ */
+public class EventLoopBulkhead {
+
+    private final String name;
+
+    private final int threads;
+
+    /**
+     * device address patterns, see {@link NetUtils#matchIpRange(String, String, int)}
+     */
+    private final List<String> devices;
+
+    private final List<String> tenants;
+
+    private final Lock lock = new ReentrantLock();
+
+    /**
+     * created on first use
+     */
+    private volatile EventLoopGroup group;
+
+    private final AtomicInteger clients = new AtomicInteger();
+
+    public EventLoopBulkhead(String name, int threads, List<String> devices, List<String> tenants) {
+        if (name == null || name.isEmpty()) {
+            throw new IllegalArgumentException("bulkhead name is empty");
+        }
+        if (threads <= 0) {
+            throw new IllegalArgumentException("bulkhead " + name + " threads <= 0");
+        }
+        this.name = name;
+        this.threads = threads;
+        this.devices = devices == null ? Collections.emptyList() : new ArrayList<>(devices);
+        this.tenants = tenants == null ? Collections.emptyList() : new ArrayList<>(tenants);
+    }
+
+    boolean matchesTenant(String tenant) {
+        return tenants.contains(tenant);
+    }
+
+    boolean matchesAddress(URL url) {
+        for (String pattern : devices) {
+            try {
+                if (NetUtils.matchIpRange(pattern, url.getHost(), url.getPort())) {
+                    return true;
+                }
+            } catch (UnknownHostException | IllegalArgumentException e) {
+                // unresolvable host or pattern of the other ip version
+            }
+        }
+        return false;
+    }
+
+    EventLoopGroup getOrCreateGroup() {
+        EventLoopGroup g = group;
+        if (g != null) {
+            return g;
+        }
+        lock.lock();
+        try {
+            if (group == null) {
+                group = eventLoopGroup(threads, "NettyClientWorker-" + name);
+            }
+            return group;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the group, null if it is not created yet
+     */
+    EventLoopGroup currentGroup() {
+        return group;
+    }
+
+    void clientAdded() {
+        clients.incrementAndGet();
+    }
+
+    void clientRemoved() {
+        clients.decrementAndGet();
+    }
+
+    /**
+     * shutdown the group, a new one is created on next use
+     */
+    void shutdown(long timeout) {
+        EventLoopGroup g;
+        lock.lock();
+        try {
+            g = group;
+            group = null;
+        } finally {
+            lock.unlock();
+        }
+        if (g != null) {
+            g.shutdownGracefully(0, Math.max(0, timeout), TimeUnit.MILLISECONDS)
+                    .awaitUninterruptibly(Math.max(0, timeout));
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public List<String> getDevices() {
+        return Collections.unmodifiableList(devices);
+    }
+
+    public List<String> getTenants() {
+        return Collections.unmodifiableList(tenants);
+    }
+
+    /**
+     * clients assigned to this bulkhead
+     */
+    public int getClients() {
+        return clients.get();
+    }
+
+    /**
+     * tasks waiting in the event loops, a growing value means the bulkhead is saturated
+     */
+    public int getPendingTasks() {
+        return pendingTasks(group);
+    }
+
+    static int pendingTasks(EventLoopGroup group) {
+        if (group == null) {
+            return 0;
+        }
+        int res = 0;
+        for (EventExecutor executor : group) {
+            if (executor instanceof SingleThreadEventExecutor) {
+                res += ((SingleThreadEventExecutor) executor).pendingTasks();
+            }
+        }
+        return res;
+    }
+
+    @Override
+    public String toString() {
+        return "EventLoopBulkhead{name=" + name + ", threads=" + threads + ", devices=" + devices + ", tenants=" + tenants + "}";
+    }
+}
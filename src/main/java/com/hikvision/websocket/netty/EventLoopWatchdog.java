@@ -0,0 +1,339 @@
+package com.hikvision.websocket.netty;
+
+import com.hikvision.websocket.metrics.LatencyHistogram;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.EventExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Watchdog of the client io threads. Every interval a probe task is queued on each event loop of the shared
+ * worker thread pool and of the bulkheads, the delay until it runs is the lag of the loop: how long a read of a
+ * device waits behind slow handler callbacks. A probe still waiting past the threshold means the loop is stalled,
+ * the stack of its thread is captured while it is blocked and reported with the lag.
+ * <p>
+ * A loop has at most one probe queued, so a stalled loop does not pile them up.
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 22:20
+ */
+public final class EventLoopWatchdog {
+
+    private static final Logger logger = LoggerFactory.getLogger(EventLoopWatchdog.class);
+
+    private static final ConcurrentMap<EventExecutor, LoopProbe> LOOPS = new ConcurrentHashMap<>();
+
+    private static final List<Listener> LISTENERS = new CopyOnWriteArrayList<>();
+
+    private static final LongAdder STALLS = new LongAdder();
+
+    private static final Lock LOCK = new ReentrantLock();
+
+    /**
+     * runs the checks, null while stopped
+     */
+    private static ScheduledExecutorService scheduler;
+
+    private static volatile long thresholdNanos;
+
+    private static volatile Stall lastStall;
+
+    private EventLoopWatchdog() {
+    }
+
+    /**
+     * start probing the event loops, restarts with the new settings if running
+     *
+     * @param interval  time(ms) between the probes of a loop
+     * @param threshold lag(ms) from which a loop is reported as stalled
+     */
+    public static void start(long interval, long threshold) {
+        if (interval <= 0L || threshold <= 0L) {
+            throw new IllegalArgumentException("watchdog interval and threshold should be positive");
+        }
+        LOCK.lock();
+        try {
+            if (scheduler != null) {
+                scheduler.shutdownNow();
+            }
+            thresholdNanos = TimeUnit.MILLISECONDS.toNanos(threshold);
+            scheduler = Executors.newSingleThreadScheduledExecutor(new DefaultThreadFactory("websocket-loop-watchdog", true));
+            scheduler.scheduleWithFixedDelay(EventLoopWatchdog::check, interval, interval, TimeUnit.MILLISECONDS);
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+    /**
+     * stop probing, the histograms of the loops are dropped
+     */
+    public static void stop() {
+        LOCK.lock();
+        try {
+            if (scheduler == null) {
+                return;
+            }
+            scheduler.shutdownNow();
+            scheduler = null;
+            for (Iterator<LoopProbe> it = LOOPS.values().iterator(); it.hasNext(); ) {
+                LoopProbe probe = it.next();
+                it.remove();
+                loopRemoved(probe);
+            }
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+    public static boolean isRunning() {
+        return scheduler != null;
+    }
+
+    /**
+     * @return loop name -> lag histogram of the probed loops
+     */
+    public static Map<String, LatencyHistogram> getLags() {
+        Map<String, LatencyHistogram> res = new ConcurrentHashMap<>();
+        for (LoopProbe probe : LOOPS.values()) {
+            res.put(probe.name, probe.lag);
+        }
+        return Collections.unmodifiableMap(res);
+    }
+
+    public static long getStallCount() {
+        return STALLS.sum();
+    }
+
+    /**
+     * @return the latest stall, null if none was seen
+     */
+    public static Stall getLastStall() {
+        return lastStall;
+    }
+
+    /**
+     * listen to the loops and stalls seen after the listener is added
+     */
+    public static void addListener(Listener listener) {
+        LISTENERS.add(listener);
+    }
+
+    public static void removeListener(Listener listener) {
+        LISTENERS.remove(listener);
+    }
+
+    /**
+     * one round of the watchdog thread: sync the probed loops with the live groups, then probe each loop
+     */
+    private static void check() {
+        try {
+            // the groups are created on first use and recreated after a shutdown
+            Map<EventExecutor, String> live = new IdentityHashMap<>();
+            collect(live, NettyClient.currentEventLoopGroup(), "shared");
+            for (EventLoopBulkhead bulkhead : NettyClient.getBulkheads()) {
+                collect(live, bulkhead.currentGroup(), bulkhead.getName());
+            }
+            // removed before adding, a recreated group reuses the names
+            for (Iterator<LoopProbe> it = LOOPS.values().iterator(); it.hasNext(); ) {
+                LoopProbe probe = it.next();
+                if (!live.containsKey(probe.loop)) {
+                    it.remove();
+                    loopRemoved(probe);
+                }
+            }
+            for (Map.Entry<EventExecutor, String> entry : live.entrySet()) {
+                LoopProbe probe = LOOPS.get(entry.getKey());
+                if (probe == null) {
+                    probe = new LoopProbe(entry.getValue(), entry.getKey());
+                    LOOPS.put(entry.getKey(), probe);
+                    for (Listener listener : LISTENERS) {
+                        listener.onLoop(probe.name, probe.lag);
+                    }
+                }
+                probe.check();
+            }
+        } catch (Throwable t) {
+            // an exception would cancel the periodic check
+            logger.warn("Failed to probe the event loops, cause: " + t.getMessage(), t);
+        }
+    }
+
+    private static void collect(Map<EventExecutor, String> live, EventLoopGroup group, String name) {
+        if (group == null || group.isShuttingDown()) {
+            return;
+        }
+        int i = 0;
+        for (EventExecutor executor : group) {
+            live.put(executor, name + "-" + i++);
+        }
+    }
+
+    private static void loopRemoved(LoopProbe probe) {
+        for (Listener listener : LISTENERS) {
+            listener.onLoopRemoved(probe.name);
+        }
+    }
+
+    private static void stalled(LoopProbe probe, long lag) {
+        Thread thread = probe.thread;
+        // the stack is taken while the loop is still blocked, unknown if the loop never ran a probe
+        Stall stall = new Stall(probe.name, thread == null ? null : thread.getName(), TimeUnit.NANOSECONDS.toMillis(lag),
+                System.currentTimeMillis(), thread == null ? new StackTraceElement[0] : thread.getStackTrace());
+        STALLS.increment();
+        lastStall = stall;
+        logger.warn(stall.toString());
+        for (Listener listener : LISTENERS) {
+            try {
+                listener.onStall(stall);
+            } catch (Throwable t) {
+                logger.warn("Failed to notify stall listener, cause: " + t.getMessage(), t);
+            }
+        }
+    }
+
+    private static final class LoopProbe implements Runnable {
+
+        private final String name;
+
+        private final EventExecutor loop;
+
+        private final LatencyHistogram lag = new LatencyHistogram();
+
+        /**
+         * thread of the loop, known once a probe ran
+         */
+        private volatile Thread thread;
+
+        /**
+         * queue time(ns) of the probe waiting to run, 0 if none waits
+         */
+        private final AtomicLong queuedAt = new AtomicLong();
+
+        /**
+         * whether the waiting probe is reported, used by the watchdog thread only
+         */
+        private boolean reported;
+
+        private LoopProbe(String name, EventExecutor loop) {
+            this.name = name;
+            this.loop = loop;
+        }
+
+        /**
+         * queue a probe, or report the waiting one once it passes the threshold
+         */
+        private void check() {
+            long queued = queuedAt.get();
+            if (queued != 0L) {
+                long waited = System.nanoTime() - queued;
+                if (!reported && waited >= thresholdNanos) {
+                    reported = true;
+                    stalled(this, waited);
+                }
+                return;
+            }
+            reported = false;
+            queuedAt.set(System.nanoTime());
+            try {
+                loop.execute(this);
+            } catch (RejectedExecutionException e) {
+                // shutting down, dropped on the next check
+                queuedAt.set(0L);
+            }
+        }
+
+        @Override
+        public void run() {
+            thread = Thread.currentThread();
+            lag.record(System.nanoTime() - queuedAt.get());
+            queuedAt.set(0L);
+        }
+    }
+
+    /**
+     * a loop whose probe waited past the threshold
+     */
+    public static final class Stall {
+
+        private final String loop;
+
+        private final String thread;
+
+        /**
+         * time(ms) the probe had waited when the stack was taken
+         */
+        private final long lag;
+
+        private final long time;
+
+        private final StackTraceElement[] stackTrace;
+
+        private Stall(String loop, String thread, long lag, long time, StackTraceElement[] stackTrace) {
+            this.loop = loop;
+            this.thread = thread;
+            this.lag = lag;
+            this.time = time;
+            this.stackTrace = stackTrace;
+        }
+
+        public String getLoop() {
+            return loop;
+        }
+
+        public String getThread() {
+            return thread;
+        }
+
+        public long getLag() {
+            return lag;
+        }
+
+        public long getTime() {
+            return time;
+        }
+
+        public StackTraceElement[] getStackTrace() {
+            return stackTrace.clone();
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder res = new StringBuilder("Event loop ").append(loop).append(" stalled for ").append(lag)
+                    .append("ms, thread ").append(thread).append(stackTrace.length == 0 ? " not started yet" : " at");
+            for (StackTraceElement element : stackTrace) {
+                res.append("\n\tat ").append(element);
+            }
+            return res.toString();
+        }
+    }
+
+    /**
+     * notified of the loops and stalls, so a meter registry can expose the loops seen later
+     */
+    public interface Listener {
+
+        void onLoop(String loop, LatencyHistogram lag);
+
+        void onLoopRemoved(String loop);
+
+        void onStall(Stall stall);
+    }
+}
@@ -2,19 +2,36 @@ package com.hikvision.websocket.netty;
 
 import com.hikvision.websocket.api.URL;
 import com.hikvision.websocket.exception.RemotingException;
+import com.hikvision.websocket.netty.exchange.Priority;
 import com.hikvision.websocket.netty.transport.AbstractChannel;
 import com.hikvision.websocket.netty.remoting.ChannelHandler;
+import com.hikvision.websocket.utils.FutureUtils;
 import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelOutboundBuffer;
 
 import java.net.InetSocketAddress;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import io.netty.channel.Channel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import static com.hikvision.websocket.constants.Constants.BACKPRESSURE_KEY;
+import static com.hikvision.websocket.constants.Constants.BACKPRESSURE_NONE;
+import static com.hikvision.websocket.constants.Constants.BACKPRESSURE_TIMEOUT_KEY;
+import static com.hikvision.websocket.constants.Constants.BACKPRESSURE_WAIT;
+import static com.hikvision.websocket.constants.Constants.DEFAULT_BACKPRESSURE;
+import static com.hikvision.websocket.constants.Constants.DEFAULT_BACKPRESSURE_TIMEOUT;
+import static com.hikvision.websocket.constants.Constants.DEFAULT_PRIORITY_WEIGHTS;
+import static com.hikvision.websocket.constants.Constants.PRIORITY_WEIGHTS_KEY;
+
 /**
  * Maintain current active connections
  *
@@ -30,6 +47,8 @@ public class NettyChannel extends AbstractChannel {
      */
     private static final ConcurrentMap<Channel, NettyChannel> CHANNEL_MAP = new ConcurrentHashMap<>();
 
+    private static final long BACKLOG_RECHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
     /**
      * native channel (netty channel)
      */
@@ -37,18 +56,55 @@ public class NettyChannel extends AbstractChannel {
 
     private final AtomicBoolean active = new AtomicBoolean();
 
+    /**
+     * backpressure policy applied when the priority queues and the outbound buffer hold more than the high water mark
+     */
+    private final String backpressure;
+
+    private final int backpressureTimeout;
+
+    private final Lock writableLock = new ReentrantLock();
+
+    private final Condition writableCondition = writableLock.newCondition();
+
+    /**
+     * prioritized outbound queue in front of the outbound buffer
+     */
+    private final OutboundScheduler scheduler;
+
+    /**
+     * consumers that asked to stop reading the socket, see {@link #pauseRead()}
+     */
+    private final AtomicInteger readPauses = new AtomicInteger();
+
+    /**
+     * senders waiting for the backlog to drain, the io thread signals them only if there are any
+     */
+    private final AtomicInteger backlogWaiters = new AtomicInteger();
+
     public NettyChannel(Channel channel, URL url, ChannelHandler handler) {
         super(url, handler);
         if (channel == null) {
             throw new IllegalArgumentException("netty channel == null;");
         }
         this.channel = channel;
+        this.backpressure = url.getParameter(BACKPRESSURE_KEY, DEFAULT_BACKPRESSURE);
+        this.backpressureTimeout = url.getParameter(BACKPRESSURE_TIMEOUT_KEY, DEFAULT_BACKPRESSURE_TIMEOUT);
+        this.scheduler = new OutboundScheduler(channel,
+                OutboundScheduler.parseWeights(url.getParameter(PRIORITY_WEIGHTS_KEY, DEFAULT_PRIORITY_WEIGHTS)), this::drained);
     }
 
     public static NettyChannel getChannel(Channel ch) {
         return CHANNEL_MAP.get(ch);
     }
 
+    /**
+     * count of the live channels
+     */
+    public static int getChannelCount() {
+        return CHANNEL_MAP.size();
+    }
+
     /**
      * Get the encapsulated channel through netty's channel
      *
@@ -106,6 +162,118 @@ public class NettyChannel extends AbstractChannel {
         active.set(isActive);
     }
 
+    /**
+     * whether the outbound buffer is below the high water mark
+     */
+    public boolean isWritable() {
+        return channel.isWritable();
+    }
+
+    /**
+     * bytes queued in the outbound buffer and not yet written to the socket
+     */
+    public long getPendingOutboundBytes() {
+        ChannelOutboundBuffer outboundBuffer = channel.unsafe().outboundBuffer();
+        return outboundBuffer == null ? 0 : outboundBuffer.totalPendingWriteBytes();
+    }
+
+    /**
+     * messages in the priority queues, not yet moved to the outbound buffer
+     */
+    public int getQueuedMessages() {
+        return scheduler.getQueued();
+    }
+
+    /**
+     * Stop reading the socket until every pause is resumed, so a slow consumer of the frames holds them
+     * in the socket buffers of the kernel and the device instead of the heap. Responses of the connection
+     * wait as well.
+     */
+    public void pauseRead() {
+        readPauses.incrementAndGet();
+        updateAutoRead();
+    }
+
+    /**
+     * resume one {@link #pauseRead()}, the socket is read again once no pause is left
+     */
+    public void resumeRead() {
+        readPauses.decrementAndGet();
+        updateAutoRead();
+    }
+
+    private void updateAutoRead() {
+        // applied on the io thread against the latest count, so concurrent pauses and resumes can not reorder
+        if (channel.eventLoop().inEventLoop()) {
+            channel.config().setAutoRead(readPauses.get() <= 0);
+        } else {
+            channel.eventLoop().execute(this::updateAutoRead);
+        }
+    }
+
+    /**
+     * Wait until the outbound buffer drains below the low water mark.
+     * Never waits on the io thread, since only the io thread can drain the buffer.
+     *
+     * @param timeout wait time(ms)
+     * @return true if the channel is writable
+     */
+    public boolean awaitWritable(long timeout) throws InterruptedException {
+        if (channel.isWritable()) {
+            return true;
+        }
+        if (channel.eventLoop().inEventLoop()) {
+            return false;
+        }
+        long nanos = TimeUnit.MILLISECONDS.toNanos(timeout);
+        writableLock.lock();
+        try {
+            while (!channel.isWritable() && channel.isActive()) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = writableCondition.awaitNanos(nanos);
+            }
+            return channel.isWritable();
+        } finally {
+            writableLock.unlock();
+        }
+    }
+
+    /**
+     * resume the priority queues and wake up the senders waiting for writability,
+     * invoked on writability change or channel inactive
+     */
+    public void writabilityChanged() {
+        scheduler.writabilityChanged();
+        signalWritable();
+    }
+
+    /**
+     * queued messages moved to the outbound buffer, wake up the senders waiting for the backlog
+     */
+    private void drained() {
+        if (backlogWaiters.get() > 0) {
+            signalWritable();
+        }
+    }
+
+    private void signalWritable() {
+        writableLock.lock();
+        try {
+            writableCondition.signalAll();
+        } finally {
+            writableLock.unlock();
+        }
+    }
+
+    /**
+     * bytes waiting to be written: the priority queues plus the outbound buffer
+     */
+    public long getBacklogBytes() {
+        return scheduler.getQueuedBytes() + getPendingOutboundBytes();
+    }
+
     @Override
     public InetSocketAddress getRemoteAddress() {
         return (InetSocketAddress) channel.remoteAddress();
@@ -132,15 +300,17 @@ public class NettyChannel extends AbstractChannel {
     public void send(Object message, boolean sent) throws RemotingException {
         // check channel closed
         super.send(message);
+        // check outbound buffer
+        checkWritable(message);
 
         boolean success = true;
         int timeout = 0;
         try {
-            ChannelFuture future = channel.writeAndFlush(message);
+            ChannelFuture future = scheduler.write(message);
             if (sent) {
                 // todo timeout set
                 timeout = 5000;
-                success = future.await(timeout);
+                success = FutureUtils.await(future, timeout);
             }
             Throwable cause = future.cause();
             if (cause != null) {
@@ -156,6 +326,86 @@ public class NettyChannel extends AbstractChannel {
         }
     }
 
+    /**
+     * Backpressure of normal and low priority messages on the backlog of the priority queues and the outbound
+     * buffer, so the backlog builds up in the priority queues where high priority messages overtake it.
+     * High priority messages are always queued.
+     */
+    private void checkWritable(Object message) throws RemotingException {
+        if (BACKPRESSURE_NONE.equals(backpressure) || OutboundScheduler.priorityOf(message) == Priority.HIGH
+                || getBacklogBytes() < channel.config().getWriteBufferHighWaterMark()) {
+            return;
+        }
+        boolean writable = false;
+        if (BACKPRESSURE_WAIT.equals(backpressure)) {
+            try {
+                writable = awaitBacklog(backpressureTimeout);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (!writable) {
+            throw new RemotingException(this, "Failed to send message " + message + " to " + getRemoteAddress()
+                    + ", cause: channel is not writable, " + getBacklogBytes() + " bytes pending in priority queues and outbound buffer");
+        }
+    }
+
+    /**
+     * Wait until the backlog drains below the low water mark, never on the io thread
+     *
+     * @param timeout wait time(ms)
+     * @return true if the backlog drained
+     */
+    private boolean awaitBacklog(long timeout) throws InterruptedException {
+        int low = channel.config().getWriteBufferLowWaterMark();
+        if (getBacklogBytes() <= low) {
+            return true;
+        }
+        if (channel.eventLoop().inEventLoop()) {
+            return false;
+        }
+        long nanos = TimeUnit.MILLISECONDS.toNanos(timeout);
+        backlogWaiters.incrementAndGet();
+        writableLock.lock();
+        try {
+            while (getBacklogBytes() > low && channel.isActive()) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                // the outbound buffer also drains between writability changes, so recheck now and then
+                long slice = Math.min(nanos, BACKLOG_RECHECK_NANOS);
+                nanos -= slice - writableCondition.awaitNanos(slice);
+            }
+            return getBacklogBytes() <= low;
+        } finally {
+            writableLock.unlock();
+            backlogWaiters.decrementAndGet();
+        }
+    }
+
+    /**
+     * Flush the priority queues and the outbound buffer within the timeout and then close
+     *
+     * @param timeout wait time(ms)
+     */
+    @Override
+    public void close(int timeout) {
+        startClose();
+        if (timeout > 0 && channel.isActive()) {
+            long start = System.currentTimeMillis();
+            channel.flush();
+            while ((scheduler.getQueued() > 0 || getPendingOutboundBytes() > 0) && channel.isActive() && System.currentTimeMillis() - start < timeout) {
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        close();
+    }
+
     @Override
     public void close() {
         try {
@@ -4,11 +4,21 @@ import com.hikvision.websocket.api.URL;
 import com.hikvision.websocket.netty.codec.CodecAdapter;
 import com.hikvision.websocket.constants.Constants;
 import com.hikvision.websocket.exception.RemotingException;
+import com.hikvision.websocket.factory.NettyEventLoopFactory.Transport;
+import com.hikvision.websocket.governance.LatencyEstimator;
 import com.hikvision.websocket.netty.exchange.Request;
 import com.hikvision.websocket.netty.exchange.Response;
+import com.hikvision.websocket.netty.exchange.ResponseFuture;
+import com.hikvision.websocket.netty.exchange.ResultCollector;
+import com.hikvision.websocket.metrics.ClientMetrics;
+import com.hikvision.websocket.metrics.RequestTracer;
+import com.hikvision.websocket.metrics.jfr.JfrEvents;
+import com.hikvision.websocket.netty.dispatcher.Dispatcher;
 import com.hikvision.websocket.netty.handler.NettyClientHandler;
 import com.hikvision.websocket.netty.remoting.ChannelHandler;
+import com.hikvision.websocket.netty.remoting.ExchangeChannel;
 import com.hikvision.websocket.netty.transport.AbstractClient;
+import com.hikvision.websocket.utils.FutureUtils;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.channel.*;
@@ -17,14 +27,33 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.InetSocketAddress;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.Future;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
+import static com.hikvision.websocket.constants.Constants.CONNECT_LATENCY_ALPHA;
+import static com.hikvision.websocket.constants.Constants.CONNECT_TIMEOUT_ADAPTIVE_KEY;
+import static com.hikvision.websocket.constants.Constants.CONNECT_TIMEOUT_FLOOR_KEY;
+import static com.hikvision.websocket.constants.Constants.CONNECT_TIMEOUT_PERCENTILE_KEY;
 import static com.hikvision.websocket.constants.Constants.DEFAULT_CONNECT_TIMEOUT;
+import static com.hikvision.websocket.constants.Constants.DEFAULT_CONNECT_TIMEOUT_FLOOR;
+import static com.hikvision.websocket.constants.Constants.DEFAULT_CONNECT_TIMEOUT_PERCENTILE;
+import static com.hikvision.websocket.constants.Constants.DEFAULT_WRITE_BUFFER_HIGH_WATER_MARK;
+import static com.hikvision.websocket.constants.Constants.DEFAULT_WRITE_BUFFER_LOW_WATER_MARK;
+import static com.hikvision.websocket.constants.Constants.WRITE_BUFFER_HIGH_WATER_MARK_KEY;
+import static com.hikvision.websocket.constants.Constants.WRITE_BUFFER_LOW_WATER_MARK_KEY;
+import static com.hikvision.websocket.factory.NettyEventLoopFactory.applyTransportOptions;
 import static com.hikvision.websocket.factory.NettyEventLoopFactory.eventLoopGroup;
 import static com.hikvision.websocket.factory.NettyEventLoopFactory.socketChannelClass;
+import static com.hikvision.websocket.factory.NettyEventLoopFactory.transport;
 
 /**
  * NettyClient
@@ -32,7 +61,7 @@ import static com.hikvision.websocket.factory.NettyEventLoopFactory.socketChanne
  * @author zhangwei151
  * @date 2022/9/14 14:54
  */
-public class NettyClient extends AbstractClient {
+public class NettyClient extends AbstractClient implements ExchangeChannel {
 
     private static final Logger logger = LoggerFactory.getLogger(NettyClient.class);
 
@@ -42,15 +71,47 @@ public class NettyClient extends AbstractClient {
     private static final ConcurrentMap<InetSocketAddress, NettyClient> CLIENT_MAP = new ConcurrentHashMap<>();
 
     /**
-     * all client shared worker thread pool
+     * all client shared worker thread pool, either supplied by the host application or created lazily
      */
-    private static final EventLoopGroup EVENT_LOOP_GROUP = eventLoopGroup(Constants.DEFAULT_IO_THREADS, "NettyClientWorker");
+    private static volatile EventLoopGroup EVENT_LOOP_GROUP;
+
+    /**
+     * whether {@link #EVENT_LOOP_GROUP} is supplied by the host application, which also owns its shutdown
+     */
+    private static volatile boolean externalEventLoopGroup;
+
+    /**
+     * thread count of the private worker thread pool
+     */
+    private static volatile int ioThreads = Constants.DEFAULT_IO_THREADS;
+
+    private static final Lock EVENT_LOOP_GROUP_LOCK = new ReentrantLock();
+
+    /**
+     * isolated worker thread pools, in matching order
+     */
+    private static final List<EventLoopBulkhead> BULKHEADS = new CopyOnWriteArrayList<>();
+
+    /**
+     * set once all clients are shutting down, no new client is created after that
+     */
+    private static volatile boolean shutdown;
 
     /**
      * netty client bootstrap
      */
     private Bootstrap bootstrap;
 
+    /**
+     * observed connect latencies, null unless the connect timeout is adaptive
+     */
+    private volatile LatencyEstimator connectLatency;
+
+    /**
+     * bulkhead serving the io of this client, null for the shared worker thread pool
+     */
+    private EventLoopBulkhead bulkhead;
+
     /**
      * current channel. Each successful invocation of {@link NettyClient#doConnect()} will
      * replace this with new channel and close old channel.
@@ -58,12 +119,173 @@ public class NettyClient extends AbstractClient {
      */
     private volatile Channel channel;
 
+    /**
+     * time(ms) the current channel connected
+     */
+    private volatile long connectedAt;
+
+    /**
+     * handler of the channels, it keeps the read and write times
+     */
+    private NettyClientHandler clientHandler;
+
     /**
      * The constructor of NettyClient.
-     * It wil init and start netty.
+     * It wil init and start netty. The super constructor runs {@link #doOpen()} and the first {@link #doConnect()}
+     * before the field initializers of this class, so the fields they use are assigned there and have no initializer.
      */
     public NettyClient(final URL url, final ChannelHandler handler) throws RemotingException {
-        super(url, handler);
+        super(url, Dispatcher.of(url).wrap(handler));
+        // requests are sent once the client is created, so the listeners are dispatched before any response
+        resultCollector.setExecutor(Dispatcher.of(url).executor(url.toInetSocketAddress()));
+        resultCollector.setRemoteAddress(url.toInetSocketAddress());
+    }
+
+    /**
+     * Share the event loops of the host application (e.g. reactor netty or grpc) instead of
+     * creating a private worker thread pool. Must be called before the first client is created.
+     *
+     * @param group external event loop group, its lifecycle is left to the host application
+     */
+    public static void useEventLoopGroup(EventLoopGroup group) {
+        EVENT_LOOP_GROUP_LOCK.lock();
+        try {
+            if (EVENT_LOOP_GROUP != null && EVENT_LOOP_GROUP != group) {
+                throw new IllegalStateException("NettyClient worker thread pool is already in use: " + EVENT_LOOP_GROUP);
+            }
+            EVENT_LOOP_GROUP = group;
+            externalEventLoopGroup = true;
+        } finally {
+            EVENT_LOOP_GROUP_LOCK.unlock();
+        }
+    }
+
+    /**
+     * Size of the private worker thread pool, takes effect when the pool is created
+     *
+     * @param threads io thread count, non-positive means the default
+     */
+    public static void setIoThreads(int threads) {
+        ioThreads = threads > 0 ? threads : Constants.DEFAULT_IO_THREADS;
+    }
+
+    /**
+     * Get the shared worker thread pool, the private one is created on first use
+     */
+    public static EventLoopGroup getEventLoopGroup() {
+        EventLoopGroup group = EVENT_LOOP_GROUP;
+        if (group != null) {
+            return group;
+        }
+        EVENT_LOOP_GROUP_LOCK.lock();
+        try {
+            if (EVENT_LOOP_GROUP == null) {
+                EVENT_LOOP_GROUP = eventLoopGroup(ioThreads, "NettyClientWorker");
+                externalEventLoopGroup = false;
+            }
+            return EVENT_LOOP_GROUP;
+        } finally {
+            EVENT_LOOP_GROUP_LOCK.unlock();
+        }
+    }
+
+    /**
+     * @return the shared worker thread pool, null if it is not created yet
+     */
+    static EventLoopGroup currentEventLoopGroup() {
+        return EVENT_LOOP_GROUP;
+    }
+
+    /**
+     * Add an isolated worker thread pool, clients are assigned to it by their {@link Constants#EVENT_LOOP_GROUP_KEY},
+     * their {@link Constants#TENANT_KEY} or their address. Takes effect for clients created afterwards.
+     */
+    public static void addBulkhead(EventLoopBulkhead bulkhead) {
+        for (EventLoopBulkhead b : BULKHEADS) {
+            if (b.getName().equals(bulkhead.getName())) {
+                throw new IllegalStateException("Duplicate event loop bulkhead: " + bulkhead.getName());
+            }
+        }
+        BULKHEADS.add(bulkhead);
+    }
+
+    public static List<EventLoopBulkhead> getBulkheads() {
+        return Collections.unmodifiableList(BULKHEADS);
+    }
+
+    /**
+     * tasks waiting in the shared worker thread pool
+     */
+    public static int getPendingTasks() {
+        return EventLoopBulkhead.pendingTasks(EVENT_LOOP_GROUP);
+    }
+
+    /**
+     * bulkhead of a client: the one named by the url, the one serving its tenant, or the first matching its address
+     */
+    private static EventLoopBulkhead bulkheadOf(URL url) {
+        if (BULKHEADS.isEmpty()) {
+            return null;
+        }
+        String name = url.getParameter(Constants.EVENT_LOOP_GROUP_KEY);
+        if (name != null) {
+            for (EventLoopBulkhead bulkhead : BULKHEADS) {
+                if (bulkhead.getName().equals(name)) {
+                    return bulkhead;
+                }
+            }
+            logger.warn("Event loop bulkhead " + name + " of " + url + " is not defined, use the shared worker thread pool.");
+            return null;
+        }
+        String tenant = url.getParameter(Constants.TENANT_KEY);
+        if (tenant != null) {
+            for (EventLoopBulkhead bulkhead : BULKHEADS) {
+                if (bulkhead.matchesTenant(tenant)) {
+                    return bulkhead;
+                }
+            }
+        }
+        for (EventLoopBulkhead bulkhead : BULKHEADS) {
+            if (bulkhead.matchesAddress(url)) {
+                return bulkhead;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the cached client
+     *
+     * @param socketAddress service socket address
+     * @return null if the client is not created yet
+     */
+    public static NettyClient getClient(InetSocketAddress socketAddress) {
+        return socketAddress == null ? null : CLIENT_MAP.get(socketAddress);
+    }
+
+    /**
+     * count of the cached clients
+     */
+    public static int getClientCount() {
+        return CLIENT_MAP.size();
+    }
+
+    /**
+     * live view of the cached clients, iterating it never blocks the clients being added or removed
+     */
+    public static Collection<NettyClient> getClients() {
+        return Collections.unmodifiableCollection(CLIENT_MAP.values());
+    }
+
+    /**
+     * requests of all clients waiting for their response
+     */
+    public static int getPendingRequests() {
+        int res = 0;
+        for (NettyClient client : CLIENT_MAP.values()) {
+            res += client.resultCollector.getPendingCount();
+        }
+        return res;
     }
 
     /**
@@ -76,9 +298,26 @@ public class NettyClient extends AbstractClient {
     public static NettyClient getOrAddClient(InetSocketAddress socketAddress, ChannelHandler handler) {
         if (socketAddress == null) return null;
 
+        return getOrAddClient(socketAddress, new URL(socketAddress.getHostString(), socketAddress.getPort()), handler);
+    }
+
+    /**
+     * Get the encapsulated client through netty's channel, a new client is created with the
+     * given url (and its transport parameters) when there is no cached one
+     *
+     * @param socketAddress service socket address
+     * @param url           client url used to create a new client
+     * @param handler       wrapper handler
+     * @return
+     */
+    public static NettyClient getOrAddClient(InetSocketAddress socketAddress, URL url, ChannelHandler handler) {
+        if (socketAddress == null) return null;
+
         NettyClient res = CLIENT_MAP.get(socketAddress);
         if (res == null) {
-            URL url = new URL(socketAddress.getHostString(), socketAddress.getPort());
+            if (shutdown) {
+                throw new RemotingException(null, socketAddress, "Failed to create client to " + socketAddress + ", cause: clients are shutting down.");
+            }
             NettyClient nettyClient = new NettyClient(url, handler);
             res = CLIENT_MAP.putIfAbsent(socketAddress, nettyClient);
             if (res == null) {
@@ -102,6 +341,76 @@ public class NettyClient extends AbstractClient {
         }
     }
 
+    /**
+     * Gracefully close all clients: new sends are rejected at once, then each client waits
+     * for its in-flight responses and flushes its outbound buffer within the shared deadline.
+     *
+     * @param timeout wait time(ms) for all clients
+     */
+    public static void closeAll(int timeout) {
+        shutdown = true;
+        long deadline = System.currentTimeMillis() + timeout;
+        for (NettyClient client : CLIENT_MAP.values()) {
+            client.startClose();
+        }
+        for (NettyClient client : CLIENT_MAP.values()) {
+            try {
+                client.close((int) Math.max(0, deadline - System.currentTimeMillis()));
+            } catch (Throwable t) {
+                logger.warn(t.getMessage(), t);
+            }
+        }
+        CLIENT_MAP.clear();
+    }
+
+    /**
+     * Allow creating clients again after {@link #closeAll(int)}
+     */
+    public static void start() {
+        shutdown = false;
+    }
+
+    /**
+     * Shutdown the private worker thread pool and the bulkheads, must be called after {@link #closeAll(int)}.
+     * An external pool is left to its owner. New pools are created on next use.
+     *
+     * @param timeout wait time(ms)
+     */
+    public static void shutdownEventLoopGroup(int timeout) {
+        long deadline = System.currentTimeMillis() + timeout;
+        for (EventLoopBulkhead bulkhead : BULKHEADS) {
+            bulkhead.shutdown(deadline - System.currentTimeMillis());
+        }
+        EventLoopGroup group;
+        EVENT_LOOP_GROUP_LOCK.lock();
+        try {
+            if (externalEventLoopGroup) {
+                return;
+            }
+            group = EVENT_LOOP_GROUP;
+            EVENT_LOOP_GROUP = null;
+        } finally {
+            EVENT_LOOP_GROUP_LOCK.unlock();
+        }
+        if (group != null) {
+            long remaining = Math.max(0, deadline - System.currentTimeMillis());
+            group.shutdownGracefully(0, remaining, TimeUnit.MILLISECONDS).awaitUninterruptibly(remaining);
+        }
+    }
+
+    /**
+     * Bytes pending in the outbound buffer of every connected client
+     *
+     * @return device address -> pending outbound bytes
+     */
+    public static Map<InetSocketAddress, Long> pendingOutboundBytes() {
+        Map<InetSocketAddress, Long> res = new HashMap<>();
+        for (Map.Entry<InetSocketAddress, NettyClient> entry : CLIENT_MAP.entrySet()) {
+            res.put(entry.getKey(), entry.getValue().getPendingOutboundBytes());
+        }
+        return res;
+    }
+
     /**
      * init bootstrap
      * @throws Throwable
@@ -110,12 +419,17 @@ public class NettyClient extends AbstractClient {
     protected void doOpen() throws Throwable {
         this.bootstrap = new Bootstrap();
         final NettyClientHandler nettyClientHandler = createNettyClientHandler();
+        this.clientHandler = nettyClientHandler;
         initBootstrap(nettyClientHandler);
     }
 
     @Override
     protected void doClose() throws Throwable {
-
+        CLIENT_MAP.remove(getConnectAddress(), this);
+        if (bulkhead != null) {
+            bulkhead.clientRemoved();
+        }
+        resultCollector.failAll(Response.CHANNEL_INACTIVE, "client closed: " + getUrl());
     }
 
     protected NettyClientHandler createNettyClientHandler() {
@@ -125,11 +439,24 @@ public class NettyClient extends AbstractClient {
     protected void initBootstrap(NettyClientHandler nettyClientHandler) {
         final CodecAdapter codecAdapter = new CodecAdapter();
 
-        bootstrap.group(EVENT_LOOP_GROUP)
+        bulkhead = bulkheadOf(getUrl());
+        final EventLoopGroup group;
+        if (bulkhead != null) {
+            group = bulkhead.getOrCreateGroup();
+            bulkhead.clientAdded();
+        } else {
+            group = getEventLoopGroup();
+        }
+        final Transport transport = transport(group);
+        bootstrap.group(group)
                 .option(ChannelOption.SO_KEEPALIVE, true)
                 .option(ChannelOption.TCP_NODELAY, true)
                 .option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
-                .channel(socketChannelClass());
+                .option(ChannelOption.WRITE_BUFFER_WATER_MARK, new WriteBufferWaterMark(
+                        getUrl().getParameter(WRITE_BUFFER_LOW_WATER_MARK_KEY, DEFAULT_WRITE_BUFFER_LOW_WATER_MARK),
+                        getUrl().getParameter(WRITE_BUFFER_HIGH_WATER_MARK_KEY, DEFAULT_WRITE_BUFFER_HIGH_WATER_MARK)))
+                .channel(socketChannelClass(transport));
+        applyTransportOptions(bootstrap, getUrl(), transport);
 
         bootstrap.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, Math.max(DEFAULT_CONNECT_TIMEOUT, getConnectTimeout()));
         bootstrap.handler(new ChannelInitializer<SocketChannel>() {
@@ -146,12 +473,22 @@ public class NettyClient extends AbstractClient {
 
     @Override
     protected void doConnect() throws Throwable {
+        adaptConnectTimeout();
         long start = System.currentTimeMillis();
+        Object connectEvent = JfrEvents.beginConnect();
         ChannelFuture future = bootstrap.connect(getConnectAddress());
         try {
             // wait specified time
-            boolean res = future.awaitUninterruptibly(getConnectTimeout(), TimeUnit.MILLISECONDS);
+            boolean res = FutureUtils.awaitUninterruptibly(future, getConnectTimeout());
+            if (connectEvent != null) {
+                JfrEvents.endConnect(connectEvent, getUrl().toInetSocketAddress(), res && future.isSuccess(), getConnectTimeout());
+            }
+            if (connectLatency != null && (res && future.isSuccess() || future.cause() == null)) {
+                // a refused connect says nothing about the latency, a timed out one is recorded as the timeout
+                connectLatency.record(Math.min(System.currentTimeMillis() - start, getConnectTimeout()));
+            }
             if (res && future.isSuccess()) {
+                ClientMetrics.connected(TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis() - start));
                 Channel channel = future.channel();
 
                 try {
@@ -180,9 +517,11 @@ public class NettyClient extends AbstractClient {
                         }
                     } else {
                         NettyClient.this.channel = channel;
+                        NettyClient.this.connectedAt = System.currentTimeMillis();
                     }
                 }
             } else if (future.cause() != null){
+                ClientMetrics.connectFailed();
                 // connection failed
                 Throwable cause = future.cause();
                 RemotingException remotingException = new RemotingException(this, "client(url: " + getLocalAddress() + ") failed to connect to server "
@@ -192,6 +531,7 @@ public class NettyClient extends AbstractClient {
 
                 throw remotingException;
             } else {
+                ClientMetrics.connectFailed();
                 // client side timeout
                 RemotingException remotingException = new RemotingException(this, "client(url: " + getLocalAddress() + ") failed to connect to server "
                         + getRemoteAddress() + " client-side timeout "
@@ -206,6 +546,38 @@ public class NettyClient extends AbstractClient {
         }
     }
 
+    /**
+     * Derive the timeout of the next connect from the connect latencies, within the configured floor and the
+     * configured connect timeout. Called under the connect lock.
+     */
+    private void adaptConnectTimeout() {
+        URL url = getUrl();
+        if (!url.getParameter(CONNECT_TIMEOUT_ADAPTIVE_KEY, false)) {
+            return;
+        }
+        if (connectLatency == null) {
+            connectLatency = new LatencyEstimator(CONNECT_LATENCY_ALPHA);
+            return;
+        }
+        long estimate = connectLatency.estimate(LatencyEstimator.zScore(
+                url.getParameter(CONNECT_TIMEOUT_PERCENTILE_KEY, DEFAULT_CONNECT_TIMEOUT_PERCENTILE)));
+        if (estimate < 0L) {
+            return;
+        }
+        int ceiling = url.getConnectTimeout();
+        int floor = Math.min(ceiling, url.getParameter(CONNECT_TIMEOUT_FLOOR_KEY, DEFAULT_CONNECT_TIMEOUT_FLOOR));
+        int timeout = (int) Math.max(floor, Math.min(ceiling, estimate));
+        setConnectTimeout(timeout);
+        bootstrap.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, timeout);
+    }
+
+    /**
+     * @return observed connect latencies, null unless the connect timeout is adaptive
+     */
+    public LatencyEstimator getConnectLatency() {
+        return connectLatency;
+    }
+
     @Override
     protected void doDisConnect() throws Throwable {
         try {
@@ -222,9 +594,109 @@ public class NettyClient extends AbstractClient {
         return NettyChannel.getOrAddChannel(channel, getUrl(), this);
     }
 
-    public Future<Response> request(Request request) {
-        Future<Response> future = resultCollector.createFuture(request);
-        send(request);
+    /**
+     * whether the outbound buffer is below the high water mark, a disconnected client is not writable
+     */
+    @Override
+    public boolean isWritable() {
+        Channel c = channel;
+        return c != null && c.isWritable();
+    }
+
+    /**
+     * Wait until the outbound buffer drains below the low water mark
+     *
+     * @param timeout wait time(ms)
+     * @return true if the client is writable
+     */
+    public boolean awaitWritable(long timeout) throws InterruptedException {
+        NettyChannel c = (NettyChannel) getChannel();
+        return c != null && c.awaitWritable(timeout);
+    }
+
+    public long getPendingOutboundBytes() {
+        // read from the netty channel, a lookup of a closed channel would create a wrapper
+        Channel c = channel;
+        ChannelOutboundBuffer outboundBuffer = c == null ? null : c.unsafe().outboundBuffer();
+        return outboundBuffer == null ? 0 : outboundBuffer.totalPendingWriteBytes();
+    }
+
+    public ResultCollector getResultCollector() {
+        return resultCollector;
+    }
+
+    /**
+     * @return time(ms) the current channel connected, 0 if it never connected
+     */
+    public long getConnectedAt() {
+        return channel == null ? 0L : connectedAt;
+    }
+
+    /**
+     * @return time(ms) of the latest read, 0 if nothing was read
+     */
+    public long getLastReadTime() {
+        return clientHandler.getLastReadTime();
+    }
+
+    /**
+     * @return time(ms) of the latest completed write, 0 if nothing was written
+     */
+    public long getLastWriteTime() {
+        return clientHandler.getLastWriteTime();
+    }
+
+    /**
+     * whether the current channel is active, read from the netty channel without a lookup
+     */
+    public boolean isChannelActive() {
+        Channel c = channel;
+        return c != null && c.isActive();
+    }
+
+    /**
+     * @return event loop of the current channel, null if it never connected
+     */
+    public EventLoop getEventLoop() {
+        Channel c = channel;
+        return c == null ? null : c.eventLoop();
+    }
+
+    /**
+     * @return name of the bulkhead serving the io, null for the shared worker thread pool
+     */
+    public String getBulkheadName() {
+        return bulkhead == null ? null : bulkhead.getName();
+    }
+
+    public ResponseFuture<Request, Response> request(Request request) {
+        return request(request, 0);
+    }
+
+    /**
+     * Send a request, the future is completed with {@link Response#CLIENT_TIMEOUT} if the device
+     * does not answer in time, so asynchronous callers always get a result.
+     * The request is dropped unsent once its deadline or the timeout passes.
+     *
+     * @param request request
+     * @param timeout wait time(ms), non-positive means no timeout besides the deadline of the request
+     * @return response future
+     */
+    @Override
+    public ResponseFuture<Request, Response> request(Request request, int timeout) {
+        ResponseFuture<Request, Response> future = resultCollector.createFuture(request, timeout, getRemoteAddress());
+        if (future.isDone()) {
+            // deadline exceeded before send
+            return future;
+        }
+        RequestTracer.start(request);
+        try {
+            // the future travels to the io thread, which registers it when the request is written
+            send(future);
+        } catch (RemotingException e) {
+            resultCollector.clear(future);
+            throw e;
+        }
         return future;
     }
 }
@@ -0,0 +1,342 @@
+package com.hikvision.websocket.netty;
+
+import com.hikvision.websocket.api.URL;
+import com.hikvision.websocket.constants.Constants;
+import com.hikvision.websocket.exception.RemotingException;
+import com.hikvision.websocket.netty.codec.CodecAdapter;
+import com.hikvision.websocket.netty.dispatcher.Dispatcher;
+import com.hikvision.websocket.netty.handler.AcceptRateLimiter;
+import com.hikvision.websocket.netty.handler.NettyServerHandler;
+import com.hikvision.websocket.netty.remoting.Channel;
+import com.hikvision.websocket.netty.remoting.ChannelHandler;
+import com.hikvision.websocket.netty.transport.AbstractServer;
+import com.hikvision.websocket.utils.NetUtils;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.util.concurrent.Future;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static com.hikvision.websocket.constants.CommonConstants.BACKLOG_KEY;
+import static com.hikvision.websocket.constants.CommonConstants.IO_THREADS_KEY;
+import static com.hikvision.websocket.constants.Constants.ACCEPTORS_KEY;
+import static com.hikvision.websocket.constants.Constants.ACCEPT_RATE_KEY;
+import static com.hikvision.websocket.constants.Constants.DEFAULT_ACCEPTORS;
+import static com.hikvision.websocket.constants.Constants.DEFAULT_BACKLOG;
+import static com.hikvision.websocket.constants.Constants.DEFAULT_IDENTIFY_TIMEOUT;
+import static com.hikvision.websocket.constants.Constants.DEFAULT_IDLE_TIMEOUT;
+import static com.hikvision.websocket.constants.Constants.DEFAULT_WRITE_BUFFER_HIGH_WATER_MARK;
+import static com.hikvision.websocket.constants.Constants.DEFAULT_WRITE_BUFFER_LOW_WATER_MARK;
+import static com.hikvision.websocket.constants.Constants.EVENT_LOOP_BOSS_POOL_NAME;
+import static com.hikvision.websocket.constants.Constants.EVENT_LOOP_WORKER_POOL_NAME;
+import static com.hikvision.websocket.constants.Constants.IDENTIFY_TIMEOUT_KEY;
+import static com.hikvision.websocket.constants.Constants.IDLE_TIMEOUT_KEY;
+import static com.hikvision.websocket.constants.Constants.WRITE_BUFFER_HIGH_WATER_MARK_KEY;
+import static com.hikvision.websocket.constants.Constants.WRITE_BUFFER_LOW_WATER_MARK_KEY;
+import static com.hikvision.websocket.factory.NettyEventLoopFactory.eventLoopGroup;
+import static com.hikvision.websocket.factory.NettyEventLoopFactory.isReusePortSupported;
+import static com.hikvision.websocket.factory.NettyEventLoopFactory.reusePort;
+import static com.hikvision.websocket.factory.NettyEventLoopFactory.serverSocketChannelClass;
+import static com.hikvision.websocket.factory.NettyEventLoopFactory.transport;
+
+/**
+ * Server accepting the connections of devices which can only dial out (e.g. behind NAT).
+ * <p>
+ * A device is identified by the struAddress of its first frame and registered as a {@link DeviceSession},
+ * requests by device id are then routed over its inbound connection. A connection holds no thread and
+ * only a few small objects, so a server keeps 100k devices with the default worker thread pool; raise the
+ * open file limit of the process and the backlog for reconnect storms accordingly.
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 14:50
+ */
+public class NettyServer extends AbstractServer {
+
+    private static final Logger logger = LoggerFactory.getLogger(NettyServer.class);
+
+    /**
+     * identified devices of all servers
+     */
+    private static final ConcurrentMap<String, DeviceSession> DEVICE_MAP = new ConcurrentHashMap<>();
+
+    /**
+     * the boss channels that receive connections and dispatch these to worker channel, one per acceptor
+     * bound to the same port
+     */
+    private List<io.netty.channel.Channel> acceptors;
+
+    private EventLoopGroup bossGroup;
+
+    /**
+     * worker thread pools, one per acceptor
+     */
+    private List<EventLoopGroup> workerGroups;
+
+    private NettyServerHandler serverHandler;
+
+    /**
+     * null unless the accept rate is limited
+     */
+    private AcceptRateLimiter acceptRateLimiter;
+
+    /**
+     * The super constructor runs {@link #doOpen()} before the field initializers of this class,
+     * so the fields it uses are assigned there and have no initializer.
+     */
+    public NettyServer(URL url, ChannelHandler handler) throws RemotingException {
+        super(url, Dispatcher.of(url).wrap(handler));
+    }
+
+    /**
+     * @return session of the device, null if it is not connected
+     */
+    public static DeviceSession getSession(String deviceId) {
+        return deviceId == null ? null : DEVICE_MAP.get(deviceId);
+    }
+
+    public static Collection<DeviceSession> getSessions() {
+        return Collections.unmodifiableCollection(DEVICE_MAP.values());
+    }
+
+    /**
+     * Bind the connection to the device, a previous connection of the device is closed
+     */
+    public DeviceSession identify(String deviceId, NettyChannel channel) {
+        DeviceSession session = new DeviceSession(deviceId, channel, this);
+        DeviceSession old = DEVICE_MAP.put(deviceId, session);
+        if (old != null) {
+            if (logger.isInfoEnabled()) {
+                logger.info("Device " + deviceId + " reconnected from " + channel.getRemoteAddress() + ", close the old connection " + old);
+            }
+            old.close();
+        }
+        if (logger.isInfoEnabled()) {
+            logger.info("Device " + deviceId + " connected from " + channel.getRemoteAddress());
+        }
+        return session;
+    }
+
+    public void unregister(DeviceSession session) {
+        if (DEVICE_MAP.remove(session.getDeviceId(), session) && logger.isInfoEnabled()) {
+            logger.info("Device " + session.getDeviceId() + " disconnected from " + session.getRemoteAddress());
+        }
+    }
+
+    /**
+     * Bind the acceptors. Several acceptors share the port with SO_REUSEPORT, the kernel spreads the
+     * connections over their accept queues and each acceptor hands them to its own worker threads,
+     * so a reconnect storm is not serialized by a single boss thread.
+     */
+    @Override
+    protected void doOpen() throws Throwable {
+        URL url = getUrl();
+        int acceptorCount = Math.max(1, url.getParameter(ACCEPTORS_KEY, DEFAULT_ACCEPTORS));
+        if (acceptorCount > 1 && !isReusePortSupported()) {
+            logger.warn("SO_REUSEPORT is not supported by the " + transport() + " transport, bind "
+                    + getBindAddress() + " with a single acceptor instead of " + acceptorCount + ".");
+            acceptorCount = 1;
+        }
+        int ioThreads = url.getParameter(IO_THREADS_KEY, Constants.DEFAULT_IO_THREADS);
+        if (ioThreads <= 0) {
+            ioThreads = Constants.DEFAULT_IO_THREADS;
+        }
+        int acceptRate = url.getParameter(ACCEPT_RATE_KEY, 0);
+        acceptRateLimiter = acceptRate > 0 ? new AcceptRateLimiter(acceptRate) : null;
+        serverHandler = new NettyServerHandler(url, this, url.getParameter(IDENTIFY_TIMEOUT_KEY, DEFAULT_IDENTIFY_TIMEOUT));
+        bossGroup = eventLoopGroup(acceptorCount, EVENT_LOOP_BOSS_POOL_NAME);
+        acceptors = new CopyOnWriteArrayList<>();
+        workerGroups = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < acceptorCount; i++) {
+            // every server channel registers on the next boss thread
+            EventLoopGroup workerGroup = eventLoopGroup(Math.max(1, ioThreads / acceptorCount), EVENT_LOOP_WORKER_POOL_NAME);
+            workerGroups.add(workerGroup);
+            ServerBootstrap bootstrap = new ServerBootstrap();
+            if (acceptorCount > 1) {
+                reusePort(bootstrap);
+            }
+            initBootstrap(bootstrap, workerGroup);
+            // bind
+            ChannelFuture channelFuture = bootstrap.bind(getBindAddress());
+            channelFuture.syncUninterruptibly();
+            acceptors.add(channelFuture.channel());
+        }
+    }
+
+    private void initBootstrap(ServerBootstrap bootstrap, EventLoopGroup workerGroup) {
+        URL url = getUrl();
+        final CodecAdapter codecAdapter = new CodecAdapter();
+        final int idleTimeout = url.getParameter(IDLE_TIMEOUT_KEY, DEFAULT_IDLE_TIMEOUT);
+        if (acceptRateLimiter != null) {
+            bootstrap.handler(acceptRateLimiter);
+        }
+        bootstrap.group(bossGroup, workerGroup)
+                .channel(serverSocketChannelClass())
+                .option(ChannelOption.SO_REUSEADDR, Boolean.TRUE)
+                .option(ChannelOption.SO_BACKLOG, url.getParameter(BACKLOG_KEY, DEFAULT_BACKLOG))
+                .childOption(ChannelOption.TCP_NODELAY, Boolean.TRUE)
+                .childOption(ChannelOption.SO_KEEPALIVE, Boolean.TRUE)
+                .childOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+                .childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, new WriteBufferWaterMark(
+                        url.getParameter(WRITE_BUFFER_LOW_WATER_MARK_KEY, DEFAULT_WRITE_BUFFER_LOW_WATER_MARK),
+                        url.getParameter(WRITE_BUFFER_HIGH_WATER_MARK_KEY, DEFAULT_WRITE_BUFFER_HIGH_WATER_MARK)))
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) throws Exception {
+                        ch.pipeline()
+                                .addLast("skipDecoder", codecAdapter.getSkipDecoder(1024, 2, 2, -4, 0))
+                                .addLast("decoder", codecAdapter.getDecoder())
+                                .addLast("encoder", codecAdapter.getEncoder())
+                                .addLast("server-idle-handler", new IdleStateHandler(idleTimeout, 0, 0, TimeUnit.MILLISECONDS))
+                                .addLast("handler", serverHandler);
+                    }
+                });
+    }
+
+    /**
+     * Graceful close: stop accepting, wait for the in-flight requests of the devices and then close
+     *
+     * @param timeout wait time(ms)
+     */
+    @Override
+    public void close(int timeout) {
+        startClose();
+        if (timeout > 0) {
+            long deadline = System.currentTimeMillis() + timeout;
+            if (acceptors != null) {
+                for (io.netty.channel.Channel acceptor : acceptors) {
+                    acceptor.close().awaitUninterruptibly(Math.max(0, deadline - System.currentTimeMillis()));
+                }
+            }
+            for (DeviceSession session : DEVICE_MAP.values()) {
+                if (session.getServer() == this) {
+                    session.startClose();
+                }
+            }
+            for (DeviceSession session : DEVICE_MAP.values()) {
+                if (session.getServer() == this) {
+                    try {
+                        session.close((int) Math.max(0, deadline - System.currentTimeMillis()));
+                    } catch (Throwable t) {
+                        logger.warn(t.getMessage(), t);
+                    }
+                }
+            }
+        }
+        close();
+    }
+
+    @Override
+    protected void doClose() throws Throwable {
+        if (acceptors != null) {
+            for (io.netty.channel.Channel acceptor : acceptors) {
+                try {
+                    // unbind.
+                    acceptor.close();
+                } catch (Throwable e) {
+                    logger.warn(e.getMessage(), e);
+                }
+            }
+        }
+        try {
+            Collection<Channel> channels = getChannels();
+            for (Channel channel : channels) {
+                try {
+                    channel.close();
+                } catch (Throwable e) {
+                    logger.warn(e.getMessage(), e);
+                }
+            }
+        } catch (Throwable e) {
+            logger.warn(e.getMessage(), e);
+        }
+        for (DeviceSession session : DEVICE_MAP.values()) {
+            if (session.getServer() == this) {
+                DEVICE_MAP.remove(session.getDeviceId(), session);
+            }
+        }
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            if (bossGroup != null) {
+                futures.add(bossGroup.shutdownGracefully(0, 0, TimeUnit.MILLISECONDS));
+            }
+            if (workerGroups != null) {
+                for (EventLoopGroup workerGroup : workerGroups) {
+                    futures.add(workerGroup.shutdownGracefully(0, 0, TimeUnit.MILLISECONDS));
+                }
+            }
+            for (Future<?> future : futures) {
+                future.syncUninterruptibly();
+            }
+        } catch (Throwable e) {
+            logger.warn(e.getMessage(), e);
+        }
+        try {
+            if (serverHandler != null) {
+                serverHandler.getChannels().clear();
+            }
+        } catch (Throwable e) {
+            logger.warn(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Collection<Channel> getChannels() {
+        if (serverHandler == null) {
+            return Collections.emptyList();
+        }
+        Collection<Channel> chs = new ArrayList<>(serverHandler.getChannels().size());
+        for (Channel channel : serverHandler.getChannels().values()) {
+            if (channel.isConnected()) {
+                chs.add(channel);
+            }
+        }
+        return chs;
+    }
+
+    @Override
+    public Channel getChannel(InetSocketAddress remoteAddress) {
+        return serverHandler == null ? null : serverHandler.getChannels().get(NetUtils.toAddressString(remoteAddress));
+    }
+
+    @Override
+    public boolean isBound() {
+        if (acceptors == null) {
+            return false;
+        }
+        for (io.netty.channel.Channel acceptor : acceptors) {
+            if (acceptor.isActive()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int getAcceptors() {
+        return acceptors == null ? 0 : acceptors.size();
+    }
+
+    /**
+     * @return connections closed at once as the accept rate was exceeded
+     */
+    public long getRejectedAccepts() {
+        AcceptRateLimiter limiter = acceptRateLimiter;
+        return limiter == null ? 0L : limiter.getRejected();
+    }
+}
@@ -0,0 +1,326 @@
+package com.hikvision.websocket.netty;
+
+import com.hikvision.websocket.netty.exchange.Priority;
+import com.hikvision.websocket.netty.exchange.Request;
+import com.hikvision.websocket.netty.exchange.Response;
+import com.hikvision.websocket.netty.exchange.ResponseFuture;
+import com.hikvision.websocket.netty.exchange.ResultCollector;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelPromise;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Multi-level outbound queue of a channel.
+ * <p>
+ * Messages are queued per {@link Priority} and written by the io thread while the channel is writable,
+ * so a high priority request never waits behind a bulk batch in the outbound buffer. Levels are served
+ * by weighted round robin: in every round a level writes at most its weight of messages before the lower
+ * levels get their turn, so low priority traffic is slowed down but never starved.
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 12:40
+ */
+public class OutboundScheduler {
+
+    private static final Priority[] PRIORITIES = Priority.values();
+
+    /**
+     * queue wait time of all channels per priority
+     */
+    private static final WaitStats[] WAIT_STATS = new WaitStats[PRIORITIES.length];
+
+    static {
+        for (int i = 0; i < WAIT_STATS.length; i++) {
+            WAIT_STATS[i] = new WaitStats();
+        }
+    }
+
+    private final Channel channel;
+
+    private final Queue<Entry>[] queues;
+
+    private final int[] weights;
+
+    /**
+     * writes left to each level in the current round, only accessed by the io thread
+     */
+    private final int[] credits;
+
+    private final AtomicInteger queued = new AtomicInteger();
+
+    /**
+     * content bytes of the queued requests
+     */
+    private final AtomicLong queuedBytes = new AtomicLong();
+
+    /**
+     * invoked on the io thread after queued messages moved to the outbound buffer
+     */
+    private final Runnable drained;
+
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+
+    private final Runnable drainTask = this::drain;
+
+    /**
+     * @param weights writes per round of each priority, in the order of {@link Priority}
+     */
+    @SuppressWarnings("unchecked")
+    OutboundScheduler(Channel channel, int[] weights, Runnable drained) {
+        if (weights.length != PRIORITIES.length) {
+            throw new IllegalArgumentException("Require " + PRIORITIES.length + " priority weights, but " + weights.length);
+        }
+        this.channel = channel;
+        this.drained = drained;
+        this.weights = weights.clone();
+        this.credits = weights.clone();
+        this.queues = new Queue[PRIORITIES.length];
+        for (int i = 0; i < queues.length; i++) {
+            if (weights[i] <= 0) {
+                throw new IllegalArgumentException("priority weight should be positive: " + weights[i]);
+            }
+            queues[i] = new ConcurrentLinkedQueue<>();
+        }
+    }
+
+    /**
+     * parse weights like "8,4,1"
+     */
+    static int[] parseWeights(String weights) {
+        String[] values = weights.split(",");
+        int[] res = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            res[i] = Integer.parseInt(values[i].trim());
+        }
+        return res;
+    }
+
+    /**
+     * Queue a message, it is written and flushed by the io thread
+     *
+     * @return write future of the message
+     */
+    ChannelFuture write(Object message) {
+        ChannelPromise promise = channel.newPromise();
+        Priority priority = priorityOf(message);
+        int bytes = bytesOf(message);
+        queues[priority.ordinal()].add(new Entry(message, promise, priority, bytes, System.nanoTime()));
+        queuedBytes.addAndGet(bytes);
+        queued.incrementAndGet();
+        if (channel.eventLoop().inEventLoop()) {
+            drain();
+        } else if (drainScheduled.compareAndSet(false, true)) {
+            channel.eventLoop().execute(drainTask);
+        }
+        return promise;
+    }
+
+    /**
+     * resume writing once the channel is writable again, or fail the queued messages once it is closed
+     */
+    void writabilityChanged() {
+        if (queued.get() > 0 && drainScheduled.compareAndSet(false, true)) {
+            channel.eventLoop().execute(drainTask);
+        }
+    }
+
+    /**
+     * messages waiting in the queues, not yet in the outbound buffer
+     */
+    int getQueued() {
+        return queued.get();
+    }
+
+    /**
+     * content bytes of the messages waiting in the queues
+     */
+    long getQueuedBytes() {
+        return queuedBytes.get();
+    }
+
+    private void drain() {
+        drainScheduled.set(false);
+        if (!channel.isActive()) {
+            failQueued();
+            return;
+        }
+        boolean written = false;
+        Entry entry;
+        while (channel.isWritable() && (entry = next()) != null) {
+            queued.decrementAndGet();
+            queuedBytes.addAndGet(-entry.bytes);
+            WAIT_STATS[entry.priority.ordinal()].record(System.nanoTime() - entry.enqueueTime);
+            channel.write(entry.message, entry.promise);
+            written = true;
+        }
+        if (written) {
+            channel.flush();
+            drained.run();
+        }
+        // the rest is written on writability change
+    }
+
+    /**
+     * weighted round robin over the levels, highest priority first
+     */
+    private Entry next() {
+        for (int round = 0; round < 2; round++) {
+            for (int i = 0; i < queues.length; i++) {
+                if (credits[i] > 0) {
+                    Entry entry = queues[i].poll();
+                    if (entry != null) {
+                        credits[i]--;
+                        return entry;
+                    }
+                }
+            }
+            // every level is either empty or out of credits, start a new round
+            System.arraycopy(weights, 0, credits, 0, credits.length);
+        }
+        return null;
+    }
+
+    /**
+     * fail the messages queued when the channel closed, a request queued after the pending requests were failed
+     * is completed here, else its caller would wait forever
+     */
+    @SuppressWarnings("unchecked")
+    private void failQueued() {
+        ClosedChannelException cause = new ClosedChannelException();
+        for (Queue<Entry> queue : queues) {
+            Entry entry;
+            while ((entry = queue.poll()) != null) {
+                queued.decrementAndGet();
+                queuedBytes.addAndGet(-entry.bytes);
+                entry.promise.tryFailure(cause);
+                if (entry.message instanceof ResponseFuture) {
+                    ResponseFuture<Request, Response> future = (ResponseFuture<Request, Response>) entry.message;
+                    ResultCollector collector = future.getResultCollector();
+                    if (collector != null) {
+                        collector.fail(future, Response.CHANNEL_INACTIVE, "channel inactive: " + channel.remoteAddress());
+                    } else {
+                        future.trySuccess(new Response(Response.CHANNEL_INACTIVE, "channel inactive: " + channel.remoteAddress()));
+                    }
+                }
+            }
+        }
+    }
+
+    static Priority priorityOf(Object message) {
+        if (message instanceof ResponseFuture) {
+            message = ((ResponseFuture<?, ?>) message).getRequest();
+        }
+        return message instanceof Request ? ((Request) message).getPriority() : Priority.NORMAL;
+    }
+
+    private static int bytesOf(Object message) {
+        if (message instanceof ResponseFuture) {
+            message = ((ResponseFuture<?, ?>) message).getRequest();
+        }
+        byte[] content = message instanceof Request ? ((Request) message).getContent() : null;
+        return content == null ? 0 : content.length;
+    }
+
+    /**
+     * queue wait time of the messages of a priority, over all channels
+     */
+    public static WaitStats getWaitStats(Priority priority) {
+        return WAIT_STATS[priority.ordinal()];
+    }
+
+    private static final class Entry {
+
+        private final Object message;
+
+        private final ChannelPromise promise;
+
+        private final Priority priority;
+
+        private final int bytes;
+
+        private final long enqueueTime;
+
+        private Entry(Object message, ChannelPromise promise, Priority priority, int bytes, long enqueueTime) {
+            this.message = message;
+            this.promise = promise;
+            this.priority = priority;
+            this.bytes = bytes;
+            this.enqueueTime = enqueueTime;
+        }
+    }
+
+    /**
+     * Queue wait time histogram, bucket i counts waits below 2^i microseconds
+     */
+    public static final class WaitStats {
+
+        private static final int BUCKETS = 32;
+
+        private final LongAdder count = new LongAdder();
+
+        private final LongAdder totalNanos = new LongAdder();
+
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        private final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+        private WaitStats() {
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            long max;
+            while (nanos > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, nanos)) {
+                // retry
+            }
+            long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+            int bucket = micros == 0 ? 0 : Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+            buckets[bucket].increment();
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getTotalNanos() {
+            return totalNanos.sum();
+        }
+
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+        /**
+         * @param quantile e.g. 0.99
+         * @return upper bound(us) of the bucket holding the quantile, 0 without samples
+         */
+        public long getQuantileMicros(double quantile) {
+            long total = count.sum();
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(quantile * total);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets[i].sum();
+                if (seen >= rank) {
+                    return 1L << i;
+                }
+            }
+            return 1L << (BUCKETS - 1);
+        }
+    }
+}
@@ -1,6 +1,10 @@
 package com.hikvision.websocket.netty.codec;
 
+import com.hikvision.websocket.metrics.ClientMetrics;
+import com.hikvision.websocket.metrics.RequestTracer;
+import com.hikvision.websocket.metrics.jfr.JfrEvents;
 import com.hikvision.websocket.netty.exchange.Request;
+import com.hikvision.websocket.netty.exchange.RequestTrace;
 import com.hikvision.websocket.netty.exchange.Response;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandler;
@@ -9,6 +13,7 @@ import io.netty.handler.codec.ByteToMessageDecoder;
 import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
 import io.netty.handler.codec.MessageToByteEncoder;
 
+import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.util.List;
 
@@ -42,6 +47,18 @@ public class CodecAdapter {
 
     static class SkipServerEchoEncoder extends LengthFieldBasedFrameDecoder {
 
+        /**
+         * whether a frame is decoded, the decoder belongs to a single channel
+         */
+        private boolean framed;
+
+        /**
+         * time(ns) the first bytes of the current and of the last decoded frame were read, only taken while tracing
+         */
+        private long frameStart;
+
+        private long lastFrameStart;
+
         public SkipServerEchoEncoder(int maxFrameLength, int lengthFieldOffset, int lengthFieldLength, int lengthAdjustment, int initialBytesToStrip) {
             super(maxFrameLength, lengthFieldOffset, lengthFieldLength, lengthAdjustment, initialBytesToStrip);
         }
@@ -51,12 +68,22 @@ public class CodecAdapter {
             // 本地模拟过程中初始连接设备时设备端会响应固定四字节的应答
             // 后续通信中会影响解码器的正常工作，故在此特判有且仅当当前
             // 可读字节数为4时跳过
-            // 可能会影响 LengthFieldBasedFrameDecoder 的正常工作 (后续实际部署测试)
-            if (in.readableBytes() == 4) {
+            // 只在首帧之前跳过，否则后续某次读取恰好剩余4字节时会吞掉半帧导致错位
+            if (!framed && in.readableBytes() == 4) {
                 in.skipBytes(in.readableBytes());
                 return null;
             }
-            return super.decode(ctx, in);
+            if (frameStart == 0L && in.isReadable() && RequestTracer.isEnabled()) {
+                frameStart = System.nanoTime();
+            }
+            Object frame = super.decode(ctx, in);
+            if (frame != null) {
+                framed = true;
+                // the frame is passed on before the next one is decoded
+                lastFrameStart = frameStart;
+                frameStart = 0L;
+            }
+            return frame;
         }
     }
 
@@ -64,8 +91,13 @@ public class CodecAdapter {
 
         @Override
         protected void encode(ChannelHandlerContext ctx, Request msg, ByteBuf out) throws Exception {
+            RequestTrace trace = msg == null ? null : msg.getTrace();
+            if (trace != null) {
+                trace.setEncoded(System.nanoTime());
+            }
             if (msg != null && msg.getContent() != null) {
                 out.writeBytes(msg.getContent());
+                ClientMetrics.bytesOut(msg.getContent().length);
             }
         }
     }
@@ -74,6 +106,7 @@ public class CodecAdapter {
 
         @Override
         protected void decode(ChannelHandlerContext ctx, ByteBuf msg, List<Object> out) throws Exception {
+            Object decodeEvent = JfrEvents.beginDecode();
             ByteBuf header = msg.readBytes(RESPONSE_HEAD_LENGTH);
             byte[] bytes = new byte[RESPONSE_HEAD_LENGTH];
             header.readBytes(bytes);
@@ -88,8 +121,18 @@ public class CodecAdapter {
                 byte[] contentBytes = new byte[bodyLen + RESPONSE_HEAD_LENGTH];
                 System.arraycopy(bytes, 0, contentBytes, 0, RESPONSE_HEAD_LENGTH);
                 msg.readBytes(contentBytes, RESPONSE_HEAD_LENGTH, bodyLen);
+                ClientMetrics.bytesIn(contentBytes.length);
                 Response response = new Response(contentBytes);
+                if (RequestTracer.isEnabled()) {
+                    SkipServerEchoEncoder framer = ctx.pipeline().get(SkipServerEchoEncoder.class);
+                    response.setFirstByteTime(framer == null ? 0L : framer.lastFrameStart);
+                    response.setDecodeTime(System.nanoTime());
+                }
                 out.add(response);
+                if (decodeEvent != null) {
+                    JfrEvents.endDecode(decodeEvent, (InetSocketAddress) ctx.channel().remoteAddress(),
+                            response.getCommand(), contentBytes.length);
+                }
             }
             header.release();
         }
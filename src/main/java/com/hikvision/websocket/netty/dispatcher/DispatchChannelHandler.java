@@ -0,0 +1,88 @@
+package com.hikvision.websocket.netty.dispatcher;
+
+import com.hikvision.websocket.exception.RemotingException;
+import com.hikvision.websocket.netty.remoting.Channel;
+import com.hikvision.websocket.netty.remoting.ChannelHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs the callbacks of the wrapped handler on the executor of their device, see {@link Dispatcher}
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 19:30
+ */
+class DispatchChannelHandler implements ChannelHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(DispatchChannelHandler.class);
+
+    private final ChannelHandler handler;
+
+    private final Dispatcher dispatcher;
+
+    DispatchChannelHandler(ChannelHandler handler, Dispatcher dispatcher) {
+        if (handler == null) {
+            throw new IllegalArgumentException("handler == null");
+        }
+        this.handler = handler;
+        this.dispatcher = dispatcher;
+    }
+
+    @Override
+    public void connected(Channel channel) throws RemotingException {
+        dispatch(channel, () -> handler.connected(channel));
+    }
+
+    @Override
+    public void disconnected(Channel channel) throws RemotingException {
+        dispatch(channel, () -> handler.disconnected(channel));
+    }
+
+    @Override
+    public void sent(Channel channel, Object message) throws RemotingException {
+        dispatch(channel, () -> handler.sent(channel, message));
+    }
+
+    @Override
+    public void received(Channel channel, Object message) throws RemotingException {
+        dispatch(channel, () -> handler.received(channel, message));
+    }
+
+    @Override
+    public void caught(Channel channel, Throwable exception) throws RemotingException {
+        dispatch(channel, () -> handler.caught(channel, exception));
+    }
+
+    private void dispatch(Channel channel, Callback callback) {
+        InetSocketAddress address = channel.getRemoteAddress();
+        Executor executor = dispatcher.executor(address != null ? address : channel);
+        Runnable task = () -> {
+            try {
+                callback.run();
+            } catch (Throwable t) {
+                logger.warn("Failed to handle the event of " + channel + " on the " + dispatcher.getName()
+                        + " dispatcher, cause: " + t.getMessage(), t);
+            }
+        };
+        if (executor == null) {
+            task.run();
+            return;
+        }
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            // the worker pool is gone, the io thread is the only one left
+            task.run();
+        }
+    }
+
+    @FunctionalInterface
+    private interface Callback {
+
+        void run() throws RemotingException;
+    }
+}
@@ -0,0 +1,178 @@
+package com.hikvision.websocket.netty.dispatcher;
+
+import com.hikvision.websocket.api.URL;
+import com.hikvision.websocket.constants.CommonConstants;
+import com.hikvision.websocket.netty.remoting.ChannelHandler;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static com.hikvision.websocket.constants.Constants.DEFAULT_DISPATCHER;
+import static com.hikvision.websocket.constants.Constants.DISPATCHER_ALL;
+import static com.hikvision.websocket.constants.Constants.DISPATCHER_DIRECT;
+import static com.hikvision.websocket.constants.Constants.DISPATCHER_KEY;
+import static com.hikvision.websocket.constants.Constants.DISPATCHER_ORDERED;
+
+/**
+ * Thread model of the {@link ChannelHandler} callbacks and the response listeners, chosen by
+ * {@link com.hikvision.websocket.constants.Constants#DISPATCHER_KEY}:
+ * <ul>
+ *     <li>direct: on the io thread, the handler must not block</li>
+ *     <li>all: on the shared worker pool, the callbacks of a device may run concurrently and out of order</li>
+ *     <li>ordered: on the shared worker pool, the callbacks of a device run one at a time in arrival order</li>
+ * </ul>
+ * The transport itself, e.g. correlating responses with requests, always stays on the io thread.
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 19:30
+ */
+public abstract class Dispatcher {
+
+    private static final Dispatcher DIRECT = new DirectDispatcher();
+
+    private static final Dispatcher ALL = new AllDispatcher();
+
+    private static final Dispatcher ORDERED = new OrderedDispatcher();
+
+    private static volatile int threads = CommonConstants.DEFAULT_THREADS;
+
+    private final DispatcherMetrics metrics = new DispatcherMetrics();
+
+    Dispatcher() {
+    }
+
+    /**
+     * @return dispatcher configured by the url, direct if not set
+     * @throws IllegalArgumentException if the dispatcher is unknown
+     */
+    public static Dispatcher of(URL url) {
+        return of(url.getParameter(DISPATCHER_KEY, DEFAULT_DISPATCHER));
+    }
+
+    /**
+     * @param name direct, all or ordered
+     * @throws IllegalArgumentException if the dispatcher is unknown
+     */
+    public static Dispatcher of(String name) {
+        switch (name.trim().toLowerCase(Locale.ROOT)) {
+            case DISPATCHER_DIRECT:
+                return DIRECT;
+            case DISPATCHER_ALL:
+                return ALL;
+            case DISPATCHER_ORDERED:
+                return ORDERED;
+            default:
+                throw new IllegalArgumentException("Unknown dispatcher " + name);
+        }
+    }
+
+    /**
+     * Size of the shared worker pool, takes effect when the pool is created
+     *
+     * @param threads worker thread count, non-positive means the default
+     */
+    public static void setThreads(int threads) {
+        Dispatcher.threads = threads > 0 ? threads : CommonConstants.DEFAULT_THREADS;
+    }
+
+    public abstract String getName();
+
+    public DispatcherMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @param key the device, callbacks of the same key keep their order if the dispatcher is ordered
+     * @return executor of the callbacks of the device, null means they run on the calling io thread
+     */
+    public abstract Executor executor(Object key);
+
+    /**
+     * @return handler running the callbacks of the given handler on this dispatcher
+     */
+    public ChannelHandler wrap(ChannelHandler handler) {
+        return new DispatchChannelHandler(handler, this);
+    }
+
+    /**
+     * @return the task recording the time from now until it starts as its queue latency
+     */
+    Runnable metered(Runnable task) {
+        long queuedAt = metrics.queued();
+        return () -> {
+            metrics.started(queuedAt);
+            task.run();
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "Dispatcher{name=" + getName() + ", metrics=" + metrics + "}";
+    }
+
+    private static final class DirectDispatcher extends Dispatcher {
+
+        @Override
+        public String getName() {
+            return DISPATCHER_DIRECT;
+        }
+
+        @Override
+        public Executor executor(Object key) {
+            return null;
+        }
+
+        @Override
+        public ChannelHandler wrap(ChannelHandler handler) {
+            return handler;
+        }
+    }
+
+    private static final class AllDispatcher extends Dispatcher {
+
+        private final Executor executor = task -> Workers.INSTANCE.execute(metered(task));
+
+        @Override
+        public String getName() {
+            return DISPATCHER_ALL;
+        }
+
+        @Override
+        public Executor executor(Object key) {
+            return executor;
+        }
+    }
+
+    private static final class OrderedDispatcher extends Dispatcher {
+
+        private final KeyedSerialExecutor executor = new KeyedSerialExecutor(task -> Workers.INSTANCE.execute(task));
+
+        @Override
+        public String getName() {
+            return DISPATCHER_ORDERED;
+        }
+
+        @Override
+        public Executor executor(Object key) {
+            // the queue latency includes the wait behind the earlier tasks of the device
+            return task -> executor.execute(key, metered(task));
+        }
+    }
+
+    /**
+     * shared worker pool of the all and ordered dispatchers, created on first use
+     */
+    private static final class Workers {
+
+        private static final ThreadPoolExecutor INSTANCE = new ThreadPoolExecutor(threads, threads,
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), new DefaultThreadFactory("websocket-dispatcher", true));
+
+        static {
+            INSTANCE.allowCoreThreadTimeOut(true);
+        }
+    }
+}
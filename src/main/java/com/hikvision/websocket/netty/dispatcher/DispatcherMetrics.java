@@ -0,0 +1,83 @@
+package com.hikvision.websocket.netty.dispatcher;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Queue depth and queue latency of the tasks of a {@link Dispatcher}, over all channels
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 19:30
+ */
+public final class DispatcherMetrics {
+
+    private final AtomicInteger queueDepth = new AtomicInteger();
+
+    private final LongAdder tasks = new LongAdder();
+
+    private final LongAdder queueNanos = new LongAdder();
+
+    private final AtomicLong maxQueueNanos = new AtomicLong();
+
+    DispatcherMetrics() {
+    }
+
+    /**
+     * @return enqueue time(ns) of the task
+     */
+    long queued() {
+        queueDepth.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    /**
+     * the task queued at the given time starts running
+     */
+    void started(long queuedAt) {
+        queueDepth.decrementAndGet();
+        long latency = System.nanoTime() - queuedAt;
+        tasks.increment();
+        queueNanos.add(latency);
+        long max;
+        while (latency > (max = maxQueueNanos.get()) && !maxQueueNanos.compareAndSet(max, latency)) {
+            // retry
+        }
+    }
+
+    /**
+     * tasks waiting for a worker thread, a growing value means the workers can not keep up
+     */
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    /**
+     * tasks started so far
+     */
+    public long getTasks() {
+        return tasks.sum();
+    }
+
+    /**
+     * mean time(ms) a task waited in the queue
+     */
+    public double getAverageQueueLatency() {
+        long count = tasks.sum();
+        return count == 0 ? 0D : (double) queueNanos.sum() / count / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * longest time(ms) a task waited in the queue
+     */
+    public long getMaxQueueLatency() {
+        return TimeUnit.NANOSECONDS.toMillis(maxQueueNanos.get());
+    }
+
+    @Override
+    public String toString() {
+        return "DispatcherMetrics{queueDepth=" + getQueueDepth() + ", tasks=" + getTasks()
+                + ", averageQueueLatency=" + getAverageQueueLatency() + "ms, maxQueueLatency=" + getMaxQueueLatency() + "ms}";
+    }
+}
@@ -0,0 +1,79 @@
+package com.hikvision.websocket.netty.dispatcher;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs the tasks of a key one at a time in submission order on a shared executor, tasks of different
+ * keys run in parallel. A key holds no thread and is forgotten once its tasks are done.
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 19:30
+ */
+class KeyedSerialExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(KeyedSerialExecutor.class);
+
+    private final Executor executor;
+
+    private final ConcurrentHashMap<Object, Lane> lanes = new ConcurrentHashMap<>();
+
+    KeyedSerialExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    void execute(Object key, Runnable task) {
+        // queued under the lock of the map entry, so a lane is never removed while a task joins it
+        Lane lane = lanes.compute(key, (k, l) -> {
+            Lane res = l == null ? new Lane(k) : l;
+            res.tasks.add(task);
+            return res;
+        });
+        lane.schedule();
+    }
+
+    private final class Lane implements Runnable {
+
+        private final Object key;
+
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+        private final AtomicBoolean running = new AtomicBoolean();
+
+        Lane(Object key) {
+            this.key = key;
+        }
+
+        void schedule() {
+            if (running.compareAndSet(false, true)) {
+                executor.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    try {
+                        task.run();
+                    } catch (Throwable t) {
+                        logger.warn("Failed to run the task of " + key + ", cause: " + t.getMessage(), t);
+                    }
+                }
+                running.set(false);
+                lanes.computeIfPresent(key, (k, l) -> l == this && l.tasks.isEmpty() ? null : l);
+                // a task queued after the poll, unless its submitter has scheduled this lane again
+                if (tasks.isEmpty() || !running.compareAndSet(false, true)) {
+                    return;
+                }
+            }
+        }
+    }
+}
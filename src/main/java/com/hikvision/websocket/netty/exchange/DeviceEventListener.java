@@ -0,0 +1,23 @@
+package com.hikvision.websocket.netty.exchange;
+
+import com.hikvision.websocket.netty.remoting.Channel;
+
+/**
+ * Listener of the frames a device sends on its own (alarms, status notifications), see {@link EventDispatcher}
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 17:10
+ */
+@FunctionalInterface
+public interface DeviceEventListener {
+
+    /**
+     * On device event. Invoked on the io thread of the connection in arrival order and must not block,
+     * unless the connection dispatches to worker threads: in arrival order with {@code ordered}, concurrently
+     * and out of order with {@code all}, see {@link com.hikvision.websocket.netty.dispatcher.Dispatcher}.
+     *
+     * @param channel connection of the device, outbound client or inbound device
+     * @param event   the frame, starting with the header
+     */
+    void onEvent(Channel channel, Response event);
+}
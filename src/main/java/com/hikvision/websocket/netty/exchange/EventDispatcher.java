@@ -0,0 +1,153 @@
+package com.hikvision.websocket.netty.exchange;
+
+import com.hikvision.websocket.netty.remoting.Channel;
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Dispatch table of device events indexed by dwCommand.
+ * <p>
+ * A frame whose dwCommand has a listener is an event, it never completes a request, otherwise it is a response
+ * correlated by {@link ResultCollector}. A frame no request waits for is an event too, it is only seen by the
+ * listeners of all commands unless its command has listeners. Register the commands of the events before
+ * requests are sent, so an alarm can not be mistaken for the answer of a pending request.
+ * <p>
+ * The table is copied on change and read without locks, the lookup on the io thread is a single primitive
+ * hash probe.
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 17:10
+ */
+public class EventDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(EventDispatcher.class);
+
+    private static final DeviceEventListener[] EMPTY = new DeviceEventListener[0];
+
+    private static final EventDispatcher INSTANCE = new EventDispatcher();
+
+    /**
+     * dwCommand -> listeners, replaced on change
+     */
+    private volatile IntObjectMap<DeviceEventListener[]> table = new IntObjectHashMap<>();
+
+    /**
+     * listeners of all commands
+     */
+    private volatile DeviceEventListener[] any = EMPTY;
+
+    private final LongAdder dispatched = new LongAdder();
+
+    private final LongAdder unhandled = new LongAdder();
+
+    public static EventDispatcher getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * whether frames of the command are events
+     */
+    public boolean isEvent(int command) {
+        return table.containsKey(command);
+    }
+
+    public synchronized void addListener(int command, DeviceEventListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("listener == null");
+        }
+        IntObjectMap<DeviceEventListener[]> copy = new IntObjectHashMap<>(table.size() + 1);
+        copy.putAll(table);
+        DeviceEventListener[] listeners = copy.get(command);
+        copy.put(command, append(listeners == null ? EMPTY : listeners, listener));
+        table = copy;
+    }
+
+    /**
+     * listen to the events of all commands, which does not make any command an event
+     */
+    public synchronized void addListener(DeviceEventListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("listener == null");
+        }
+        any = append(any, listener);
+    }
+
+    /**
+     * remove the listener from all commands it listens to
+     */
+    public synchronized void removeListener(DeviceEventListener listener) {
+        IntObjectMap<DeviceEventListener[]> copy = new IntObjectHashMap<>(table.size());
+        for (IntObjectMap.PrimitiveEntry<DeviceEventListener[]> entry : table.entries()) {
+            DeviceEventListener[] listeners = remove(entry.value(), listener);
+            if (listeners.length > 0) {
+                copy.put(entry.key(), listeners);
+            }
+        }
+        table = copy;
+        any = remove(any, listener);
+    }
+
+    /**
+     * Invoke the listeners of the event, a failing listener does not affect the others
+     */
+    public void dispatch(Channel channel, Response event) {
+        DeviceEventListener[] listeners = table.get(event.getCommand());
+        DeviceEventListener[] all = any;
+        if (listeners == null && all.length == 0) {
+            unhandled.increment();
+            if (logger.isDebugEnabled()) {
+                logger.debug("No listener of the event " + event.getCommand() + " from " + channel.getRemoteAddress());
+            }
+            return;
+        }
+        dispatched.increment();
+        if (listeners != null) {
+            invoke(listeners, channel, event);
+        }
+        invoke(all, channel, event);
+    }
+
+    private static void invoke(DeviceEventListener[] listeners, Channel channel, Response event) {
+        for (DeviceEventListener listener : listeners) {
+            try {
+                listener.onEvent(channel, event);
+            } catch (Throwable t) {
+                logger.warn("Failed to notify event " + event.getCommand() + " from " + channel.getRemoteAddress()
+                        + " to " + listener + ", cause: " + t.getMessage(), t);
+            }
+        }
+    }
+
+    public long getDispatched() {
+        return dispatched.sum();
+    }
+
+    /**
+     * @return events without any listener
+     */
+    public long getUnhandled() {
+        return unhandled.sum();
+    }
+
+    private static DeviceEventListener[] append(DeviceEventListener[] listeners, DeviceEventListener listener) {
+        DeviceEventListener[] result = Arrays.copyOf(listeners, listeners.length + 1);
+        result[listeners.length] = listener;
+        return result;
+    }
+
+    private static DeviceEventListener[] remove(DeviceEventListener[] listeners, DeviceEventListener listener) {
+        int n = 0;
+        DeviceEventListener[] result = new DeviceEventListener[listeners.length];
+        for (DeviceEventListener l : listeners) {
+            if (l != listener) {
+                result[n++] = l;
+            }
+        }
+        return n == listeners.length ? listeners : Arrays.copyOf(result, n);
+    }
+}
@@ -0,0 +1,54 @@
+package com.hikvision.websocket.netty.exchange;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the requests dropped because their deadline passed, over all clients
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 13:10
+ */
+public final class ExpiredRequests {
+
+    private static final LongAdder DROPPED_BEFORE_ENQUEUE = new LongAdder();
+
+    private static final LongAdder DROPPED_BEFORE_WRITE = new LongAdder();
+
+    private static final LongAdder EXPIRED_ON_COMPLETION = new LongAdder();
+
+    private ExpiredRequests() {
+    }
+
+    static void droppedBeforeEnqueue() {
+        DROPPED_BEFORE_ENQUEUE.increment();
+    }
+
+    public static void droppedBeforeWrite() {
+        DROPPED_BEFORE_WRITE.increment();
+    }
+
+    static void expiredOnCompletion() {
+        EXPIRED_ON_COMPLETION.increment();
+    }
+
+    /**
+     * requests expired before they were queued for sending
+     */
+    public static long getDroppedBeforeEnqueue() {
+        return DROPPED_BEFORE_ENQUEUE.sum();
+    }
+
+    /**
+     * requests expired in the outbound queue, never encoded nor written
+     */
+    public static long getDroppedBeforeWrite() {
+        return DROPPED_BEFORE_WRITE.sum();
+    }
+
+    /**
+     * responses arrived after the deadline of their request, discarded
+     */
+    public static long getExpiredOnCompletion() {
+        return EXPIRED_ON_COMPLETION.sum();
+    }
+}
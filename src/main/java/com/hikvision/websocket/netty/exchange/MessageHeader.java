@@ -0,0 +1,66 @@
+package com.hikvision.websocket.netty.exchange;
+
+/**
+ * Field accessors of the message header shared by requests and responses
+ * <pre>
+ * 28byte in total
+ * |0--------------1|2--------------3|4-------------15|16-------------19|20------------21|22------------|23------------27|
+ *   wPakageHeader       wLength        struAddress         dwCommand         wStatus         byVersion     byRes[5]
+ * </pre>
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 11:40
+ */
+public final class MessageHeader {
+
+    public static final int HEAD_LENGTH = 28;
+
+    public static final int ADDRESS_OFFSET = 4;
+
+    public static final int ADDRESS_LENGTH = 12;
+
+    public static final int COMMAND_OFFSET = 16;
+
+    /**
+     * returned when the content is too short to carry a header
+     */
+    public static final int UNKNOWN_COMMAND = -1;
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private MessageHeader() {
+    }
+
+    /**
+     * Identity of the device sending a message, struAddress in upper case hex
+     *
+     * @param content message content, starting with the header
+     * @return device id, null if there is no header
+     */
+    public static String deviceId(byte[] content) {
+        if (content == null || content.length < ADDRESS_OFFSET + ADDRESS_LENGTH) {
+            return null;
+        }
+        char[] id = new char[ADDRESS_LENGTH * 2];
+        for (int i = 0; i < ADDRESS_LENGTH; i++) {
+            int b = content[ADDRESS_OFFSET + i] & 0xFF;
+            id[i * 2] = HEX[b >>> 4];
+            id[i * 2 + 1] = HEX[b & 0x0F];
+        }
+        return new String(id);
+    }
+
+    /**
+     * @param content message content, starting with the header
+     * @return dwCommand, {@link #UNKNOWN_COMMAND} if there is no header
+     */
+    public static int command(byte[] content) {
+        if (content == null || content.length < COMMAND_OFFSET + 4) {
+            return UNKNOWN_COMMAND;
+        }
+        return ((content[COMMAND_OFFSET] & 0xFF) << 24)
+                | ((content[COMMAND_OFFSET + 1] & 0xFF) << 16)
+                | ((content[COMMAND_OFFSET + 2] & 0xFF) << 8)
+                | (content[COMMAND_OFFSET + 3] & 0xFF);
+    }
+}
@@ -0,0 +1,22 @@
+package com.hikvision.websocket.netty.exchange;
+
+/**
+ * Send priority of a request on its connection
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 12:40
+ */
+public enum Priority {
+
+    /**
+     * interactive control commands, e.g. ptz and alarm acknowledgement
+     */
+    HIGH,
+
+    NORMAL,
+
+    /**
+     * bulk traffic, e.g. status queries and synchronization
+     */
+    LOW
+}
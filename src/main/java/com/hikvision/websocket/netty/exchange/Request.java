@@ -13,10 +13,27 @@ public class Request {
      */
     private byte[] content;
 
+    private Priority priority = Priority.NORMAL;
+
+    /**
+     * absolute deadline(epoch ms), 0 means none. An expired request is dropped instead of sent.
+     */
+    private long deadline;
+
+    /**
+     * lifecycle timestamps, null unless the request is sampled, see {@link com.hikvision.websocket.metrics.RequestTracer}
+     */
+    private RequestTrace trace;
+
     public Request(byte[] content) {
         this.content = content;
     }
 
+    public Request(byte[] content, Priority priority) {
+        this.content = content;
+        setPriority(priority);
+    }
+
     public byte[] getContent() {
         return content;
     }
@@ -24,4 +41,49 @@ public class Request {
     public void setContent(byte[] content) {
         this.content = content;
     }
+
+    public Priority getPriority() {
+        return priority;
+    }
+
+    public void setPriority(Priority priority) {
+        this.priority = priority == null ? Priority.NORMAL : priority;
+    }
+
+    public long getDeadline() {
+        return deadline;
+    }
+
+    public void setDeadline(long deadline) {
+        this.deadline = deadline;
+    }
+
+    /**
+     * set the deadline relative to now
+     *
+     * @param timeout time(ms) from now
+     */
+    public Request deadlineAfter(long timeout) {
+        this.deadline = System.currentTimeMillis() + timeout;
+        return this;
+    }
+
+    public RequestTrace getTrace() {
+        return trace;
+    }
+
+    public void setTrace(RequestTrace trace) {
+        this.trace = trace;
+    }
+
+    public boolean isExpired() {
+        return deadline > 0 && System.currentTimeMillis() >= deadline;
+    }
+
+    /**
+     * @return dwCommand of the request header
+     */
+    public int getCommand() {
+        return MessageHeader.command(content);
+    }
 }
@@ -0,0 +1,94 @@
+package com.hikvision.websocket.netty.exchange;
+
+/**
+ * Lifecycle timestamps(ns, {@link System#nanoTime()}) of a sampled request, 0 means the phase was not reached,
+ * e.g. the response of a timed out request never arrived
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 20:50
+ */
+public final class RequestTrace {
+
+    /**
+     * queued for sending
+     */
+    private final long enqueued;
+
+    private volatile long encoded;
+
+    /**
+     * the write of the request completed, it is in the socket buffer
+     */
+    private volatile long flushed;
+
+    /**
+     * the first bytes of the response frame were read
+     */
+    private volatile long firstByte;
+
+    private volatile long decoded;
+
+    private volatile long completed;
+
+    public RequestTrace(long enqueued) {
+        this.enqueued = enqueued;
+    }
+
+    public long getEnqueued() {
+        return enqueued;
+    }
+
+    public long getEncoded() {
+        return encoded;
+    }
+
+    public void setEncoded(long encoded) {
+        this.encoded = encoded;
+    }
+
+    public long getFlushed() {
+        return flushed;
+    }
+
+    public void setFlushed(long flushed) {
+        this.flushed = flushed;
+    }
+
+    public long getFirstByte() {
+        return firstByte;
+    }
+
+    public void setFirstByte(long firstByte) {
+        this.firstByte = firstByte;
+    }
+
+    public long getDecoded() {
+        return decoded;
+    }
+
+    public void setDecoded(long decoded) {
+        this.decoded = decoded;
+    }
+
+    public long getCompleted() {
+        return completed;
+    }
+
+    public void setCompleted(long completed) {
+        this.completed = completed;
+    }
+
+    /**
+     * @return time(ns) between the two timestamps, -1 if either phase was not reached
+     */
+    public static long between(long from, long to) {
+        return from == 0L || to == 0L ? -1L : to - from;
+    }
+
+    @Override
+    public String toString() {
+        return "RequestTrace{queue=" + between(enqueued, encoded) + "ns, flush=" + between(encoded, flushed)
+                + "ns, network=" + between(flushed, firstByte) + "ns, decode=" + between(firstByte, decoded)
+                + "ns, complete=" + between(decoded, completed) + "ns, total=" + between(enqueued, completed) + "ns}";
+    }
+}
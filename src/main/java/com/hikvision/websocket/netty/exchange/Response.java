@@ -73,6 +73,13 @@ public class Response {
      */
     private String errorMsg;
 
+    /**
+     * time(ns) the first bytes of the frame were read and the frame was decoded, 0 unless traced
+     */
+    private long firstByteTime;
+
+    private long decodeTime;
+
     public Response(byte[] content) {
         this.content = content;
     }
@@ -90,6 +97,13 @@ public class Response {
         this.content = content;
     }
 
+    /**
+     * @return dwCommand of the response header, {@link MessageHeader#UNKNOWN_COMMAND} for error responses
+     */
+    public int getCommand() {
+        return MessageHeader.command(content);
+    }
+
     public byte getStatus() {
         return status;
     }
@@ -97,4 +111,24 @@ public class Response {
     public void setStatus(byte status) {
         this.status = status;
     }
+
+    public String getErrorMsg() {
+        return errorMsg;
+    }
+
+    public long getFirstByteTime() {
+        return firstByteTime;
+    }
+
+    public void setFirstByteTime(long firstByteTime) {
+        this.firstByteTime = firstByteTime;
+    }
+
+    public long getDecodeTime() {
+        return decodeTime;
+    }
+
+    public void setDecodeTime(long decodeTime) {
+        this.decodeTime = decodeTime;
+    }
 }
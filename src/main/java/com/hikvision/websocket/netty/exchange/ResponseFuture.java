@@ -1,7 +1,20 @@
 package com.hikvision.websocket.netty.exchange;
 
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import javax.naming.CommunicationException;
+import java.util.Queue;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static com.hikvision.websocket.constants.Constants.TICKS_PER_WHEEL;
 
 /**
  * asynchronous response future
@@ -11,14 +24,53 @@ import java.util.concurrent.*;
  */
 public class ResponseFuture<T, R> implements Future<R> {
 
+    private static final Logger logger = LoggerFactory.getLogger(ResponseFuture.class);
+
+    /**
+     * completes the futures whose response did not arrive in time
+     */
+    private static final Timer TIME_OUT_TIMER = new HashedWheelTimer(
+            new DefaultThreadFactory("websocket-future-timeout", true), 30, TimeUnit.MILLISECONDS, TICKS_PER_WHEEL);
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<ResponseFuture, Object> RESPONSE_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(ResponseFuture.class, Object.class, "response");
+
     T request;
 
     volatile R response;
 
+    /**
+     * null if the future is not tied to a connection, e.g. a request waiting to be sent
+     */
     ResultCollector resultCollector;
 
     private final CountDownLatch lock = new CountDownLatch(1);
 
+    private final Queue<Consumer<? super R>> listeners = new ConcurrentLinkedQueue<>();
+
+    private volatile Timeout timeoutCheckTask;
+
+    /**
+     * absolute deadline(epoch ms) set by {@link #timeout(long, Supplier)}, 0 means none
+     */
+    private volatile long deadline;
+
+    /**
+     * whether the request is written to the connection
+     */
+    private volatile boolean sent;
+
+    /**
+     * creation time(ns) of the future, the start of the request latency
+     */
+    final long createdAt = System.nanoTime();
+
+    /**
+     * JFR round trip event, null while not recorded
+     */
+    Object requestEvent;
+
     public ResponseFuture(T request, ResultCollector resultCollector) {
         this.request = request;
         this.resultCollector = resultCollector;
@@ -43,7 +95,7 @@ public class ResponseFuture<T, R> implements Future<R> {
     public R get() throws InterruptedException, ExecutionException {
         lock.await();
         if (isDone()) {
-            resultCollector.clear(this);
+            clear();
             return response;
         }
         throw new ExecutionException(new CommunicationException());
@@ -51,16 +103,134 @@ public class ResponseFuture<T, R> implements Future<R> {
 
     @Override
     public R get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
-        lock.await(timeout, unit);
-        if (isDone()) {
-            resultCollector.clear(this);
+        if (lock.await(timeout, unit)) {
+            clear();
+            return response;
+        }
+        // nobody waits for the response any more, a written request keeps its place for the late reply
+        if (resultCollector != null && !resultCollector.timeout(this, "Timeout waiting for response result")) {
+            // completed between the wait and the timeout, e.g. the reply arrived
+            clear();
             return response;
         }
         throw new TimeoutException("Timeout waiting for response result");
     }
 
-    public void trySuccess(R response) {
-        this.response = response;
+    public T getRequest() {
+        return request;
+    }
+
+    /**
+     * @return collector of the connection, null if the future is not tied to one
+     */
+    public ResultCollector getResultCollector() {
+        return resultCollector;
+    }
+
+    public long getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * whether the request reached the connection, an unsent request says nothing about the device
+     */
+    public boolean isSent() {
+        return sent;
+    }
+
+    void markSent() {
+        sent = true;
+    }
+
+    /**
+     * whether nobody waits for the response any more
+     */
+    public boolean isExpired(long now) {
+        long d = deadline;
+        return d > 0 && now >= d;
+    }
+
+    /**
+     * Complete the future, only the first response takes effect
+     *
+     * @param response response
+     * @return true if this call completed the future
+     */
+    public boolean trySuccess(R response) {
+        if (!RESPONSE_UPDATER.compareAndSet(this, null, response)) {
+            return false;
+        }
         lock.countDown();
+        if (resultCollector != null) {
+            resultCollector.completed(this, response);
+        }
+        Timeout task = timeoutCheckTask;
+        if (task != null) {
+            task.cancel();
+        }
+        Executor executor = resultCollector == null ? null : resultCollector.getExecutor();
+        if (executor == null || listeners.isEmpty()) {
+            notifyListeners();
+            return true;
+        }
+        try {
+            executor.execute(this::notifyListeners);
+        } catch (RejectedExecutionException e) {
+            notifyListeners();
+        }
+        return true;
+    }
+
+    /**
+     * Invoke the listener once the future is completed, directly if it is already done.
+     * Listeners run on the completing thread, which is usually an io thread, and must not block,
+     * unless the connection dispatches them to worker threads, see {@link com.hikvision.websocket.netty.dispatcher.Dispatcher}.
+     *
+     * @param listener response listener
+     * @return this future
+     */
+    public ResponseFuture<T, R> addListener(Consumer<? super R> listener) {
+        listeners.add(listener);
+        if (isDone()) {
+            notifyListeners();
+        }
+        return this;
+    }
+
+    /**
+     * Complete the future with the given response when it is not done in time
+     *
+     * @param timeout         wait time(ms)
+     * @param timeoutResponse creates the response used on timeout
+     */
+    public void timeout(long timeout, Supplier<? extends R> timeoutResponse) {
+        if (timeout <= 0 || isDone()) {
+            return;
+        }
+        deadline = System.currentTimeMillis() + timeout;
+        timeoutCheckTask = TIME_OUT_TIMER.newTimeout(t -> {
+            if (!isDone()) {
+                // a written request keeps its place in the reply order, see ResultCollector#clear
+                clear();
+                trySuccess(timeoutResponse.get());
+            }
+        }, timeout, TimeUnit.MILLISECONDS);
+    }
+
+    private void clear() {
+        if (resultCollector != null) {
+            resultCollector.clear(this);
+        }
+    }
+
+    private void notifyListeners() {
+        Consumer<? super R> listener;
+        while ((listener = listeners.poll()) != null) {
+            try {
+                listener.accept(response);
+            } catch (Throwable t) {
+                logger.warn("Failed to notify response listener, cause: " + t.getMessage(), t);
+            }
+        }
     }
 }
@@ -1,8 +1,18 @@
 package com.hikvision.websocket.netty.exchange;
 
-import java.util.Iterator;
-import java.util.WeakHashMap;
-import java.util.concurrent.Future;
+import com.hikvision.websocket.constants.Constants;
+import com.hikvision.websocket.metrics.ClientMetrics;
+import com.hikvision.websocket.metrics.RequestTracer;
+import com.hikvision.websocket.metrics.jfr.JfrEvents;
+
+import java.net.InetSocketAddress;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * ResultCollector
@@ -12,26 +22,285 @@ import java.util.concurrent.Future;
  */
 public class ResultCollector {
 
-    WeakHashMap<ResponseFuture<Request, Response>, Response> container = new WeakHashMap();
+    /**
+     * written futures in write order, the device answers the requests of a connection in order.
+     * Requests may be written in another order than created since the outbound queue is prioritized,
+     * so a future joins this queue when its request is written, see {@link #sent(ResponseFuture)}.
+     * A future completed before its reply (e.g. timed out) stays here as a placeholder until the late reply
+     * consumes it, so that reply can not be taken for the reply of a later request.
+     */
+    private final Queue<ResponseFuture<Request, Response>> container = new ConcurrentLinkedQueue<>();
+
+    /**
+     * futures created and not completed yet, written or not
+     */
+    private final Set<ResponseFuture<Request, Response>> outstanding = ConcurrentHashMap.newKeySet();
+
+    private final AtomicInteger pending = new AtomicInteger();
+
+    /**
+     * runs the listeners of the completed futures, null means the completing thread
+     */
+    private volatile Executor executor;
+
+    /**
+     * address of the device, for the per device metrics
+     */
+    private volatile InetSocketAddress remoteAddress;
 
-    public void received(Object obj) {
-        Iterator<ResponseFuture<Request, Response>> iterator = container.keySet().iterator();
-        if (iterator.hasNext()) {
-            ResponseFuture<Request, Response> future = iterator.next();
-            if (obj instanceof Response) {
-                Response response = (Response) obj;
+    /**
+     * smoothed latency(ns) of the answered and timed out requests with a gain of 1/8 like the srtt of tcp,
+     * updated without synchronization as a lost sample does not matter for diagnostics
+     */
+    private volatile long smoothedLatency;
+
+    /**
+     * Complete the future of the response: the first written request with the same dwCommand,
+     * the head of the queue if no command matches (e.g. the device answers with an error frame)
+     *
+     * @return false if no request waits for the message, it is sent by the device on its own
+     */
+    public boolean received(Object obj) {
+        if (obj instanceof Response) {
+            Response response = (Response) obj;
+            ResponseFuture<Request, Response> future = poll(response.getCommand());
+            if (future == null) {
+                return false;
+            }
+            boolean live = outstanding.remove(future);
+            if (live) {
+                pending.decrementAndGet();
+            }
+            if (!live || future.isExpired(System.currentTimeMillis())) {
+                // the reply of a timed out request, or the caller gave up before the timeout task ran
+                ExpiredRequests.expiredOnCompletion();
+                future.trySuccess(new Response(Response.CLIENT_TIMEOUT, "Response arrived after the deadline"));
+            } else {
                 future.trySuccess(response);
             }
+            return true;
         }
+        return false;
+    }
+
+    public ResponseFuture<Request, Response> createFuture(Request request) {
+        ResponseFuture<Request, Response> future = new ResponseFuture<>(request, this);
+        future.requestEvent = JfrEvents.beginRequest();
+        pending.incrementAndGet();
+        outstanding.add(future);
+        return future;
+    }
+
+    /**
+     * Create the future of a request about to be sent, it is completed with {@link Response#CLIENT_TIMEOUT}
+     * once the timeout or the deadline of the request passes
+     *
+     * @param timeout       wait time(ms), non-positive means no timeout besides the deadline of the request
+     * @param remoteAddress address of the device, for the timeout message
+     * @return an already completed future if the deadline has passed, the request must not be sent then
+     */
+    public ResponseFuture<Request, Response> createFuture(Request request, int timeout, InetSocketAddress remoteAddress) {
+        int wait = timeout;
+        if (request.getDeadline() > 0) {
+            long remaining = request.getDeadline() - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return createExpiredFuture(request);
+            }
+            wait = wait > 0 ? (int) Math.min(wait, remaining) : (int) Math.min(Integer.MAX_VALUE, remaining);
+        }
+        int effectiveTimeout = wait;
+        ResponseFuture<Request, Response> future = createFuture(request);
+        future.timeout(effectiveTimeout, () -> new Response(Response.CLIENT_TIMEOUT,
+                "Waiting response timeout(" + effectiveTimeout + "ms) from " + remoteAddress));
+        return future;
     }
 
-    public Future<Response> createFuture(Request request) {
+    /**
+     * A future completed with {@link Response#CLIENT_TIMEOUT} for a request whose deadline passed before it is sent
+     */
+    public ResponseFuture<Request, Response> createExpiredFuture(Request request) {
+        ExpiredRequests.droppedBeforeEnqueue();
         ResponseFuture<Request, Response> future = new ResponseFuture<>(request, this);
-        container.put(future, null);
+        future.trySuccess(new Response(Response.CLIENT_TIMEOUT, "Deadline exceeded before send"));
         return future;
     }
 
+    /**
+     * the request of the future is being written, invoked on the io thread in write order
+     *
+     * @return false if nobody waits for the response any more, the request should be dropped
+     */
+    public boolean sent(ResponseFuture<Request, Response> future) {
+        prunePlaceholders();
+        if (!outstanding.contains(future)) {
+            // completed while queued
+            ExpiredRequests.droppedBeforeWrite();
+            return false;
+        }
+        if (future.isExpired(System.currentTimeMillis())) {
+            ExpiredRequests.droppedBeforeWrite();
+            fail(future, Response.CLIENT_TIMEOUT, "Deadline exceeded before write");
+            return false;
+        }
+        future.markSent();
+        container.add(future);
+        return true;
+    }
+
+    /**
+     * Nobody waits for the response any more, e.g. the future timed out or its request could not be queued.
+     * A written future stays in the write order queue as a placeholder of its reply.
+     */
     public void clear(ResponseFuture<?, ?> future) {
+        if (outstanding.remove(future)) {
+            pending.decrementAndGet();
+        }
+    }
+
+    /**
+     * Complete a single future whose request never reached the device, e.g. its write failed,
+     * so no reply is expected
+     */
+    public void fail(ResponseFuture<Request, Response> future, byte status, String errorMsg) {
         container.remove(future);
+        clear(future);
+        future.trySuccess(new Response(status, errorMsg));
+    }
+
+    /**
+     * Complete a future waiting for a reply with {@link Response#CLIENT_TIMEOUT}, it stays a placeholder if written
+     *
+     * @return false if the future was completed otherwise meanwhile, e.g. by its reply
+     */
+    @SuppressWarnings("unchecked")
+    public boolean timeout(ResponseFuture<?, ?> future, String errorMsg) {
+        clear(future);
+        return ((ResponseFuture<?, Response>) future).trySuccess(new Response(Response.CLIENT_TIMEOUT, errorMsg));
+    }
+
+    /**
+     * Complete all pending futures directly, used when the channel is inactive or the client is closed
+     *
+     * @param status   response status
+     * @param errorMsg failed message
+     */
+    public void failAll(byte status, String errorMsg) {
+        for (ResponseFuture<Request, Response> future : outstanding) {
+            if (outstanding.remove(future)) {
+                pending.decrementAndGet();
+                container.remove(future);
+                future.trySuccess(new Response(status, errorMsg));
+            }
+        }
+        // the late replies will never arrive either
+        container.removeIf(ResponseFuture::isDone);
+    }
+
+    /**
+     * drop the placeholders at the head whose reply is overdue by far, a device that never answers must not
+     * grow the queue. Invoked on the io thread.
+     */
+    private void prunePlaceholders() {
+        ResponseFuture<Request, Response> head;
+        long now = System.nanoTime();
+        while ((head = container.peek()) != null && head.isDone()
+                && now - head.createdAt > TimeUnit.MILLISECONDS.toNanos(Constants.LATE_REPLY_WINDOW)) {
+            container.remove(head);
+        }
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * @param executor runs the listeners of the completed futures, see {@link com.hikvision.websocket.netty.dispatcher.Dispatcher}
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    public void setRemoteAddress(InetSocketAddress remoteAddress) {
+        this.remoteAddress = remoteAddress;
+    }
+
+    /**
+     * the future is completed, invoked once per future
+     */
+    void completed(ResponseFuture<?, ?> future, Object response) {
+        if (!(future.getRequest() instanceof Request) || !(response instanceof Response)) {
+            return;
+        }
+        Request request = (Request) future.getRequest();
+        Response res = (Response) response;
+        long latency = System.nanoTime() - future.createdAt;
+        if (res.getStatus() == Response.OK || res.getStatus() == Response.CLIENT_TIMEOUT) {
+            long smoothed = smoothedLatency;
+            smoothedLatency = smoothed == 0L ? latency : smoothed + ((latency - smoothed) >> 3);
+        }
+        if (ClientMetrics.isEnabled()) {
+            ClientMetrics.requestCompleted(request.getCommand(), remoteAddress, res.getStatus(), latency);
+        }
+        RequestTracer.complete(request, res);
+        if (future.requestEvent != null) {
+            JfrEvents.endRequest(future.requestEvent, remoteAddress, request.getCommand(), length(request.getContent()),
+                    length(res.getContent()), res.getStatus());
+        }
+        if (res.getStatus() == Response.CLIENT_TIMEOUT) {
+            JfrEvents.timeout(remoteAddress, request.getCommand(), latency);
+        }
+    }
+
+    private static int length(byte[] content) {
+        return content == null ? 0 : content.length;
+    }
+
+    /**
+     * count of requests waiting for response
+     */
+    public int getPendingCount() {
+        return pending.get();
+    }
+
+    public boolean hasPending() {
+        return pending.get() > 0;
+    }
+
+    /**
+     * @return time(ms) the oldest written request has been waiting for its response, -1 if none waits
+     */
+    public long getOldestPendingAge() {
+        for (ResponseFuture<Request, Response> future : container) {
+            if (!future.isDone()) {
+                return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - future.createdAt);
+            }
+        }
+        return -1L;
+    }
+
+    /**
+     * @return smoothed latency(ns) of the requests, 0 before the first one completes
+     */
+    public long getSmoothedLatency() {
+        return smoothedLatency;
+    }
+
+    private ResponseFuture<Request, Response> poll(int command) {
+        ResponseFuture<Request, Response> future = null;
+        if (command != MessageHeader.UNKNOWN_COMMAND) {
+            for (ResponseFuture<Request, Response> candidate : container) {
+                if (candidate.getRequest().getCommand() == command) {
+                    future = candidate;
+                    break;
+                }
+            }
+        }
+        if (future == null) {
+            future = container.peek();
+        }
+        if (future == null || !container.remove(future)) {
+            return null;
+        }
+        return future;
     }
 }
@@ -0,0 +1,183 @@
+package com.hikvision.websocket.netty.gateway;
+
+import com.hikvision.websocket.netty.NettyClient;
+import com.hikvision.websocket.netty.NettyServer;
+import com.hikvision.websocket.netty.exchange.Request;
+import com.hikvision.websocket.netty.exchange.Response;
+import com.hikvision.websocket.netty.exchange.ResponseFuture;
+import com.hikvision.websocket.netty.remoting.ExchangeChannel;
+import com.hikvision.websocket.service.IDeviceCommunicationService;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Handler of a websocket connection of the gateway, one per connection.
+ * <p>
+ * Every frame is a device request which is sent with {@link IDeviceCommunicationService#sendAsync}, its response
+ * is written back from the listener of the response future, so any number of requests to any devices are
+ * in flight over the connection at the same time and no thread waits for a device. A request whose device is
+ * not connected or whose channel is above the high water mark may wait in the send (connect, backpressure),
+ * it is sent on the connect executor instead of the io thread. Text frames may also subscribe to device events
+ * of the {@link TopicBroker}.
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 15:40
+ */
+public class GatewayFrameHandler extends SimpleChannelInboundHandler<WebSocketFrame> {
+
+    private static final Logger logger = LoggerFactory.getLogger(GatewayFrameHandler.class);
+
+    private final IDeviceCommunicationService service;
+
+    private final TopicBroker broker;
+
+    private final Executor connectExecutor;
+
+    private final int maxPending;
+
+    /**
+     * requests of the connection waiting for their response
+     */
+    private final AtomicInteger pending = new AtomicInteger();
+
+    public GatewayFrameHandler(IDeviceCommunicationService service, TopicBroker broker, Executor connectExecutor, int maxPending) {
+        this.service = service;
+        this.broker = broker;
+        this.connectExecutor = connectExecutor;
+        this.maxPending = maxPending;
+    }
+
+    public int getPending() {
+        return pending.get();
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, WebSocketFrame frame) throws Exception {
+        if (!(frame instanceof BinaryWebSocketFrame) && !(frame instanceof TextWebSocketFrame)) {
+            return;
+        }
+        GatewayMessage message = GatewayMessage.decode(frame);
+        if (message.getError() != null) {
+            reply(ctx.channel(), message, new Response(Response.BAD_REQUEST, message.getError()));
+            return;
+        }
+        if (message.getOp() == GatewayMessage.Op.SUBSCRIBE) {
+            broker.subscribe(ctx.channel(), message.getDevice(), message.getCommand(), message.isBinaryEvents(), message.getPolicy());
+            reply(ctx.channel(), message, new Response(null));
+            return;
+        }
+        if (message.getOp() == GatewayMessage.Op.UNSUBSCRIBE) {
+            broker.unsubscribe(ctx.channel(), message.getDevice(), message.getCommand());
+            reply(ctx.channel(), message, new Response(null));
+            return;
+        }
+        if (maxPending > 0 && pending.get() >= maxPending) {
+            reply(ctx.channel(), message, new Response(Response.CLIENT_ERROR, maxPending + " requests of the connection are pending"));
+            return;
+        }
+        pending.incrementAndGet();
+        if (isReady(message)) {
+            dispatch(ctx.channel(), message);
+            return;
+        }
+        try {
+            connectExecutor.execute(() -> dispatch(ctx.channel(), message));
+        } catch (RejectedExecutionException e) {
+            complete(ctx.channel(), message, new Response(Response.CLIENT_ERROR, "too many requests waiting for the device"));
+        }
+    }
+
+    /**
+     * whether the request can be sent without waiting, an unknown device id fails at once
+     */
+    private static boolean isReady(GatewayMessage message) {
+        ExchangeChannel channel = message.getDeviceId() != null ? NettyServer.getSession(message.getDeviceId())
+                : NettyClient.getClient(message.getAddress());
+        if (channel == null) {
+            return message.getDeviceId() != null;
+        }
+        return channel.isConnected() && channel.isWritable();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void dispatch(Channel channel, GatewayMessage message) {
+        Request request = message.getRequest();
+        Future<Response> future;
+        try {
+            future = message.getDeviceId() != null ? service.sendAsync(message.getDeviceId(), request)
+                    : service.sendAsync(message.getAddress(), request);
+        } catch (RuntimeException e) {
+            complete(channel, message, new Response(Response.CLIENT_ERROR, e.getMessage()));
+            return;
+        }
+        if (future instanceof ResponseFuture) {
+            ((ResponseFuture<Request, Response>) future).addListener(response -> complete(channel, message, response));
+            return;
+        }
+        // a future without completion callback, only an implementation other than the default one returns it
+        connectExecutor.execute(() -> {
+            Response response;
+            try {
+                response = future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                response = new Response(Response.CLIENT_ERROR, "interrupted");
+            } catch (ExecutionException e) {
+                response = new Response(Response.CLIENT_ERROR, String.valueOf(e.getCause()));
+            }
+            complete(channel, message, response);
+        });
+    }
+
+    private void complete(Channel channel, GatewayMessage message, Response response) {
+        pending.decrementAndGet();
+        reply(channel, message, response);
+    }
+
+    private static void reply(Channel channel, GatewayMessage message, Response response) {
+        if (!channel.isActive()) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Drop the response of request " + message.getId() + ", websocket " + channel + " is closed");
+            }
+            return;
+        }
+        channel.writeAndFlush(message.encode(channel.alloc(), response));
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        Subscriber subscriber = Subscriber.get(ctx.channel());
+        if (subscriber != null && ctx.channel().isWritable()) {
+            // the events kept for the slow console
+            subscriber.drain();
+        }
+        super.channelWritabilityChanged(ctx);
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+        if (cause instanceof IOException) {
+            // e.g. the browser tab is closed without a close frame
+            if (logger.isDebugEnabled()) {
+                logger.debug("Close websocket " + ctx.channel() + ", cause: " + cause.getMessage());
+            }
+            ctx.close();
+            return;
+        }
+        logger.warn("Close websocket " + ctx.channel() + ", cause: " + cause.getMessage(), cause);
+        ctx.close();
+    }
+}
@@ -0,0 +1,291 @@
+package com.hikvision.websocket.netty.gateway;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.hikvision.websocket.netty.exchange.Request;
+import com.hikvision.websocket.netty.exchange.Response;
+import com.hikvision.websocket.utils.NetUtils;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * A device request of a websocket client, correlated with its response by the id chosen by the client.
+ * The response is sent in the format of the request.
+ * <p>
+ * binary frame, big-endian:
+ * <pre>
+ * request:  int id | int timeout(ms, 0 = default) | short target length | target (utf-8) | device frame
+ * response: int id | byte status | device frame if status is {@link Response#OK}, else error message (utf-8)
+ * </pre>
+ * text frame:
+ * <pre>
+ * request:  {"id": 1, "device": "&lt;device id&gt;" or "address": "ip:port", "timeout": 3000, "data": "&lt;base64 device frame&gt;"}
+ * response: {"id": 1, "status": 20, "data": "&lt;base64 device frame&gt;"} or {"id": 1, "status": 30, "error": "..."}
+ * </pre>
+ * The target of a binary request is an address if it contains ':', otherwise a device id.
+ * <p>
+ * Subscriptions to device events are text frames only, see {@link TopicBroker}:
+ * <pre>
+ * {"id": 2, "op": "subscribe", "device": "..." or "address": "ip:port", "command": 123, "format": "json", "policy": "drop"}
+ * {"id": 3, "op": "unsubscribe", "device": "..." or "address": "ip:port", "command": 123}
+ * </pre>
+ * Without command all commands of the device are subscribed to, the events are binary frames unless the format is json
+ * and the policy for slow consoles is drop or conflate. The subscription is answered like a request without data.
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 15:40
+ */
+public class GatewayMessage {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * id + timeout + target length
+     */
+    private static final int BINARY_HEADER_LENGTH = 10;
+
+    public enum Op {
+        REQUEST, SUBSCRIBE, UNSUBSCRIBE
+    }
+
+    private final int id;
+
+    private final boolean binary;
+
+    /**
+     * id of an inbound device, null if the device is addressed by {@link #address}
+     */
+    private String deviceId;
+
+    private InetSocketAddress address;
+
+    private Op op = Op.REQUEST;
+
+    private Request request;
+
+    /**
+     * dwCommand of a subscription, null for all commands
+     */
+    private Integer command;
+
+    /**
+     * whether the events of a subscription are sent in binary frames
+     */
+    private boolean binaryEvents = true;
+
+    /**
+     * slow subscriber policy of a subscription, null for the default one
+     */
+    private Subscriber.SlowPolicy policy;
+
+    /**
+     * why the request is malformed, null if it is valid
+     */
+    private String error;
+
+    private GatewayMessage(int id, boolean binary) {
+        this.id = id;
+        this.binary = binary;
+    }
+
+    public static GatewayMessage decode(WebSocketFrame frame) {
+        if (frame instanceof BinaryWebSocketFrame) {
+            return decodeBinary(frame.content());
+        }
+        return decodeText(((TextWebSocketFrame) frame).text());
+    }
+
+    private static GatewayMessage decodeBinary(ByteBuf buf) {
+        if (buf.readableBytes() < BINARY_HEADER_LENGTH) {
+            return invalid(buf.readableBytes() >= 4 ? buf.getInt(buf.readerIndex()) : 0, true,
+                    "binary request shorter than " + BINARY_HEADER_LENGTH + " bytes");
+        }
+        GatewayMessage message = new GatewayMessage(buf.readInt(), true);
+        int timeout = buf.readInt();
+        int targetLength = buf.readUnsignedShort();
+        if (buf.readableBytes() < targetLength) {
+            message.error = "target length " + targetLength + " exceeds the frame";
+            return message;
+        }
+        String target = buf.readCharSequence(targetLength, StandardCharsets.UTF_8).toString();
+        byte[] content = new byte[buf.readableBytes()];
+        buf.readBytes(content);
+        boolean isAddress = target.indexOf(':') > -1;
+        return message.target(isAddress ? null : target, isAddress ? target : null).content(content, timeout);
+    }
+
+    private static GatewayMessage decodeText(String text) {
+        JsonNode node;
+        try {
+            node = MAPPER.readTree(text);
+        } catch (IOException e) {
+            return invalid(0, false, "malformed json: " + e.getMessage());
+        }
+        if (node == null || !node.isObject()) {
+            return invalid(0, false, "request is not a json object");
+        }
+        GatewayMessage message = new GatewayMessage(node.path("id").asInt(), false);
+        try {
+            message.op = Op.valueOf(node.path("op").asText(Op.REQUEST.name()).toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            message.error = "unknown op " + node.path("op").asText();
+            return message;
+        }
+        if (message.op != Op.REQUEST) {
+            return message.target(node.path("device").textValue(), node.path("address").textValue())
+                    .subscription(node);
+        }
+        byte[] content;
+        try {
+            content = node.path("data").binaryValue();
+        } catch (IOException e) {
+            message.error = "data is not base64";
+            return message;
+        }
+        return message.target(node.path("device").textValue(), node.path("address").textValue())
+                .content(content, node.path("timeout").asInt());
+    }
+
+    private static GatewayMessage invalid(int id, boolean binary, String error) {
+        GatewayMessage message = new GatewayMessage(id, binary);
+        message.error = error;
+        return message;
+    }
+
+    private GatewayMessage target(String deviceId, String address) {
+        if (error != null) {
+            return this;
+        }
+        if (deviceId != null && !deviceId.isEmpty()) {
+            this.deviceId = deviceId;
+        } else if (address != null && !address.isEmpty()) {
+            try {
+                this.address = NetUtils.toAddress(address);
+            } catch (RuntimeException e) {
+                error = "invalid address " + address;
+                return this;
+            }
+            if (this.address.isUnresolved()) {
+                error = "unknown host " + address;
+            }
+        } else {
+            error = "neither device nor address is given";
+        }
+        return this;
+    }
+
+    private GatewayMessage content(byte[] content, int timeout) {
+        if (error != null) {
+            return this;
+        }
+        if (content == null || content.length == 0) {
+            error = "no device frame";
+            return this;
+        }
+        request = new Request(content);
+        if (timeout > 0) {
+            request.deadlineAfter(timeout);
+        }
+        return this;
+    }
+
+    private GatewayMessage subscription(JsonNode node) {
+        if (error != null) {
+            return this;
+        }
+        JsonNode c = node.get("command");
+        command = c == null || c.isNull() ? null : c.asInt();
+        binaryEvents = !"json".equalsIgnoreCase(node.path("format").asText("binary"));
+        String p = node.path("policy").textValue();
+        if (p != null) {
+            try {
+                policy = Subscriber.SlowPolicy.valueOf(p.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                error = "unknown policy " + p;
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Encode the response of the request in its format
+     */
+    public WebSocketFrame encode(ByteBufAllocator alloc, Response response) {
+        byte status = response.getStatus();
+        byte[] content = status == Response.OK ? response.getContent() : null;
+        String errorMsg = status == Response.OK ? null : response.getErrorMsg();
+        if (binary) {
+            byte[] body = content != null ? content
+                    : errorMsg != null ? errorMsg.getBytes(StandardCharsets.UTF_8) : new byte[0];
+            ByteBuf buf = alloc.buffer(5 + body.length);
+            buf.writeInt(id).writeByte(status).writeBytes(body);
+            return new BinaryWebSocketFrame(buf);
+        }
+        ObjectNode node = MAPPER.createObjectNode();
+        node.put("id", id);
+        node.put("status", status);
+        if (content != null) {
+            node.put("data", content);
+        }
+        if (errorMsg != null) {
+            node.put("error", errorMsg);
+        }
+        return new TextWebSocketFrame(node.toString());
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public boolean isBinary() {
+        return binary;
+    }
+
+    public Op getOp() {
+        return op;
+    }
+
+    /**
+     * @return device of the topic, the device id or the address of the device
+     */
+    public String getDevice() {
+        return deviceId != null ? deviceId : NetUtils.toAddressString(address);
+    }
+
+    public Integer getCommand() {
+        return command;
+    }
+
+    public boolean isBinaryEvents() {
+        return binaryEvents;
+    }
+
+    public Subscriber.SlowPolicy getPolicy() {
+        return policy;
+    }
+
+    public String getDeviceId() {
+        return deviceId;
+    }
+
+    public InetSocketAddress getAddress() {
+        return address;
+    }
+
+    public Request getRequest() {
+        return request;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
@@ -0,0 +1,150 @@
+package com.hikvision.websocket.netty.gateway;
+
+import io.netty.channel.Channel;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import io.netty.util.AttributeKey;
+
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A websocket subscribed to topics of the {@link TopicBroker}.
+ * <p>
+ * Events are written at once while the websocket is writable. Above the high water mark an event of a
+ * {@link SlowPolicy#DROP} subscription is dropped, the one of a {@link SlowPolicy#CONFLATE} subscription
+ * replaces the unwritten event of the same device and command and is written once the websocket drains,
+ * so a slow console sees the latest state and never holds more than one event per device and command.
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 16:30
+ */
+public class Subscriber {
+
+    private static final AttributeKey<Subscriber> SUBSCRIBER_KEY = AttributeKey.valueOf("websocket.gateway.subscriber");
+
+    /**
+     * what to do with the events of a websocket above the high water mark
+     */
+    public enum SlowPolicy {
+        DROP, CONFLATE
+    }
+
+    private final Channel channel;
+
+    /**
+     * topics subscribed to
+     */
+    private final Set<String> topics = ConcurrentHashMap.newKeySet();
+
+    /**
+     * the latest unwritten event per device and command
+     */
+    private final ConcurrentMap<String, WebSocketFrame> conflated = new ConcurrentHashMap<>();
+
+    private Subscriber(Channel channel) {
+        this.channel = channel;
+    }
+
+    static Subscriber getOrAdd(Channel channel) {
+        Subscriber subscriber = channel.attr(SUBSCRIBER_KEY).get();
+        if (subscriber == null) {
+            Subscriber s = new Subscriber(channel);
+            subscriber = channel.attr(SUBSCRIBER_KEY).setIfAbsent(s);
+            if (subscriber == null) {
+                subscriber = s;
+            }
+        }
+        return subscriber;
+    }
+
+    /**
+     * @return subscriber of the websocket, null if it subscribes to nothing
+     */
+    public static Subscriber get(Channel channel) {
+        return channel.attr(SUBSCRIBER_KEY).get();
+    }
+
+    public Channel getChannel() {
+        return channel;
+    }
+
+    Set<String> getTopics() {
+        return topics;
+    }
+
+    /**
+     * Write the event or keep it as the slow policy says, the frame is released if not written
+     *
+     * @param event device and command of the event, the conflation key
+     */
+    Delivery offer(String event, WebSocketFrame frame, SlowPolicy policy) {
+        if (!channel.isActive()) {
+            frame.release();
+            return Delivery.DROPPED;
+        }
+        if (channel.isWritable() && conflated.isEmpty()) {
+            channel.writeAndFlush(frame, channel.voidPromise());
+            return Delivery.WRITTEN;
+        }
+        if (policy == SlowPolicy.DROP) {
+            frame.release();
+            return Delivery.DROPPED;
+        }
+        WebSocketFrame old = conflated.put(event, frame);
+        if (old != null) {
+            old.release();
+        }
+        if (!channel.isActive()) {
+            // closed meanwhile, the close listener may have released the kept events already
+            clear();
+        } else if (channel.isWritable()) {
+            // drained meanwhile, nobody else flushes the kept event
+            drain();
+        }
+        return old != null ? Delivery.CONFLATED : Delivery.KEPT;
+    }
+
+    /**
+     * write the kept events, called once the websocket is writable again
+     */
+    void drain() {
+        if (conflated.isEmpty()) {
+            return;
+        }
+        if (!channel.eventLoop().inEventLoop()) {
+            channel.eventLoop().execute(this::drain);
+            return;
+        }
+        Iterator<String> iterator = conflated.keySet().iterator();
+        while (iterator.hasNext() && channel.isWritable()) {
+            // the latest event of the key, frames are compared by content so remove(key, value) would not do
+            WebSocketFrame frame = conflated.remove(iterator.next());
+            if (frame != null) {
+                channel.write(frame, channel.voidPromise());
+            }
+        }
+        channel.flush();
+    }
+
+    /**
+     * release the kept events of the closed websocket
+     */
+    void clear() {
+        for (String event : conflated.keySet()) {
+            WebSocketFrame frame = conflated.remove(event);
+            if (frame != null) {
+                frame.release();
+            }
+        }
+    }
+
+    /**
+     * outcome of an offered event: written to the websocket, dropped, kept until the websocket drains,
+     * or kept in place of an unwritten event it replaced
+     */
+    enum Delivery {
+        WRITTEN, DROPPED, KEPT, CONFLATED
+    }
+}
@@ -0,0 +1,310 @@
+package com.hikvision.websocket.netty.gateway;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.hikvision.websocket.netty.NettyServer;
+import com.hikvision.websocket.netty.exchange.DeviceEventListener;
+import com.hikvision.websocket.netty.exchange.MessageHeader;
+import com.hikvision.websocket.netty.exchange.Response;
+import com.hikvision.websocket.netty.remoting.Channel;
+import com.hikvision.websocket.utils.NetUtils;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Topics of device events for the websocket consoles, keyed by device and dwCommand.
+ * <p>
+ * An event is encoded once per format into a pooled buffer and every subscriber writes a
+ * {@link ByteBuf#retainedDuplicate()} of it, so hundreds of consoles watching a device cost
+ * one encoding and no copies. Slow subscribers are handled by their {@link Subscriber.SlowPolicy}.
+ * The broker listens to the events of all commands, an event of an inbound device is published to the topics
+ * of its device id, the one of an outbound client to the topics of its address.
+ * <p>
+ * event frames:
+ * <pre>
+ * binary: int -1 | short device length | device (utf-8) | device frame
+ * text:   {"device": "...", "command": 123, "data": "&lt;base64 device frame&gt;"}
+ * </pre>
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 16:30
+ */
+public class TopicBroker implements DeviceEventListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(TopicBroker.class);
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * id of the binary event frames, never used by a response as the consoles choose non-negative ids
+     */
+    public static final int EVENT_ID = -1;
+
+    /**
+     * topic of all commands of a device
+     */
+    private static final String ANY_COMMAND = "*";
+
+    private final ByteBufAllocator alloc = PooledByteBufAllocator.DEFAULT;
+
+    /**
+     * topic -> subscriptions
+     */
+    private final ConcurrentMap<String, ConcurrentMap<Subscriber, Subscription>> topics = new ConcurrentHashMap<>();
+
+    private final Subscriber.SlowPolicy defaultPolicy;
+
+    private final LongAdder published = new LongAdder();
+
+    private final LongAdder delivered = new LongAdder();
+
+    private final LongAdder dropped = new LongAdder();
+
+    private final LongAdder kept = new LongAdder();
+
+    private final LongAdder conflated = new LongAdder();
+
+    public TopicBroker(Subscriber.SlowPolicy defaultPolicy) {
+        this.defaultPolicy = defaultPolicy == null ? Subscriber.SlowPolicy.CONFLATE : defaultPolicy;
+    }
+
+    static String topic(String device, Integer command) {
+        return device + '/' + (command == null ? ANY_COMMAND : String.valueOf(command));
+    }
+
+    /**
+     * Subscribe the websocket to the events of the device
+     *
+     * @param command dwCommand, null for all commands of the device
+     * @param binary  whether the events are sent in binary frames, otherwise in json
+     * @param policy  slow subscriber policy, null for the default one
+     */
+    public void subscribe(io.netty.channel.Channel channel, String device, Integer command, boolean binary, Subscriber.SlowPolicy policy) {
+        Subscriber subscriber = Subscriber.getOrAdd(channel);
+        String topic = topic(device, command);
+        if (subscriber.getTopics().isEmpty()) {
+            channel.closeFuture().addListener(f -> unsubscribeAll(channel));
+        }
+        subscriber.getTopics().add(topic);
+        topics.computeIfAbsent(topic, k -> new ConcurrentHashMap<>())
+                .put(subscriber, new Subscription(binary, policy == null ? defaultPolicy : policy));
+        if (!channel.isActive()) {
+            // closed meanwhile, the close listener may have run before the subscription was added
+            unsubscribeAll(channel);
+        }
+    }
+
+    public void unsubscribe(io.netty.channel.Channel channel, String device, Integer command) {
+        Subscriber subscriber = Subscriber.get(channel);
+        if (subscriber == null) {
+            return;
+        }
+        String topic = topic(device, command);
+        subscriber.getTopics().remove(topic);
+        remove(topic, subscriber);
+    }
+
+    public void unsubscribeAll(io.netty.channel.Channel channel) {
+        Subscriber subscriber = Subscriber.get(channel);
+        if (subscriber == null) {
+            return;
+        }
+        for (String topic : subscriber.getTopics()) {
+            remove(topic, subscriber);
+        }
+        subscriber.getTopics().clear();
+        subscriber.clear();
+    }
+
+    private void remove(String topic, Subscriber subscriber) {
+        topics.computeIfPresent(topic, (k, subscriptions) -> {
+            subscriptions.remove(subscriber);
+            return subscriptions.isEmpty() ? null : subscriptions;
+        });
+    }
+
+    @Override
+    public void onEvent(Channel channel, Response event) {
+        byte[] content = event.getContent();
+        if (content == null || topics.isEmpty()) {
+            return;
+        }
+        String device = channel.getChannelHandler() instanceof NettyServer ? MessageHeader.deviceId(content)
+                : NetUtils.toAddressString(channel.getRemoteAddress());
+        if (device != null) {
+            publish(device, event.getCommand(), content);
+        }
+    }
+
+    /**
+     * Send the event to the subscribers of its device and command, and of all commands of the device
+     *
+     * @param device  device id or address of the device
+     * @param command dwCommand
+     * @param content device frame
+     */
+    public void publish(String device, int command, byte[] content) {
+        ConcurrentMap<Subscriber, Subscription> exact = topics.get(topic(device, command));
+        ConcurrentMap<Subscriber, Subscription> any = topics.get(topic(device, null));
+        if (exact == null && any == null) {
+            return;
+        }
+        published.increment();
+        String event = topic(device, command);
+        Frames frames = new Frames(device, command, content);
+        try {
+            deliverAll(exact, null, event, frames);
+            // a subscriber of both topics gets the event once
+            deliverAll(any, exact, event, frames);
+        } catch (JsonProcessingException e) {
+            logger.warn("Failed to encode the event " + event + ", cause: " + e.getMessage(), e);
+        } finally {
+            frames.release();
+        }
+    }
+
+    /**
+     * @param skip subscribers the event is already delivered to, may be null
+     */
+    private void deliverAll(Map<Subscriber, Subscription> subscriptions, Map<Subscriber, Subscription> skip,
+                            String event, Frames frames) throws JsonProcessingException {
+        if (subscriptions == null) {
+            return;
+        }
+        for (Map.Entry<Subscriber, Subscription> entry : subscriptions.entrySet()) {
+            if (skip != null && skip.containsKey(entry.getKey())) {
+                continue;
+            }
+            Subscription s = entry.getValue();
+            WebSocketFrame frame = s.binary ? new BinaryWebSocketFrame(frames.binary().retainedDuplicate())
+                    : new TextWebSocketFrame(frames.text().retainedDuplicate());
+            switch (entry.getKey().offer(event, frame, s.policy)) {
+                case WRITTEN:
+                    delivered.increment();
+                    break;
+                case KEPT:
+                    kept.increment();
+                    break;
+                case CONFLATED:
+                    conflated.increment();
+                    break;
+                default:
+                    dropped.increment();
+            }
+        }
+    }
+
+    public int getTopics() {
+        return topics.size();
+    }
+
+    public long getPublished() {
+        return published.sum();
+    }
+
+    /**
+     * @return events written at once, the kept ones are not counted
+     */
+    public long getDelivered() {
+        return delivered.sum();
+    }
+
+    /**
+     * @return events not written to slow subscribers with {@link Subscriber.SlowPolicy#DROP}
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return events kept for slow subscribers with {@link Subscriber.SlowPolicy#CONFLATE} until they drain,
+     * a kept event is written later unless replaced or the websocket closes
+     */
+    public long getKept() {
+        return kept.sum();
+    }
+
+    /**
+     * @return events replaced by a newer one before written to slow subscribers
+     */
+    public long getConflated() {
+        return conflated.sum();
+    }
+
+    /**
+     * the event encoded at most once per format
+     */
+    private class Frames {
+
+        private final String device;
+
+        private final int command;
+
+        private final byte[] content;
+
+        private ByteBuf binary;
+
+        private ByteBuf text;
+
+        Frames(String device, int command, byte[] content) {
+            this.device = device;
+            this.command = command;
+            this.content = content;
+        }
+
+        ByteBuf binary() {
+            if (binary == null) {
+                byte[] deviceBytes = device.getBytes(StandardCharsets.UTF_8);
+                binary = alloc.directBuffer(6 + deviceBytes.length + content.length);
+                binary.writeInt(EVENT_ID).writeShort(deviceBytes.length).writeBytes(deviceBytes).writeBytes(content);
+            }
+            return binary;
+        }
+
+        ByteBuf text() throws JsonProcessingException {
+            if (text == null) {
+                ObjectNode node = MAPPER.createObjectNode();
+                node.put("device", device);
+                node.put("command", command);
+                node.put("data", content);
+                byte[] json = MAPPER.writeValueAsBytes(node);
+                text = alloc.directBuffer(json.length).writeBytes(json);
+            }
+            return text;
+        }
+
+        void release() {
+            if (binary != null) {
+                binary.release();
+            }
+            if (text != null) {
+                text.release();
+            }
+        }
+    }
+
+    private static class Subscription {
+
+        private final boolean binary;
+
+        private final Subscriber.SlowPolicy policy;
+
+        Subscription(boolean binary, Subscriber.SlowPolicy policy) {
+            this.binary = binary;
+            this.policy = policy;
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.hikvision.websocket.netty.gateway;
+
+import com.hikvision.websocket.api.URL;
+import com.hikvision.websocket.constants.Constants;
+import com.hikvision.websocket.exception.RemotingException;
+import com.hikvision.websocket.service.IDeviceCommunicationService;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.websocketx.CloseWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketCloseStatus;
+import io.netty.handler.codec.http.websocketx.WebSocketFrameAggregator;
+import io.netty.handler.codec.http.websocketx.WebSocketServerProtocolHandler;
+import io.netty.handler.codec.http.websocketx.extensions.compression.WebSocketServerCompressionHandler;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.GlobalEventExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetSocketAddress;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static com.hikvision.websocket.constants.CommonConstants.BACKLOG_KEY;
+import static com.hikvision.websocket.constants.CommonConstants.IO_THREADS_KEY;
+import static com.hikvision.websocket.constants.Constants.COMPRESSION_KEY;
+import static com.hikvision.websocket.constants.Constants.CONNECT_THREADS_KEY;
+import static com.hikvision.websocket.constants.Constants.DEFAULT_BACKLOG;
+import static com.hikvision.websocket.constants.Constants.DEFAULT_CONNECT_THREADS;
+import static com.hikvision.websocket.constants.Constants.DEFAULT_GATEWAY_PATH;
+import static com.hikvision.websocket.constants.Constants.DEFAULT_IDLE_TIMEOUT;
+import static com.hikvision.websocket.constants.Constants.DEFAULT_MAX_FRAME_SIZE;
+import static com.hikvision.websocket.constants.Constants.DEFAULT_MAX_PENDING;
+import static com.hikvision.websocket.constants.Constants.DEFAULT_SLOW_SUBSCRIBER;
+import static com.hikvision.websocket.constants.Constants.DEFAULT_WRITE_BUFFER_HIGH_WATER_MARK;
+import static com.hikvision.websocket.constants.Constants.DEFAULT_WRITE_BUFFER_LOW_WATER_MARK;
+import static com.hikvision.websocket.constants.Constants.GATEWAY_BOSS_POOL_NAME;
+import static com.hikvision.websocket.constants.Constants.GATEWAY_WORKER_POOL_NAME;
+import static com.hikvision.websocket.constants.Constants.IDLE_TIMEOUT_KEY;
+import static com.hikvision.websocket.constants.Constants.MAX_FRAME_SIZE_KEY;
+import static com.hikvision.websocket.constants.Constants.MAX_PENDING_KEY;
+import static com.hikvision.websocket.constants.Constants.PATH_KEY;
+import static com.hikvision.websocket.constants.Constants.SLOW_SUBSCRIBER_KEY;
+import static com.hikvision.websocket.constants.Constants.WRITE_BUFFER_HIGH_WATER_MARK_KEY;
+import static com.hikvision.websocket.constants.Constants.WRITE_BUFFER_LOW_WATER_MARK_KEY;
+import static com.hikvision.websocket.factory.NettyEventLoopFactory.eventLoopGroup;
+import static com.hikvision.websocket.factory.NettyEventLoopFactory.serverSocketChannelClass;
+
+/**
+ * WebSocket front end bridging browser consoles to the devices: binary or json frames are device requests
+ * multiplexed by the id chosen by the console, see {@link GatewayMessage} and {@link GatewayFrameHandler}.
+ * Device events are pushed to the consoles subscribed to them through the {@link TopicBroker}.
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 15:40
+ */
+public class WebSocketGateway {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebSocketGateway.class);
+
+    private final URL url;
+
+    private final IDeviceCommunicationService service;
+
+    private final InetSocketAddress bindAddress;
+
+    private final TopicBroker broker;
+
+    private final ChannelGroup channels = new DefaultChannelGroup("websocket-gateway", GlobalEventExecutor.INSTANCE);
+
+    /**
+     * sends the requests which may wait for a connection or backpressure
+     */
+    private final ThreadPoolExecutor connectExecutor;
+
+    private EventLoopGroup bossGroup;
+
+    private EventLoopGroup workerGroup;
+
+    private Channel channel;
+
+    public WebSocketGateway(URL url, IDeviceCommunicationService service) throws RemotingException {
+        this.url = url;
+        this.service = service;
+        this.bindAddress = url.toInetSocketAddress();
+        this.broker = new TopicBroker(Subscriber.SlowPolicy.valueOf(
+                url.getParameter(SLOW_SUBSCRIBER_KEY, DEFAULT_SLOW_SUBSCRIBER).trim().toUpperCase(Locale.ROOT)));
+        int connectThreads = Math.max(1, url.getParameter(CONNECT_THREADS_KEY, DEFAULT_CONNECT_THREADS));
+        this.connectExecutor = new ThreadPoolExecutor(connectThreads, connectThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, url.getParameter(MAX_PENDING_KEY, DEFAULT_MAX_PENDING))),
+                new DefaultThreadFactory("websocket-gateway-connect", true));
+        try {
+            doOpen();
+            if (logger.isInfoEnabled()) {
+                logger.info("Start " + getClass().getSimpleName() + " bind " + bindAddress + url.getParameter(PATH_KEY, DEFAULT_GATEWAY_PATH));
+            }
+        } catch (Throwable t) {
+            close(0);
+            throw new RemotingException(bindAddress, null, "Failed to bind " + getClass().getSimpleName()
+                    + " on " + bindAddress + ", cause: " + t.getMessage(), t);
+        }
+    }
+
+    private void doOpen() {
+        final String path = url.getParameter(PATH_KEY, DEFAULT_GATEWAY_PATH);
+        final int maxFrameSize = url.getParameter(MAX_FRAME_SIZE_KEY, DEFAULT_MAX_FRAME_SIZE);
+        final int maxPending = url.getParameter(MAX_PENDING_KEY, DEFAULT_MAX_PENDING);
+        final int idleTimeout = url.getParameter(IDLE_TIMEOUT_KEY, DEFAULT_IDLE_TIMEOUT);
+        final boolean compression = url.getParameter(COMPRESSION_KEY, true);
+        int ioThreads = url.getParameter(IO_THREADS_KEY, Constants.DEFAULT_IO_THREADS);
+        bossGroup = eventLoopGroup(1, GATEWAY_BOSS_POOL_NAME);
+        workerGroup = eventLoopGroup(ioThreads > 0 ? ioThreads : Constants.DEFAULT_IO_THREADS, GATEWAY_WORKER_POOL_NAME);
+        ServerBootstrap bootstrap = new ServerBootstrap()
+                .group(bossGroup, workerGroup)
+                .channel(serverSocketChannelClass())
+                .option(ChannelOption.SO_REUSEADDR, Boolean.TRUE)
+                .option(ChannelOption.SO_BACKLOG, url.getParameter(BACKLOG_KEY, DEFAULT_BACKLOG))
+                .childOption(ChannelOption.TCP_NODELAY, Boolean.TRUE)
+                .childOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+                // above the high water mark the console is slow and its events are conflated or dropped
+                .childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, new WriteBufferWaterMark(
+                        url.getParameter(WRITE_BUFFER_LOW_WATER_MARK_KEY, DEFAULT_WRITE_BUFFER_LOW_WATER_MARK),
+                        url.getParameter(WRITE_BUFFER_HIGH_WATER_MARK_KEY, DEFAULT_WRITE_BUFFER_HIGH_WATER_MARK)))
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) throws Exception {
+                        channels.add(ch);
+                        ch.pipeline()
+                                .addLast("http-codec", new HttpServerCodec())
+                                .addLast("http-aggregator", new HttpObjectAggregator(8192));
+                        if (compression) {
+                            // permessage-deflate if the browser offers it
+                            ch.pipeline().addLast("compression", new WebSocketServerCompressionHandler());
+                        }
+                        ch.pipeline()
+                                .addLast("websocket", new WebSocketServerProtocolHandler(path, null, true, maxFrameSize))
+                                .addLast("frame-aggregator", new WebSocketFrameAggregator(maxFrameSize))
+                                .addLast("idle", new IdleStateHandler(idleTimeout, 0, 0, TimeUnit.MILLISECONDS))
+                                .addLast("idle-close", IdleCloseHandler.INSTANCE)
+                                .addLast("handler", new GatewayFrameHandler(service, broker, connectExecutor, maxPending));
+                    }
+                });
+        ChannelFuture channelFuture = bootstrap.bind(bindAddress);
+        channelFuture.syncUninterruptibly();
+        channel = channelFuture.channel();
+    }
+
+    public InetSocketAddress getBindAddress() {
+        return bindAddress;
+    }
+
+    public TopicBroker getBroker() {
+        return broker;
+    }
+
+    public boolean isBound() {
+        Channel c = channel;
+        return c != null && c.isActive();
+    }
+
+    /**
+     * @return open websocket connections
+     */
+    public int getConnections() {
+        return channels.size();
+    }
+
+    /**
+     * Stop accepting, tell the consoles the gateway is going away and close. The requests still pending are
+     * answered by the device clients which are closed after the gateway.
+     *
+     * @param timeout wait time(ms)
+     */
+    public void close(int timeout) {
+        if (logger.isInfoEnabled()) {
+            logger.info("Close " + getClass().getSimpleName() + " bind " + bindAddress);
+        }
+        long deadline = System.currentTimeMillis() + timeout;
+        try {
+            if (channel != null) {
+                // unbind.
+                channel.close().awaitUninterruptibly(Math.max(0, timeout));
+            }
+            channels.writeAndFlush(new CloseWebSocketFrame(WebSocketCloseStatus.ENDPOINT_UNAVAILABLE))
+                    .awaitUninterruptibly(Math.max(0, deadline - System.currentTimeMillis()));
+            channels.close().awaitUninterruptibly(Math.max(0, deadline - System.currentTimeMillis()));
+        } catch (Throwable e) {
+            logger.warn(e.getMessage(), e);
+        }
+        connectExecutor.shutdownNow();
+        try {
+            if (bossGroup != null) {
+                bossGroup.shutdownGracefully(0, 0, TimeUnit.MILLISECONDS).syncUninterruptibly();
+            }
+            if (workerGroup != null) {
+                workerGroup.shutdownGracefully(0, 0, TimeUnit.MILLISECONDS).syncUninterruptibly();
+            }
+        } catch (Throwable e) {
+            logger.warn(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * closes the websocket which sends nothing, not even a ping, within the idle timeout
+     */
+    @io.netty.channel.ChannelHandler.Sharable
+    static class IdleCloseHandler extends ChannelInboundHandlerAdapter {
+
+        static final IdleCloseHandler INSTANCE = new IdleCloseHandler();
+
+        @Override
+        public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+            if (evt instanceof IdleStateEvent) {
+                logger.info("IdleStateEvent triggered, close websocket " + ctx.channel());
+                ctx.writeAndFlush(new CloseWebSocketFrame(WebSocketCloseStatus.NORMAL_CLOSURE, "idle"))
+                        .addListener(ChannelFutureListener.CLOSE);
+                return;
+            }
+            super.userEventTriggered(ctx, evt);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.hikvision.websocket.netty.handler;
+
+import com.hikvision.websocket.governance.TokenBucket;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits the connections accepted per second, shared by all acceptors of a server.
+ * <p>
+ * Installed on the server channels in front of the acceptor. Once the rate is used up the connection
+ * just accepted is closed and the server channel stops accepting for a permit interval, so a reconnect
+ * storm waits in the kernel accept queue instead of flooding the worker threads.
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 15:30
+ */
+@io.netty.channel.ChannelHandler.Sharable
+public class AcceptRateLimiter extends ChannelInboundHandlerAdapter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AcceptRateLimiter.class);
+
+    private final TokenBucket bucket;
+
+    /**
+     * pause(ms) of a server channel which ran out of permits
+     */
+    private final long pause;
+
+    private final LongAdder accepted = new LongAdder();
+
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * @param permitsPerSecond accepted connections per second, a second of connections may be accepted at once
+     */
+    public AcceptRateLimiter(int permitsPerSecond) {
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("accept rate should be positive: " + permitsPerSecond);
+        }
+        this.bucket = new TokenBucket(permitsPerSecond, permitsPerSecond);
+        this.pause = Math.max(1L, 1000L / permitsPerSecond);
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (!(msg instanceof Channel) || bucket.tryAcquire()) {
+            accepted.increment();
+            ctx.fireChannelRead(msg);
+            return;
+        }
+        rejected.increment();
+        // not registered to a worker yet, close the socket directly like the acceptor does on failure
+        ((Channel) msg).unsafe().closeForcibly();
+        Channel server = ctx.channel();
+        if (server.config().isAutoRead()) {
+            server.config().setAutoRead(false);
+            if (logger.isDebugEnabled()) {
+                logger.debug("Accept rate of " + server + " exceeded, pause accepting for " + pause + "ms.");
+            }
+            ctx.executor().schedule(() -> {
+                server.config().setAutoRead(true);
+            }, pause, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public long getAccepted() {
+        return accepted.sum();
+    }
+
+    /**
+     * connections closed at once as the accept rate was exceeded
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+}
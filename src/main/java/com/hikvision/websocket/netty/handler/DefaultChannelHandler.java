@@ -1,6 +1,7 @@
 package com.hikvision.websocket.netty.handler;
 
 import com.hikvision.websocket.exception.RemotingException;
+import com.hikvision.websocket.netty.exchange.EventDispatcher;
 import com.hikvision.websocket.netty.exchange.Response;
 import com.hikvision.websocket.netty.remoting.Channel;
 import com.hikvision.websocket.netty.remoting.ChannelHandler;
@@ -11,8 +12,6 @@ import com.hikvision.websocket.netty.remoting.ChannelHandler;
  */
 public class DefaultChannelHandler implements ChannelHandler {
 
-    private static volatile DefaultChannelHandler INSTANCE;
-
     private DefaultChannelHandler() {
     }
 
@@ -34,7 +33,8 @@ public class DefaultChannelHandler implements ChannelHandler {
     @Override
     public void received(Channel channel, Object message) throws RemotingException {
         if (message instanceof Response) {
-
+            // sent by the device on its own
+            EventDispatcher.getInstance().dispatch(channel, (Response) message);
         }
     }
 
@@ -44,13 +44,14 @@ public class DefaultChannelHandler implements ChannelHandler {
     }
 
     public static DefaultChannelHandler getInstance() {
-        if (INSTANCE == null) {
-            synchronized (DefaultChannelHandler.class) {
-                if (INSTANCE == null) {
-                    INSTANCE = new DefaultChannelHandler();
-                }
-            }
-        }
-        return INSTANCE;
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * lazy holder, initialized by the class loader without a monitor on the send path
+     */
+    private static final class Holder {
+
+        private static final DefaultChannelHandler INSTANCE = new DefaultChannelHandler();
     }
 }
@@ -2,8 +2,12 @@ package com.hikvision.websocket.netty.handler;
 
 import com.hikvision.websocket.api.URL;
 import com.hikvision.websocket.netty.NettyChannel;
+import com.hikvision.websocket.netty.exchange.EventDispatcher;
+import com.hikvision.websocket.netty.exchange.ExpiredRequests;
 import com.hikvision.websocket.netty.exchange.Request;
+import com.hikvision.websocket.netty.exchange.RequestTrace;
 import com.hikvision.websocket.netty.exchange.Response;
+import com.hikvision.websocket.netty.exchange.ResponseFuture;
 import com.hikvision.websocket.netty.exchange.ResultCollector;
 import com.hikvision.websocket.netty.remoting.ChannelHandler;
 import io.netty.channel.ChannelDuplexHandler;
@@ -27,6 +31,18 @@ public class NettyClientHandler extends ChannelDuplexHandler {
 
     private final ResultCollector listener;
 
+    private final EventDispatcher events = EventDispatcher.getInstance();
+
+    /**
+     * time(ms) of the latest read
+     */
+    private volatile long lastReadTime;
+
+    /**
+     * time(ms) of the latest completed write
+     */
+    private volatile long lastWriteTime;
+
     public NettyClientHandler(URL url, ChannelHandler handler, ResultCollector listener) {
         if (url == null) {
             throw new IllegalArgumentException("url == null");
@@ -58,6 +74,9 @@ public class NettyClientHandler extends ChannelDuplexHandler {
             handler.disconnected(channel);
         } finally {
             NettyChannel.removeChannel(ctx.channel());
+            channel.writabilityChanged();
+            // the unfinished requests will never be answered
+            listener.failAll(Response.CHANNEL_INACTIVE, "channel inactive: " + channel.getRemoteAddress());
         }
 
         if (logger.isInfoEnabled()) {
@@ -67,30 +86,78 @@ public class NettyClientHandler extends ChannelDuplexHandler {
 
     @Override
     public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
-        listener.received(msg);
+        lastReadTime = System.currentTimeMillis();
+        // an event never completes a request, whatever is pending
+        if ((msg instanceof Response && events.isEvent(((Response) msg).getCommand())) || !listener.received(msg)) {
+            NettyChannel channel = NettyChannel.getOrAddChannel(ctx.channel(), url, handler);
+            handler.received(channel, msg);
+        }
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        ResponseFuture<Request, Response> future = null;
+        if (msg instanceof ResponseFuture) {
+            // a request waiting for its response, correlated in write order
+            future = (ResponseFuture<Request, Response>) msg;
+            if (!listener.sent(future)) {
+                // expired while queued, nobody waits for it any more
+                promise.cancel(false);
+                return;
+            }
+            msg = future.getRequest();
+        } else if (msg instanceof Request && ((Request) msg).isExpired()) {
+            ExpiredRequests.droppedBeforeWrite();
+            promise.cancel(false);
+            return;
+        }
         super.write(ctx, msg, promise);
         NettyChannel channel = NettyChannel.getOrAddChannel(ctx.channel(), url, handler);
-        boolean isRequest = msg instanceof Request;
+        final Object message = msg;
+        final ResponseFuture<Request, Response> responseFuture = future;
 
         // 需要保证出站事件的正确，在大多数情况下，都是由于编码器
         // 工作错误导致的，在出错时直接返回
-        promise.addListener(future -> {
-            if (future.isSuccess()) {
-                handler.sent(channel, msg);
+        promise.addListener(f -> {
+            if (f.isSuccess()) {
+                lastWriteTime = System.currentTimeMillis();
+                traceFlushed(message);
+                handler.sent(channel, message);
                 return;
             }
 
-            Throwable cause = future.cause();
-            if (cause != null && isRequest) {
-                listener.received(buildErrorResponse(cause));
+            Throwable cause = f.cause();
+            if (cause != null && responseFuture != null) {
+                listener.fail(responseFuture, Response.BAD_REQUEST, cause.getMessage());
             }
         });
     }
 
+    public long getLastReadTime() {
+        return lastReadTime;
+    }
+
+    public long getLastWriteTime() {
+        return lastWriteTime;
+    }
+
+    static void traceFlushed(Object message) {
+        RequestTrace trace = message instanceof Request ? ((Request) message).getTrace() : null;
+        if (trace != null) {
+            trace.setFlushed(System.nanoTime());
+        }
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        NettyChannel channel = NettyChannel.getChannel(ctx.channel());
+        if (channel != null) {
+            channel.writabilityChanged();
+        }
+        super.channelWritabilityChanged(ctx);
+    }
+
     @Override
     public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
         // 使用心跳保活时
@@ -106,14 +173,4 @@ public class NettyClientHandler extends ChannelDuplexHandler {
             NettyChannel.removeChannelIfDisconnected(ctx.channel());
         }
     }
-
-    /**
-     * build a bad request's response
-     *
-     * @param t       the throwable. In most cases, serialization fails.
-     * @return the response
-     */
-    private static Response buildErrorResponse(Throwable t) {
-        return new Response(Response.BAD_REQUEST, t.getMessage());
-    }
 }
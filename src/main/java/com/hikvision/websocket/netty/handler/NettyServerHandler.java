@@ -0,0 +1,216 @@
+package com.hikvision.websocket.netty.handler;
+
+import com.hikvision.websocket.api.URL;
+import com.hikvision.websocket.netty.DeviceSession;
+import com.hikvision.websocket.netty.NettyChannel;
+import com.hikvision.websocket.netty.NettyServer;
+import com.hikvision.websocket.netty.exchange.EventDispatcher;
+import com.hikvision.websocket.netty.exchange.ExpiredRequests;
+import com.hikvision.websocket.netty.exchange.MessageHeader;
+import com.hikvision.websocket.netty.exchange.Request;
+import com.hikvision.websocket.netty.exchange.Response;
+import com.hikvision.websocket.netty.exchange.ResponseFuture;
+import com.hikvision.websocket.netty.remoting.Channel;
+import com.hikvision.websocket.utils.NetUtils;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.util.AttributeKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Handler of the inbound device connections, a connection is bound to a {@link DeviceSession}
+ * once its first frame identifies the device
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 14:50
+ */
+@io.netty.channel.ChannelHandler.Sharable
+public class NettyServerHandler extends ChannelDuplexHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(NettyServerHandler.class);
+
+    private static final AttributeKey<DeviceSession> SESSION_KEY = AttributeKey.valueOf("websocket.device.session");
+
+    /**
+     * the cache for alive worker channel.
+     * <ip:port, channel>
+     */
+    private final Map<String, Channel> channels = new ConcurrentHashMap<>();
+
+    private final URL url;
+
+    private final NettyServer server;
+
+    private final EventDispatcher events = EventDispatcher.getInstance();
+
+    /**
+     * wait time(ms) for the first frame, non-positive means no limit
+     */
+    private final int identifyTimeout;
+
+    public NettyServerHandler(URL url, NettyServer server, int identifyTimeout) {
+        if (url == null) {
+            throw new IllegalArgumentException("url == null");
+        }
+        if (server == null) {
+            throw new IllegalArgumentException("server == null");
+        }
+        this.url = url;
+        this.server = server;
+        this.identifyTimeout = identifyTimeout;
+    }
+
+    public Map<String, Channel> getChannels() {
+        return channels;
+    }
+
+    /**
+     * @return session bound to the netty channel, null until the device is identified
+     */
+    public static DeviceSession getSession(io.netty.channel.Channel ch) {
+        return ch.attr(SESSION_KEY).get();
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        NettyChannel channel = NettyChannel.getOrAddChannel(ctx.channel(), url, server);
+        if (channel != null) {
+            channels.put(NetUtils.toAddressString((InetSocketAddress) ctx.channel().remoteAddress()), channel);
+        }
+        server.connected(channel);
+        if (identifyTimeout > 0 && ctx.channel().isActive()) {
+            ctx.executor().schedule(() -> {
+                if (ctx.channel().isActive() && getSession(ctx.channel()) == null) {
+                    logger.warn("Close " + ctx.channel() + ", cause: no frame identifying the device in " + identifyTimeout + "ms.");
+                    ctx.close();
+                }
+            }, identifyTimeout, TimeUnit.MILLISECONDS);
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("The connection of " + channel.getRemoteAddress() + " -> " + channel.getLocalAddress() + " is established.");
+        }
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        NettyChannel channel = NettyChannel.getOrAddChannel(ctx.channel(), url, server);
+        try {
+            channels.remove(NetUtils.toAddressString((InetSocketAddress) ctx.channel().remoteAddress()));
+            server.disconnected(channel);
+        } finally {
+            NettyChannel.removeChannel(ctx.channel());
+            channel.writabilityChanged();
+            DeviceSession session = getSession(ctx.channel());
+            if (session != null) {
+                // the unfinished requests will never be answered
+                server.unregister(session);
+                session.getResultCollector().failAll(Response.CHANNEL_INACTIVE, "channel inactive: " + channel.getRemoteAddress());
+            }
+        }
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("The connection of " + channel.getRemoteAddress() + " -> " + channel.getLocalAddress() + " is disconnected.");
+        }
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        NettyChannel channel = NettyChannel.getOrAddChannel(ctx.channel(), url, server);
+        DeviceSession session = getSession(ctx.channel());
+        if (session == null) {
+            String deviceId = msg instanceof Response ? MessageHeader.deviceId(((Response) msg).getContent()) : null;
+            if (deviceId == null) {
+                logger.warn("Close " + ctx.channel() + ", cause: the first frame does not identify the device.");
+                ctx.close();
+                return;
+            }
+            session = server.identify(deviceId, channel);
+            ctx.channel().attr(SESSION_KEY).set(session);
+            // the first frame (e.g. registration) is not an answer to a request
+            server.received(channel, msg);
+            return;
+        }
+        if ((msg instanceof Response && events.isEvent(((Response) msg).getCommand())) || !session.received(msg)) {
+            // sent by the device on its own
+            server.received(channel, msg);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        DeviceSession session = getSession(ctx.channel());
+        ResponseFuture<Request, Response> future = null;
+        if (msg instanceof ResponseFuture) {
+            future = (ResponseFuture<Request, Response>) msg;
+            if (session == null || !session.getResultCollector().sent(future)) {
+                // expired while queued, nobody waits for it any more
+                promise.cancel(false);
+                return;
+            }
+            msg = future.getRequest();
+        } else if (msg instanceof Request && ((Request) msg).isExpired()) {
+            ExpiredRequests.droppedBeforeWrite();
+            promise.cancel(false);
+            return;
+        }
+        super.write(ctx, msg, promise);
+        NettyChannel channel = NettyChannel.getOrAddChannel(ctx.channel(), url, server);
+        final Object message = msg;
+        final ResponseFuture<Request, Response> responseFuture = future;
+        promise.addListener(f -> {
+            if (f.isSuccess()) {
+                NettyClientHandler.traceFlushed(message);
+                server.sent(channel, message);
+                return;
+            }
+
+            Throwable cause = f.cause();
+            if (cause != null && responseFuture != null) {
+                session.getResultCollector().fail(responseFuture, Response.BAD_REQUEST, cause.getMessage());
+            }
+        });
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        NettyChannel channel = NettyChannel.getChannel(ctx.channel());
+        if (channel != null) {
+            channel.writabilityChanged();
+        }
+        super.channelWritabilityChanged(ctx);
+    }
+
+    @Override
+    public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+        // server will close channel when the device sends nothing within the idle timeout
+        if (evt instanceof IdleStateEvent) {
+            NettyChannel channel = NettyChannel.getOrAddChannel(ctx.channel(), url, server);
+            try {
+                logger.info("IdleStateEvent triggered, close channel " + channel);
+                channel.close();
+            } finally {
+                NettyChannel.removeChannelIfDisconnected(ctx.channel());
+            }
+        }
+        super.userEventTriggered(ctx, evt);
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+        NettyChannel channel = NettyChannel.getOrAddChannel(ctx.channel(), url, server);
+        try {
+            server.caught(channel, cause);
+        } finally {
+            NettyChannel.removeChannelIfDisconnected(ctx.channel());
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.hikvision.websocket.netty.remoting;
+
+import com.hikvision.websocket.exception.RemotingException;
+import com.hikvision.websocket.netty.exchange.Request;
+import com.hikvision.websocket.netty.exchange.Response;
+import com.hikvision.websocket.netty.exchange.ResponseFuture;
+
+/**
+ * Channel correlating requests with the responses of the device, either an outbound client
+ * or an inbound device session
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 14:50
+ */
+public interface ExchangeChannel extends Channel {
+
+    /**
+     * send a request.
+     *
+     * @param request request
+     * @param timeout wait time(ms), non-positive means no timeout besides the deadline of the request
+     * @return response future
+     */
+    ResponseFuture<Request, Response> request(Request request, int timeout) throws RemotingException;
+
+    /**
+     * whether the outbound buffer is below the high water mark, so a send does not wait for backpressure
+     */
+    boolean isWritable();
+}
@@ -0,0 +1,35 @@
+package com.hikvision.websocket.netty.remoting;
+
+import java.net.InetSocketAddress;
+import java.util.Collection;
+
+/**
+ * Server
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 14:50
+ */
+public interface Server extends Endpoint {
+
+    /**
+     * is bound.
+     *
+     * @return bound
+     */
+    boolean isBound();
+
+    /**
+     * get channels.
+     *
+     * @return channels
+     */
+    Collection<Channel> getChannels();
+
+    /**
+     * get channel.
+     *
+     * @param remoteAddress remote address
+     * @return channel
+     */
+    Channel getChannel(InetSocketAddress remoteAddress);
+}
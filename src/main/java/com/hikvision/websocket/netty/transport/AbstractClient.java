@@ -2,6 +2,7 @@ package com.hikvision.websocket.netty.transport;
 
 import com.hikvision.websocket.api.URL;
 import com.hikvision.websocket.exception.RemotingException;
+import com.hikvision.websocket.metrics.jfr.JfrEvents;
 import com.hikvision.websocket.netty.exchange.ResultCollector;
 import com.hikvision.websocket.netty.remoting.Channel;
 import com.hikvision.websocket.netty.remoting.ChannelHandler;
@@ -116,19 +117,33 @@ public abstract class AbstractClient extends AbstractEndpoint implements Client
     @Override
     public void reconnect() throws RemotingException {
         connectLock.lock();
+        Object reconnectEvent = JfrEvents.beginReconnect();
         try {
             disconnect();
             connect();
         } finally {
             connectLock.unlock();
+            if (reconnectEvent != null) {
+                JfrEvents.endReconnect(reconnectEvent, getUrl().toInetSocketAddress(), isConnected());
+            }
         }
     }
 
     @Override
     public void send(Object message, boolean sent) throws RemotingException {
+        if (isClosing()) {
+            throw new RemotingException(this, "message can not send, because client is closing. url:" + getUrl());
+        }
         // default support reconnect
         if (!isConnected()) {
-            connect();
+            Object reconnectEvent = JfrEvents.beginReconnect();
+            try {
+                connect();
+            } finally {
+                if (reconnectEvent != null) {
+                    JfrEvents.endReconnect(reconnectEvent, getUrl().toInetSocketAddress(), isConnected());
+                }
+            }
         }
         Channel channel = getChannel();
         if (channel == null || !channel.isConnected()) {
@@ -158,6 +173,37 @@ public abstract class AbstractClient extends AbstractEndpoint implements Client
         }
     }
 
+    /**
+     * Graceful close: stop new sends, wait for the responses of in-flight requests,
+     * flush the outbound buffer and then close the client.
+     *
+     * @param timeout wait time(ms)
+     */
+    @Override
+    public void close(int timeout) {
+        startClose();
+        if (timeout > 0) {
+            long start = System.currentTimeMillis();
+            while (resultCollector.hasPending() && System.currentTimeMillis() - start < timeout) {
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            if (resultCollector.hasPending()) {
+                logger.warn("Close " + getClass().getSimpleName() + " to server " + getRemoteAddress() + " with "
+                        + resultCollector.getPendingCount() + " requests unanswered in " + timeout + "ms.");
+            }
+            Channel channel = getChannel();
+            if (channel != null) {
+                channel.close((int) Math.max(0, timeout - (System.currentTimeMillis() - start)));
+            }
+        }
+        close();
+    }
+
     @Override
     public void close() {
         if (isClosed()) {
@@ -12,7 +12,7 @@ import com.hikvision.websocket.netty.remoting.ChannelHandler;
  */
 public abstract class AbstractEndpoint extends AbstractPeer {
 
-    private int connectTimeout;
+    private volatile int connectTimeout;
 
     public AbstractEndpoint(URL url, ChannelHandler handler) {
         super(url, handler);
@@ -22,4 +22,8 @@ public abstract class AbstractEndpoint extends AbstractPeer {
     protected int getConnectTimeout() {
         return connectTimeout;
     }
+
+    protected void setConnectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
 }
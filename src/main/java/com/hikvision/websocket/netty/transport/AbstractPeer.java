@@ -40,8 +40,15 @@ public abstract class AbstractPeer implements Endpoint, ChannelHandler {
         this.closed = true;
     }
 
+    /**
+     * Graceful close, subclasses wait for their in-flight work within the timeout
+     * after {@link #startClose()} has stopped new sends.
+     *
+     * @param timeout wait time(ms)
+     */
     @Override
     public void close(int timeout) {
+        startClose();
         close();
     }
 
@@ -0,0 +1,133 @@
+package com.hikvision.websocket.netty.transport;
+
+import com.hikvision.websocket.api.URL;
+import com.hikvision.websocket.exception.RemotingException;
+import com.hikvision.websocket.netty.remoting.Channel;
+import com.hikvision.websocket.netty.remoting.ChannelHandler;
+import com.hikvision.websocket.netty.remoting.Server;
+import com.hikvision.websocket.utils.NetUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetSocketAddress;
+import java.util.Collection;
+
+import static com.hikvision.websocket.constants.CommonConstants.ANYHOST_KEY;
+import static com.hikvision.websocket.constants.CommonConstants.ANYHOST_VALUE;
+import static com.hikvision.websocket.constants.Constants.ACCEPTS_KEY;
+import static com.hikvision.websocket.constants.Constants.BIND_IP_KEY;
+import static com.hikvision.websocket.constants.Constants.BIND_PORT_KEY;
+import static com.hikvision.websocket.constants.Constants.DEFAULT_ACCEPTS;
+
+/**
+ * server skeletal implementation
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 14:50
+ */
+public abstract class AbstractServer extends AbstractEndpoint implements Server {
+
+    private static final Logger logger = LoggerFactory.getLogger(AbstractServer.class);
+
+    private final InetSocketAddress localAddress;
+
+    private final InetSocketAddress bindAddress;
+
+    /**
+     * max connections, non-positive means unlimited
+     */
+    private final int accepts;
+
+    public AbstractServer(URL url, ChannelHandler handler) throws RemotingException {
+        super(url, handler);
+        localAddress = url.toInetSocketAddress();
+
+        String bindIp = url.getParameter(BIND_IP_KEY, url.getHost());
+        int bindPort = url.getParameter(BIND_PORT_KEY, url.getPort());
+        if (url.getParameter(ANYHOST_KEY, false) || NetUtils.isInvalidLocalHost(bindIp)) {
+            bindIp = ANYHOST_VALUE;
+        }
+        bindAddress = new InetSocketAddress(bindIp, bindPort);
+        this.accepts = url.getParameter(ACCEPTS_KEY, DEFAULT_ACCEPTS);
+        try {
+            doOpen();
+            if (logger.isInfoEnabled()) {
+                logger.info("Start " + getClass().getSimpleName() + " bind " + getBindAddress() + ", export " + getLocalAddress());
+            }
+        } catch (Throwable t) {
+            close();
+            throw new RemotingException(url.toInetSocketAddress(), null, "Failed to bind " + getClass().getSimpleName()
+                    + " on " + getBindAddress() + ", cause: " + t.getMessage(), t);
+        }
+    }
+
+    @Override
+    public void send(Object message, boolean sent) throws RemotingException {
+        Collection<Channel> channels = getChannels();
+        for (Channel channel : channels) {
+            if (channel.isConnected()) {
+                channel.send(message, sent);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (isClosed()) {
+            return;
+        }
+        if (logger.isInfoEnabled()) {
+            logger.info("Close " + getClass().getSimpleName() + " bind " + getBindAddress() + ", export " + getLocalAddress());
+        }
+        super.close();
+        try {
+            doClose();
+        } catch (Throwable e) {
+            logger.warn(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public InetSocketAddress getLocalAddress() {
+        return localAddress;
+    }
+
+    public InetSocketAddress getBindAddress() {
+        return bindAddress;
+    }
+
+    public int getAccepts() {
+        return accepts;
+    }
+
+    @Override
+    public void connected(Channel ch) throws RemotingException {
+        // If the server has entered the shutdown process, reject any new connection
+        if (this.isClosing() || this.isClosed()) {
+            logger.warn("Close new channel " + ch + ", cause: server is closing or has been closed. For example, receive a new connect request while in shutdown process.");
+            ch.close();
+            return;
+        }
+
+        if (accepts > 0 && getChannels().size() > accepts) {
+            logger.error("Close channel " + ch + ", cause: The server " + ch.getLocalAddress() + " connections greater than max config " + accepts);
+            ch.close();
+            return;
+        }
+        super.connected(ch);
+    }
+
+    /**
+     * Open server.
+     *
+     * @throws Throwable
+     */
+    protected abstract void doOpen() throws Throwable;
+
+    /**
+     * Close server.
+     *
+     * @throws Throwable
+     */
+    protected abstract void doClose() throws Throwable;
+}
@@ -1,5 +1,6 @@
 package com.hikvision.websocket.service;
 
+import com.hikvision.websocket.netty.exchange.DeviceEventListener;
 import com.hikvision.websocket.netty.exchange.Request;
 import com.hikvision.websocket.netty.exchange.Response;
 
@@ -30,7 +31,8 @@ public interface IDeviceCommunicationService {
     void disconnected(InetSocketAddress address);
 
     /**
-     * synchronous send a request to the specified device
+     * synchronous send a request to the specified device, the waits hold no monitor so a caller on
+     * a virtual thread(Java 21) unmounts from its carrier thread while waiting
      *
      * @param address device socket address
      * @param request request data
@@ -55,4 +57,71 @@ public interface IDeviceCommunicationService {
      * @param request request data
      */
     void confirm(InetSocketAddress address, Request request);
+
+    /**
+     * synchronous send a request to the device connected to the server
+     *
+     * @param deviceId device id, the struAddress of the device in hex, see {@link com.hikvision.websocket.netty.exchange.MessageHeader#deviceId(byte[])}
+     * @param request  request data
+     * @return response body
+     * @throws TimeoutException if the wait timed out（default 10 seconds）
+     */
+    Response send(String deviceId, Request request) throws TimeoutException;
+
+    /**
+     * asynchronous send a request to the device connected to the server
+     *
+     * @param deviceId device id
+     * @param request  request data
+     * @return asynchronous result
+     */
+    Future<Response> sendAsync(String deviceId, Request request);
+
+    /**
+     * confirm device response data to the device connected to the server
+     *
+     * @param deviceId device id
+     * @param request  request data
+     */
+    void confirm(String deviceId, Request request);
+
+    /**
+     * disconnect the device connected to the server
+     *
+     * @param deviceId device id
+     */
+    void disconnected(String deviceId);
+
+    /**
+     * whether the device is connected to the server
+     *
+     * @param deviceId device id
+     * @return online
+     */
+    boolean isOnline(String deviceId);
+
+    /**
+     * listen to the events of a command sent by the devices on their own, frames of the command
+     * are never taken as responses then
+     *
+     * @param command  dwCommand of the event
+     * @param listener invoked on the thread the connection dispatches events to, see
+     *                 {@link com.hikvision.websocket.netty.dispatcher.Dispatcher}
+     */
+    void addEventListener(int command, DeviceEventListener listener);
+
+    /**
+     * listen to the events of all commands, including frames no request waits for
+     *
+     * @param listener invoked on the thread the connection dispatches events to, see
+     *                 {@link com.hikvision.websocket.netty.dispatcher.Dispatcher}
+     */
+    void addEventListener(DeviceEventListener listener);
+
+    /**
+     * stop listening to any event
+     *
+     * @param listener listener
+     */
+    void removeEventListener(DeviceEventListener listener);
 }
@@ -0,0 +1,54 @@
+package com.hikvision.websocket.service;
+
+import com.hikvision.websocket.netty.exchange.Request;
+import com.hikvision.websocket.netty.exchange.Response;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+
+/**
+ * Reactive device communication interface, available when reactor-core is on the classpath.
+ * <p>
+ * Requests are sent on subscription and complete from the io thread with the response, like
+ * {@link IDeviceCommunicationService#sendAsync}, no thread waits for the device.
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 18:00
+ */
+public interface IReactiveDeviceCommunicationService {
+
+    /**
+     * send a request to the specified device on subscription
+     *
+     * @param address device socket address
+     * @param request request data
+     * @return response body, a timed out request completes with {@link Response#CLIENT_TIMEOUT}
+     */
+    Mono<Response> send(InetSocketAddress address, Request request);
+
+    /**
+     * send a request to the device connected to the server on subscription
+     *
+     * @param deviceId device id
+     * @param request  request data
+     * @return response body, an error if the device is not connected
+     */
+    Mono<Response> send(String deviceId, Request request);
+
+    /**
+     * Events of a command sent by the devices on their own, frames of the command are never taken as
+     * responses while subscribed. Without demand the connections the events arrive on stop reading.
+     *
+     * @param command dwCommand of the event
+     * @return events of all devices, until cancelled
+     */
+    Flux<Response> events(int command);
+
+    /**
+     * events of all commands, including frames no request waits for
+     *
+     * @return events of all devices, until cancelled
+     */
+    Flux<Response> events();
+}
@@ -1,14 +1,41 @@
 package com.hikvision.websocket.service.impl;
 
+import com.hikvision.websocket.api.URL;
+import com.hikvision.websocket.exception.AdmissionRejectedException;
+import com.hikvision.websocket.exception.CircuitBreakerOpenException;
+import com.hikvision.websocket.exception.RateLimitExceededException;
+import com.hikvision.websocket.exception.RemotingException;
+import com.hikvision.websocket.governance.AdaptiveTimeoutRegistry;
+import com.hikvision.websocket.governance.AdmissionController;
+import com.hikvision.websocket.governance.CircuitBreaker;
+import com.hikvision.websocket.governance.CircuitBreakerRegistry;
+import com.hikvision.websocket.governance.RateLimiterRegistry;
+import com.hikvision.websocket.governance.RetryPolicy;
+import com.hikvision.websocket.governance.RetryRule;
+import com.hikvision.websocket.metrics.ClientMetrics;
+import com.hikvision.websocket.netty.DeviceSession;
 import com.hikvision.websocket.netty.handler.DefaultChannelHandler;
 import com.hikvision.websocket.netty.NettyClient;
+import com.hikvision.websocket.netty.NettyServer;
+import com.hikvision.websocket.netty.exchange.DeviceEventListener;
+import com.hikvision.websocket.netty.exchange.EventDispatcher;
 import com.hikvision.websocket.netty.exchange.Request;
 import com.hikvision.websocket.netty.exchange.Response;
+import com.hikvision.websocket.netty.exchange.ResponseFuture;
+import com.hikvision.websocket.netty.remoting.ExchangeChannel;
 import com.hikvision.websocket.service.IDeviceCommunicationService;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -20,40 +47,593 @@ import java.util.concurrent.TimeoutException;
  */
 public class DeviceCommunicationServiceImpl implements IDeviceCommunicationService {
 
+    private static final Logger logger = LoggerFactory.getLogger(DeviceCommunicationServiceImpl.class);
+
     private final int requestTimeout;
 
+    /**
+     * transport parameters of every created client, see {@link URL#getParameters()}
+     */
+    private final Map<String, String> clientParameters;
+
+    /**
+     * per device circuit breakers, null means disabled
+     */
+    private volatile CircuitBreakerRegistry circuitBreakerRegistry;
+
+    /**
+     * per device and dwCommand request timeouts, null means every request uses {@link #requestTimeout}
+     */
+    private volatile AdaptiveTimeoutRegistry adaptiveTimeoutRegistry;
+
+    /**
+     * per device and dwCommand rate limiters, null means unlimited
+     */
+    private volatile RateLimiterRegistry rateLimiterRegistry;
+
+    /**
+     * outstanding request and in-flight byte budgets, null means unlimited
+     */
+    private volatile AdmissionController admissionController;
+
+    /**
+     * per dwCommand retry rules, null means no request is retried
+     */
+    private volatile RetryPolicy retryPolicy;
+
     public DeviceCommunicationServiceImpl(int requestTimeout) {
+        this(requestTimeout, Collections.emptyMap());
+    }
+
+    public DeviceCommunicationServiceImpl(int requestTimeout, Map<String, String> clientParameters) {
         this.requestTimeout = requestTimeout;
+        this.clientParameters = clientParameters;
+    }
+
+    public void setCircuitBreakerRegistry(CircuitBreakerRegistry circuitBreakerRegistry) {
+        this.circuitBreakerRegistry = circuitBreakerRegistry;
+    }
+
+    public void setAdaptiveTimeoutRegistry(AdaptiveTimeoutRegistry adaptiveTimeoutRegistry) {
+        this.adaptiveTimeoutRegistry = adaptiveTimeoutRegistry;
+    }
+
+    public void setRateLimiterRegistry(RateLimiterRegistry rateLimiterRegistry) {
+        this.rateLimiterRegistry = rateLimiterRegistry;
+    }
+
+    public void setAdmissionController(AdmissionController admissionController) {
+        this.admissionController = admissionController;
+    }
+
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
     }
 
     @Override
     public void connect(InetSocketAddress address) {
-       NettyClient.getOrAddClient(address, DefaultChannelHandler.getInstance());
+        getOrAddClient(address);
     }
 
     @Override
     public void disconnected(InetSocketAddress address) {
         NettyClient.removeClient(address);
+        CircuitBreakerRegistry registry = circuitBreakerRegistry;
+        if (registry != null && address != null) {
+            registry.remove(address);
+        }
+        AdaptiveTimeoutRegistry timeouts = adaptiveTimeoutRegistry;
+        if (timeouts != null && address != null) {
+            timeouts.remove(address);
+        }
+        RateLimiterRegistry limiters = rateLimiterRegistry;
+        if (limiters != null && address != null) {
+            limiters.remove(address);
+        }
+        AdmissionController admission = admissionController;
+        if (admission != null && address != null) {
+            admission.remove(address);
+        }
+        ClientMetrics.remove(address);
+    }
+
+    @Override
+    public void disconnected(String deviceId) {
+        DeviceSession session = NettyServer.getSession(deviceId);
+        if (session != null) {
+            // the governance state is released once the channel is inactive, see InboundChannelHandler
+            session.close();
+        }
+    }
+
+    @Override
+    public boolean isOnline(String deviceId) {
+        DeviceSession session = NettyServer.getSession(deviceId);
+        return session != null && session.isConnected();
+    }
+
+    @Override
+    public void addEventListener(int command, DeviceEventListener listener) {
+        EventDispatcher.getInstance().addListener(command, listener);
+    }
+
+    @Override
+    public void addEventListener(DeviceEventListener listener) {
+        EventDispatcher.getInstance().addListener(listener);
+    }
+
+    @Override
+    public void removeEventListener(DeviceEventListener listener) {
+        EventDispatcher.getInstance().removeListener(listener);
     }
 
     @Override
     public Response send(InetSocketAddress address, Request request) throws TimeoutException {
-        NettyClient client = NettyClient.getOrAddClient(address, DefaultChannelHandler.getInstance());
-        Future<Response> future = client.request(request);
+        return send(address, null, request);
+    }
+
+    @Override
+    public Response send(String deviceId, Request request) throws TimeoutException {
+        return send(addressOf(deviceId), deviceId, request);
+    }
+
+    /**
+     * @param address  device socket address, the key of the governance state of the device
+     * @param deviceId id of an inbound device, null to connect to the address
+     */
+    private Response send(InetSocketAddress address, String deviceId, Request request) throws TimeoutException {
+        AdmissionController.Permit admission = admit(address, request);
+        try {
+            return sendWithRetry(address, deviceId, request);
+        } finally {
+            if (admission != null) {
+                admission.release();
+            }
+        }
+    }
+
+    /**
+     * Send the request, retrying it on the caller thread as its retry rule allows.
+     * A retry goes through the rate limiter and the circuit breaker again, and reconnects if the
+     * connection of the failed attempt is gone.
+     */
+    private Response sendWithRetry(InetSocketAddress address, String deviceId, Request request) throws TimeoutException {
+        RetryPolicy policy = retryPolicy;
+        RetryRule rule = policy == null ? null : policy.ruleOf(request.getCommand());
+        if (rule == null) {
+            return doSend(address, deviceId, request);
+        }
+        policy.getBudget().onRequest();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                Response response = doSend(address, deviceId, request);
+                if (!rule.isIdempotent() || response.getStatus() != Response.CHANNEL_INACTIVE
+                        || !canRetry(policy, rule, attempt, request)) {
+                    return response;
+                }
+            } catch (TimeoutException e) {
+                if (!rule.isIdempotent() || Thread.currentThread().isInterrupted()
+                        || !canRetry(policy, rule, attempt, request)) {
+                    throw e;
+                }
+            } catch (RemotingException e) {
+                if (!isRetryable(e) || !canRetry(policy, rule, attempt, request)) {
+                    throw e;
+                }
+            }
+            long backoff = policy.backoff(rule, attempt);
+            if (logger.isDebugEnabled()) {
+                logger.debug("Retry command " + request.getCommand() + " to " + address + " in " + backoff + "ms, attempt " + (attempt + 1));
+            }
+            try {
+                TimeUnit.MILLISECONDS.sleep(backoff);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new TimeoutException("Interrupted while waiting to retry the request to " + address);
+            }
+        }
+    }
+
+    private Response doSend(InetSocketAddress address, String deviceId, Request request) throws TimeoutException {
+        int command = request.getCommand();
+        awaitPermit(address, command);
+        CircuitBreaker breaker = acquire(address);
+        int timeout = timeout(address, command);
+        long start;
+        ResponseFuture<Request, Response> future;
+        Response response;
         try {
-            return future.get(requestTimeout, TimeUnit.MILLISECONDS);
-        } catch (InterruptedException | TimeoutException | ExecutionException e) {
-            throw new TimeoutException("Exceeds the default wait time of 10 seconds");
+            ExchangeChannel channel = exchange(address, deviceId);
+            start = System.currentTimeMillis();
+            future = channel.request(request, timeout);
+            response = future.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            if (breaker != null) {
+                breaker.release();
+            }
+            Thread.currentThread().interrupt();
+            throw new TimeoutException("Interrupted while waiting for the response of " + address);
+        } catch (TimeoutException | ExecutionException e) {
+            if (breaker != null) {
+                breaker.onFailure(true);
+            }
+            recordLatency(address, command, timeout);
+            throw new TimeoutException("Exceeds the wait time of " + timeout + "ms");
+        } catch (RemotingException e) {
+            if (breaker != null) {
+                breaker.onFailure(false);
+            }
+            throw e;
+        }
+        record(breaker, address, command, start, timeout, future, response);
+        if (response.getStatus() == Response.CLIENT_TIMEOUT) {
+            throw new TimeoutException("Exceeds the wait time of " + timeout + "ms");
         }
+        return response;
     }
 
     @Override
     public Future<Response> sendAsync(InetSocketAddress address, Request request) {
-        return NettyClient.getOrAddClient(address, DefaultChannelHandler.getInstance()).request(request);
+        return sendAsync(address, null, request);
+    }
+
+    @Override
+    public Future<Response> sendAsync(String deviceId, Request request) {
+        return sendAsync(addressOf(deviceId), deviceId, request);
+    }
+
+    private Future<Response> sendAsync(InetSocketAddress address, String deviceId, Request request) {
+        AdmissionController.Permit admission = admit(address, request);
+        ResponseFuture<Request, Response> future;
+        try {
+            future = sendAsyncWithRetry(address, deviceId, request);
+        } catch (RuntimeException e) {
+            if (admission != null) {
+                admission.release();
+            }
+            throw e;
+        }
+        if (admission != null) {
+            // the request holds its budget share until answered, timed out or failed
+            future.addListener(response -> admission.release());
+        }
+        return future;
+    }
+
+    /**
+     * Send the request asynchronously, a failed attempt is retried on the retry timer as its retry
+     * rule allows and the returned future completes with the result of the last attempt.
+     */
+    private ResponseFuture<Request, Response> sendAsyncWithRetry(InetSocketAddress address, String deviceId, Request request) {
+        RetryPolicy policy = retryPolicy;
+        RetryRule rule = policy == null ? null : policy.ruleOf(request.getCommand());
+        if (rule == null) {
+            return attemptAsync(address, deviceId, request);
+        }
+        policy.getBudget().onRequest();
+        ResponseFuture<Request, Response> result = new ResponseFuture<>(request, null);
+        retryAsync(address, deviceId, request, policy, rule, 1, result, true);
+        return result;
+    }
+
+    /**
+     * @param first exceptions of the first attempt are thrown to the caller, like without retries
+     */
+    private void retryAsync(InetSocketAddress address, String deviceId, Request request, RetryPolicy policy,
+                            RetryRule rule, int attempt, ResponseFuture<Request, Response> result, boolean first) {
+        ResponseFuture<Request, Response> future;
+        try {
+            future = attemptAsync(address, deviceId, request);
+        } catch (RemotingException e) {
+            if (isRetryable(e) && canRetry(policy, rule, attempt, request)) {
+                scheduleRetry(address, deviceId, request, policy, rule, attempt, result);
+                return;
+            }
+            if (first) {
+                throw e;
+            }
+            result.trySuccess(new Response(Response.CLIENT_ERROR, e.getMessage()));
+            return;
+        }
+        future.addListener(response -> {
+            if (rule.isIdempotent() && isRetryable(response) && canRetry(policy, rule, attempt, request)) {
+                scheduleRetry(address, deviceId, request, policy, rule, attempt, result);
+            } else {
+                result.trySuccess(response);
+            }
+        });
+    }
+
+    private void scheduleRetry(InetSocketAddress address, String deviceId, Request request, RetryPolicy policy,
+                               RetryRule rule, int attempt, ResponseFuture<Request, Response> result) {
+        long backoff = policy.backoff(rule, attempt);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Retry command " + request.getCommand() + " to " + address + " in " + backoff + "ms, attempt " + (attempt + 1));
+        }
+        try {
+            RetryTimer.INSTANCE.schedule(() -> {
+                try {
+                    retryAsync(address, deviceId, request, policy, rule, attempt + 1, result, false);
+                } catch (Throwable t) {
+                    // the timer keeps it in a future nobody reads, and nothing else completes the result
+                    result.trySuccess(new Response(Response.CLIENT_ERROR, t.getMessage()));
+                }
+            }, backoff, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            result.trySuccess(new Response(Response.CLIENT_ERROR, "Retry rejected: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * a single attempt: pass the rate limiter, then send at once or once the permit is available
+     */
+    private ResponseFuture<Request, Response> attemptAsync(InetSocketAddress address, String deviceId, Request request) {
+        long delay = permit(address, request.getCommand());
+        return delay > 0L ? sendLater(address, deviceId, request, delay) : doSendAsync(address, deviceId, request);
+    }
+
+    private ResponseFuture<Request, Response> doSendAsync(InetSocketAddress address, String deviceId, Request request) {
+        CircuitBreaker breaker = acquire(address);
+        int command = request.getCommand();
+        int timeout = timeout(address, command);
+        long start;
+        ResponseFuture<Request, Response> future;
+        try {
+            ExchangeChannel channel = exchange(address, deviceId);
+            start = System.currentTimeMillis();
+            future = channel.request(request, timeout);
+        } catch (RemotingException e) {
+            if (breaker != null) {
+                breaker.onFailure(false);
+            }
+            throw e;
+        }
+        if (breaker != null || adaptiveTimeoutRegistry != null) {
+            ResponseFuture<Request, Response> responseFuture = future;
+            future.addListener(response -> record(breaker, address, command, start, timeout, responseFuture, response));
+        }
+        return future;
+    }
+
+    /**
+     * Send a throttled request once its permit is available, the delay runs on the retry timer
+     * so no caller thread is held. The send may reconnect or wait for backpressure, so it must not
+     * run on an io thread.
+     *
+     * @param delay delay(ns)
+     */
+    private ResponseFuture<Request, Response> sendLater(InetSocketAddress address, String deviceId, Request request, long delay) {
+        // connect on the caller thread, so a connect failure is reported at once
+        exchange(address, deviceId);
+        ResponseFuture<Request, Response> deferred = new ResponseFuture<>(request, null);
+        RetryTimer.INSTANCE.schedule(() -> {
+            try {
+                doSendAsync(address, deviceId, request).addListener(deferred::trySuccess);
+            } catch (Throwable t) {
+                // nothing else completes the deferred future, it has neither a connection nor a timeout
+                deferred.trySuccess(new Response(Response.CLIENT_ERROR, t.getMessage()));
+            }
+        }, delay, TimeUnit.NANOSECONDS);
+        return deferred;
     }
 
     @Override
     public void confirm(InetSocketAddress address, Request request) {
-        NettyClient.getOrAddClient(address, DefaultChannelHandler.getInstance()).send(request);
+        confirm(address, null, request);
+    }
+
+    @Override
+    public void confirm(String deviceId, Request request) {
+        confirm(addressOf(deviceId), deviceId, request);
+    }
+
+    private void confirm(InetSocketAddress address, String deviceId, Request request) {
+        try {
+            awaitPermit(address, request.getCommand());
+        } catch (TimeoutException e) {
+            throw new RemotingException(null, address, e.getMessage());
+        }
+        CircuitBreakerRegistry registry = circuitBreakerRegistry;
+        if (registry != null && registry.getOrAdd(address).isOpen()) {
+            throw new CircuitBreakerOpenException(address);
+        }
+        exchange(address, deviceId).send(request);
+    }
+
+    /**
+     * admit the request against the outstanding request and byte budgets
+     *
+     * @return permit to release once the request completes, null if admission control is disabled
+     * @throws AdmissionRejectedException if a budget is used up
+     */
+    private AdmissionController.Permit admit(InetSocketAddress address, Request request) {
+        AdmissionController controller = admissionController;
+        if (controller == null) {
+            return null;
+        }
+        byte[] content = request.getContent();
+        AdmissionController.Permit permit = controller.tryAcquire(address, content == null ? 0 : content.length, request.getPriority());
+        if (permit == null) {
+            throw new AdmissionRejectedException(address);
+        }
+        return permit;
+    }
+
+    /**
+     * Whether another attempt is allowed: the deadline of the request has not passed, the attempts
+     * of the rule are not used up and the retry budget is not exhausted
+     *
+     * @param attempt the failed attempt, starting from 1
+     */
+    private static boolean canRetry(RetryPolicy policy, RetryRule rule, int attempt, Request request) {
+        return !request.isExpired() && policy.tryRetry(rule, attempt);
+    }
+
+    /**
+     * connect failures and closed channels are retried, requests rejected by the governance are not
+     * since a retry only adds to the load they protect against
+     */
+    private static boolean isRetryable(RemotingException e) {
+        return !(e instanceof CircuitBreakerOpenException
+                || e instanceof RateLimitExceededException
+                || e instanceof AdmissionRejectedException);
+    }
+
+    private static boolean isRetryable(Response response) {
+        byte status = response.getStatus();
+        return status == Response.CHANNEL_INACTIVE || status == Response.CLIENT_TIMEOUT;
+    }
+
+    /**
+     * take a permit of the rate limiters
+     *
+     * @return delay(ns) before the request may be sent
+     * @throws RateLimitExceededException if the request is rejected
+     */
+    private long permit(InetSocketAddress address, int command) {
+        RateLimiterRegistry registry = rateLimiterRegistry;
+        if (registry == null || address == null) {
+            return 0L;
+        }
+        long delay = registry.acquire(address, command);
+        if (delay < 0L) {
+            throw new RateLimitExceededException(address, command);
+        }
+        return delay;
+    }
+
+    /**
+     * take a permit of the rate limiters, waiting for it on the caller thread if the request is delayed
+     */
+    private void awaitPermit(InetSocketAddress address, int command) throws TimeoutException {
+        long delay = permit(address, command);
+        if (delay <= 0L) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TimeoutException("Interrupted while waiting for the rate limit of " + address);
+        }
+    }
+
+    /**
+     * pass the circuit breaker of the device
+     *
+     * @return the breaker to report the result to, null if disabled
+     * @throws CircuitBreakerOpenException if the breaker rejects the request
+     */
+    private CircuitBreaker acquire(InetSocketAddress address) {
+        CircuitBreakerRegistry registry = circuitBreakerRegistry;
+        if (registry == null || address == null) {
+            return null;
+        }
+        CircuitBreaker breaker = registry.getOrAdd(address);
+        if (!breaker.tryAcquire()) {
+            throw new CircuitBreakerOpenException(address);
+        }
+        return breaker;
+    }
+
+    /**
+     * @return adaptive timeout of the request, {@link #requestTimeout} if disabled
+     */
+    private int timeout(InetSocketAddress address, int command) {
+        AdaptiveTimeoutRegistry registry = adaptiveTimeoutRegistry;
+        if (registry == null || address == null) {
+            return requestTimeout;
+        }
+        return registry.timeout(address, command, requestTimeout);
+    }
+
+    /**
+     * report the response to the circuit breaker and the latency estimators
+     */
+    private void record(CircuitBreaker breaker, InetSocketAddress address, int command, long start, int timeout,
+                        ResponseFuture<Request, Response> future, Response response) {
+        if (!future.isSent()) {
+            // dropped before write, e.g. deadline exceeded, the device is not to blame
+            if (breaker != null) {
+                breaker.release();
+            }
+            return;
+        }
+        switch (response.getStatus()) {
+            case Response.CLIENT_TIMEOUT:
+            case Response.SERVER_TIMEOUT:
+                if (breaker != null) {
+                    breaker.onFailure(true);
+                }
+                recordLatency(address, command, timeout);
+                break;
+            case Response.CHANNEL_INACTIVE:
+            case Response.SERVER_ERROR:
+                // no latency observed
+                if (breaker != null) {
+                    breaker.onFailure(false);
+                }
+                break;
+            default:
+                // the device answered
+                if (breaker != null) {
+                    breaker.onSuccess();
+                }
+                recordLatency(address, command, System.currentTimeMillis() - start);
+        }
+    }
+
+    private void recordLatency(InetSocketAddress address, int command, long latency) {
+        AdaptiveTimeoutRegistry registry = adaptiveTimeoutRegistry;
+        if (registry != null && address != null) {
+            registry.record(address, command, latency);
+        }
+    }
+
+    /**
+     * @return the channel to send over: the inbound connection of the device, or the client connected to the address
+     * @throws RemotingException if the inbound device is not connected
+     */
+    private ExchangeChannel exchange(InetSocketAddress address, String deviceId) {
+        if (deviceId == null) {
+            return getOrAddClient(address);
+        }
+        // looked up per attempt, so a retry goes out on the new connection of a reconnected device
+        DeviceSession session = NettyServer.getSession(deviceId);
+        if (session == null) {
+            throw new RemotingException(null, address, "Device " + deviceId + " is not connected");
+        }
+        return session;
+    }
+
+    /**
+     * @return remote address of the inbound connection of the device
+     * @throws RemotingException if the device is not connected
+     */
+    private static InetSocketAddress addressOf(String deviceId) {
+        DeviceSession session = NettyServer.getSession(deviceId);
+        if (session == null) {
+            throw new RemotingException(null, null, "Device " + deviceId + " is not connected");
+        }
+        return session.getRemoteAddress();
+    }
+
+    private NettyClient getOrAddClient(InetSocketAddress address) {
+        NettyClient client = NettyClient.getClient(address);
+        if (client != null) {
+            return client;
+        }
+        URL url = new URL(address.getHostString(), address.getPort(), clientParameters);
+        return NettyClient.getOrAddClient(address, url, DefaultChannelHandler.getInstance());
+    }
+
+    /**
+     * runs the backoff of asynchronous retries and the throttled sends, they may reconnect or wait for
+     * backpressure so they must not run on the io threads
+     */
+    private static final class RetryTimer {
+
+        private static final ScheduledExecutorService INSTANCE = new ScheduledThreadPoolExecutor(
+                2, new DefaultThreadFactory("websocket-retry", true));
     }
 }
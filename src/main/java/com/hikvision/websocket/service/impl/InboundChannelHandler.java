@@ -0,0 +1,54 @@
+package com.hikvision.websocket.service.impl;
+
+import com.hikvision.websocket.exception.RemotingException;
+import com.hikvision.websocket.netty.handler.DefaultChannelHandler;
+import com.hikvision.websocket.netty.remoting.Channel;
+import com.hikvision.websocket.netty.remoting.ChannelHandler;
+import com.hikvision.websocket.service.IDeviceCommunicationService;
+
+/**
+ * Channel handler of the connections accepted by the server, the governance state of a device
+ * (circuit breaker, rate limiter, timeouts) is released once its connection is gone
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 14:50
+ */
+public class InboundChannelHandler implements ChannelHandler {
+
+    private final IDeviceCommunicationService deviceCommunicationService;
+
+    private final ChannelHandler handler = DefaultChannelHandler.getInstance();
+
+    public InboundChannelHandler(IDeviceCommunicationService deviceCommunicationService) {
+        this.deviceCommunicationService = deviceCommunicationService;
+    }
+
+    @Override
+    public void connected(Channel channel) throws RemotingException {
+        handler.connected(channel);
+    }
+
+    @Override
+    public void disconnected(Channel channel) throws RemotingException {
+        try {
+            deviceCommunicationService.disconnected(channel.getRemoteAddress());
+        } finally {
+            handler.disconnected(channel);
+        }
+    }
+
+    @Override
+    public void sent(Channel channel, Object message) throws RemotingException {
+        handler.sent(channel, message);
+    }
+
+    @Override
+    public void received(Channel channel, Object message) throws RemotingException {
+        handler.received(channel, message);
+    }
+
+    @Override
+    public void caught(Channel channel, Throwable exception) throws RemotingException {
+        handler.caught(channel, exception);
+    }
+}
@@ -0,0 +1,189 @@
+package com.hikvision.websocket.service.impl;
+
+import com.hikvision.websocket.netty.DeviceSession;
+import com.hikvision.websocket.netty.NettyChannel;
+import com.hikvision.websocket.netty.NettyClient;
+import com.hikvision.websocket.netty.NettyServer;
+import com.hikvision.websocket.netty.exchange.DeviceEventListener;
+import com.hikvision.websocket.netty.exchange.Request;
+import com.hikvision.websocket.netty.exchange.Response;
+import com.hikvision.websocket.netty.exchange.ResponseFuture;
+import com.hikvision.websocket.netty.remoting.Channel;
+import com.hikvision.websocket.netty.remoting.ExchangeChannel;
+import com.hikvision.websocket.service.IDeviceCommunicationService;
+import com.hikvision.websocket.service.IReactiveDeviceCommunicationService;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.net.InetSocketAddress;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Reactive view of the {@link IDeviceCommunicationService}.
+ * <p>
+ * A request to a connected and writable device is sent on the subscribing thread and its {@link Mono} completes
+ * from the listener of the response future. Only a request that may wait in the send (connecting to the device,
+ * backpressure) is moved to the {@link Schedulers#boundedElastic()} scheduler, so an event loop of the
+ * application is never blocked.
+ * <p>
+ * An event {@link Flux} maps the demand of its subscriber to the auto read of the device connections: an event
+ * arriving without demand pauses the reads of its connection, the next {@code request(n)} resumes them, so
+ * a slow subscriber holds the frames in the socket buffers instead of the heap. Only the frames already
+ * read from the socket are buffered. A paused connection delays its responses and the other listeners of
+ * its events as well, a subscriber that can not keep up should use {@code onBackpressureDrop} or
+ * {@code onBackpressureLatest} instead.
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 18:00
+ */
+public class ReactiveDeviceCommunicationServiceImpl implements IReactiveDeviceCommunicationService {
+
+    private final IDeviceCommunicationService service;
+
+    /**
+     * runs the requests that may wait for a connection or a writable channel
+     */
+    private final Scheduler blockingScheduler;
+
+    public ReactiveDeviceCommunicationServiceImpl(IDeviceCommunicationService service) {
+        this(service, Schedulers.boundedElastic());
+    }
+
+    public ReactiveDeviceCommunicationServiceImpl(IDeviceCommunicationService service, Scheduler blockingScheduler) {
+        if (service == null) {
+            throw new IllegalArgumentException("service == null");
+        }
+        this.service = service;
+        this.blockingScheduler = blockingScheduler;
+    }
+
+    @Override
+    public Mono<Response> send(InetSocketAddress address, Request request) {
+        return request(() -> isReady(NettyClient.getClient(address)), () -> service.sendAsync(address, request));
+    }
+
+    @Override
+    public Mono<Response> send(String deviceId, Request request) {
+        return request(() -> {
+            // an unknown device id fails at once
+            DeviceSession session = NettyServer.getSession(deviceId);
+            return session == null || isReady(session);
+        }, () -> service.sendAsync(deviceId, request));
+    }
+
+    private Mono<Response> request(BooleanSupplier ready, Supplier<Future<Response>> send) {
+        return Mono.defer(() -> {
+            Mono<Response> mono = Mono.create(sink -> subscribe(sink, send));
+            return ready.getAsBoolean() ? mono : mono.subscribeOn(blockingScheduler);
+        });
+    }
+
+    /**
+     * whether a request can be sent over the channel without waiting
+     */
+    private static boolean isReady(ExchangeChannel channel) {
+        return channel != null && channel.isConnected() && channel.isWritable();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void subscribe(MonoSink<Response> sink, Supplier<Future<Response>> send) {
+        Future<Response> future;
+        try {
+            future = send.get();
+        } catch (RuntimeException e) {
+            sink.error(e);
+            return;
+        }
+        if (future instanceof ResponseFuture) {
+            ((ResponseFuture<Request, Response>) future).addListener(sink::success);
+            return;
+        }
+        // a future without completion callback, only an implementation other than the default one returns it
+        blockingScheduler.schedule(() -> {
+            try {
+                sink.success(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                sink.error(e);
+            } catch (ExecutionException e) {
+                sink.error(e.getCause());
+            }
+        });
+    }
+
+    @Override
+    public Flux<Response> events(int command) {
+        return events(listener -> service.addEventListener(command, listener));
+    }
+
+    @Override
+    public Flux<Response> events() {
+        return events(service::addEventListener);
+    }
+
+    private Flux<Response> events(Consumer<DeviceEventListener> register) {
+        return Flux.create(sink -> {
+            EventSubscription subscription = new EventSubscription(sink);
+            sink.onRequest(n -> subscription.resumeAll());
+            sink.onDispose(() -> {
+                service.removeEventListener(subscription);
+                subscription.resumeAll();
+            });
+            register.accept(subscription);
+        }, FluxSink.OverflowStrategy.BUFFER);
+    }
+
+    /**
+     * the listener of an event flux, pausing the connections its events arrive on without demand
+     */
+    private static class EventSubscription implements DeviceEventListener {
+
+        private final FluxSink<Response> sink;
+
+        /**
+         * connections paused by this subscription
+         */
+        private final Set<NettyChannel> paused = ConcurrentHashMap.newKeySet();
+
+        EventSubscription(FluxSink<Response> sink) {
+            this.sink = sink;
+        }
+
+        @Override
+        public void onEvent(Channel channel, Response event) {
+            if (sink.isCancelled()) {
+                return;
+            }
+            sink.next(event);
+            if (sink.requestedFromDownstream() > 0 || !(channel instanceof NettyChannel)) {
+                return;
+            }
+            NettyChannel nettyChannel = (NettyChannel) channel;
+            if (paused.add(nettyChannel)) {
+                nettyChannel.pauseRead();
+                if (sink.requestedFromDownstream() > 0 || sink.isCancelled()) {
+                    // requested or cancelled meanwhile, nobody else resumes the connection
+                    resumeAll();
+                }
+            }
+        }
+
+        void resumeAll() {
+            for (NettyChannel channel : paused) {
+                if (paused.remove(channel)) {
+                    channel.resumeRead();
+                }
+            }
+        }
+    }
+}
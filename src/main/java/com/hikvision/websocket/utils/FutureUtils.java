@@ -0,0 +1,88 @@
+package com.hikvision.websocket.utils;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.util.concurrent.BlockingOperationException;
+import io.netty.util.concurrent.Future;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wait for netty futures without holding their monitor.
+ * <p>
+ * {@link Future#await(long)} waits in {@code Object.wait} inside {@code synchronized}, which pins a virtual thread
+ * to its carrier thread on Java 21. The waits here park on a latch released by a listener of the future,
+ * so a blocking caller on a virtual thread unmounts while it waits.
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 18:40
+ */
+public final class FutureUtils {
+
+    private FutureUtils() {
+    }
+
+    /**
+     * @param timeout wait time(ms)
+     * @return true if the future is done within the timeout
+     * @throws BlockingOperationException if called on the io thread of the future
+     */
+    public static boolean await(Future<?> future, long timeout) throws InterruptedException {
+        return await(future, timeout, true);
+    }
+
+    /**
+     * like {@link #await(Future, long)}, an interrupt does not stop the wait but is restored afterwards
+     *
+     * @param timeout wait time(ms)
+     */
+    public static boolean awaitUninterruptibly(Future<?> future, long timeout) {
+        try {
+            return await(future, timeout, false);
+        } catch (InterruptedException e) {
+            // never thrown when not interruptible
+            Thread.currentThread().interrupt();
+            return future.isDone();
+        }
+    }
+
+    private static boolean await(Future<?> future, long timeout, boolean interruptible) throws InterruptedException {
+        if (future.isDone()) {
+            return true;
+        }
+        checkDeadLock(future);
+        CountDownLatch done = new CountDownLatch(1);
+        future.addListener(f -> done.countDown());
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, timeout));
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return done.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                } catch (InterruptedException e) {
+                    if (interruptible) {
+                        throw e;
+                    }
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * the io thread completes the future, it would wait for itself
+     */
+    private static void checkDeadLock(Future<?> future) {
+        if (future instanceof ChannelFuture) {
+            Channel channel = ((ChannelFuture) future).channel();
+            if (channel.isRegistered() && channel.eventLoop().inEventLoop()) {
+                throw new BlockingOperationException(future.toString());
+            }
+        }
+    }
+}
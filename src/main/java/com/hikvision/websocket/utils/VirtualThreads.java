@@ -0,0 +1,34 @@
+package com.hikvision.websocket.utils;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Virtual threads of Java 21.
+ * <p>
+ * This is the Java 8 version, virtual threads are not supported. The jar built on JDK 21 is a multi-release jar
+ * whose {@code META-INF/versions/21} holds the version from {@code src/main/java21} which starts a virtual
+ * thread per task.
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 18:40
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * whether virtual threads are supported by the running JVM
+     */
+    public static boolean isSupported() {
+        return false;
+    }
+
+    /**
+     * @param prefix name prefix of the threads
+     * @return executor starting a virtual thread per task, null if virtual threads are not supported
+     */
+    public static ExecutorService newThreadPerTaskExecutor(String prefix) {
+        return null;
+    }
+}
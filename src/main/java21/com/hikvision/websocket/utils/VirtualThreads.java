@@ -0,0 +1,31 @@
+package com.hikvision.websocket.utils;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Virtual threads of Java 21, the version of the multi-release jar used on Java 21 and later
+ *
+ * @author zhangwei151
+ * @date 2026/10/19 18:40
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * whether virtual threads are supported by the running JVM
+     */
+    public static boolean isSupported() {
+        return true;
+    }
+
+    /**
+     * @param prefix name prefix of the threads
+     * @return executor starting a virtual thread per task
+     */
+    public static ExecutorService newThreadPerTaskExecutor(String prefix) {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(prefix + "-", 0).factory());
+    }
+}
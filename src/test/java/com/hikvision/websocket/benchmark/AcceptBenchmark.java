@@ -0,0 +1,200 @@
+package com.hikvision.websocket.benchmark;
+
+import com.hikvision.websocket.api.URL;
+import com.hikvision.websocket.constants.CommonConstants;
+import com.hikvision.websocket.constants.Constants;
+import com.hikvision.websocket.factory.NettyEventLoopFactory;
+import com.hikvision.websocket.netty.NettyServer;
+import com.hikvision.websocket.netty.remoting.Channel;
+import com.hikvision.websocket.netty.remoting.ChannelHandler;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Accept throughput of {@link NettyServer} versus the count of SO_REUSEPORT acceptors, the reconnect storm of
+ * a site: every invocation dials {@code connections} devices at once and ends when the server has accepted and
+ * registered all of them. The score is accepted connections per second.
+ * <p>
+ * The devices are dialed from the same jvm on the loopback, on as many client threads as acceptors are tried
+ * at most. On a small host the dialing side competes with the server for the cores, so compare the scores of
+ * the acceptor counts of a run rather than the absolute numbers; dial from other hosts for those. The client
+ * sockets are reset on close so the ephemeral ports are not held in TIME_WAIT, and the open file limit must
+ * allow the connections of both sides.
+ * <p>
+ * More than one acceptor needs the epoll transport, the trial fails otherwise.
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.hikvision.websocket.benchmark.AcceptBenchmark}.
+ *
+ * @author zhangwei151
+ * @date 2026/10/20 15:40
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class AcceptBenchmark {
+
+    private static final int CONNECTIONS = 2000;
+
+    private static final int CLIENT_THREADS = 4;
+
+    /**
+     * time(ms) an invocation waits for the server, the trial fails after it
+     */
+    private static final long ACCEPT_TIMEOUT = 30000L;
+
+    @Param({"1", "2", "4"})
+    private int acceptors;
+
+    @Param({"8"})
+    private int ioThreads;
+
+    private final AtomicInteger accepted = new AtomicInteger();
+
+    private NettyServer server;
+
+    private EventLoopGroup clientGroup;
+
+    private Bootstrap bootstrap;
+
+    private final List<io.netty.channel.Channel> devices = new ArrayList<>(CONNECTIONS);
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        if (acceptors > 1 && !NettyEventLoopFactory.isReusePortSupported()) {
+            throw new IllegalStateException(acceptors + " acceptors need SO_REUSEPORT, which the "
+                    + NettyEventLoopFactory.transport() + " transport does not support");
+        }
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put(Constants.ACCEPTORS_KEY, String.valueOf(acceptors));
+        parameters.put(CommonConstants.IO_THREADS_KEY, String.valueOf(ioThreads));
+        server = new NettyServer(new URL("127.0.0.1", port, parameters), new CountingHandler());
+        clientGroup = NettyEventLoopFactory.eventLoopGroup(CLIENT_THREADS, "benchmark-device");
+        bootstrap = new Bootstrap()
+                .group(clientGroup)
+                .channel(NettyEventLoopFactory.socketChannelClass())
+                .option(ChannelOption.SO_LINGER, 0)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) ACCEPT_TIMEOUT)
+                .handler(new ChannelInboundHandlerAdapter())
+                .remoteAddress(new InetSocketAddress("127.0.0.1", port));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (server != null) {
+            server.close();
+        }
+        if (clientGroup != null) {
+            clientGroup.shutdownGracefully(0, 0, TimeUnit.MILLISECONDS).syncUninterruptibly();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CONNECTIONS)
+    public int accept() {
+        List<ChannelFuture> connects = new ArrayList<>(CONNECTIONS);
+        for (int i = 0; i < CONNECTIONS; i++) {
+            connects.add(bootstrap.connect());
+        }
+        for (ChannelFuture connect : connects) {
+            devices.add(connect.syncUninterruptibly().channel());
+        }
+        // a connect completes once the kernel queued the connection, wait for the server to take it
+        awaitAccepted(CONNECTIONS);
+        return accepted.get();
+    }
+
+    /**
+     * reset the devices of the invocation and wait for the server to drop them, not measured
+     */
+    @TearDown(Level.Invocation)
+    public void disconnect() {
+        for (io.netty.channel.Channel device : devices) {
+            device.close();
+        }
+        for (io.netty.channel.Channel device : devices) {
+            device.closeFuture().syncUninterruptibly();
+        }
+        devices.clear();
+        awaitAccepted(0);
+    }
+
+    private void awaitAccepted(int expected) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ACCEPT_TIMEOUT);
+        while (accepted.get() != expected) {
+            if (System.nanoTime() - deadline > 0L) {
+                throw new IllegalStateException("The server holds " + accepted.get() + " connections, expected " + expected);
+            }
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(50L));
+        }
+    }
+
+    /**
+     * counts the connections the server registered
+     */
+    private final class CountingHandler implements ChannelHandler {
+
+        @Override
+        public void connected(Channel channel) {
+            accepted.incrementAndGet();
+        }
+
+        @Override
+        public void disconnected(Channel channel) {
+            accepted.decrementAndGet();
+        }
+
+        @Override
+        public void sent(Channel channel, Object message) {
+        }
+
+        @Override
+        public void received(Channel channel, Object message) {
+        }
+
+        @Override
+        public void caught(Channel channel, Throwable exception) {
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(AcceptBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,195 @@
+package com.hikvision.websocket.benchmark;
+
+import com.hikvision.websocket.api.URL;
+import com.hikvision.websocket.constants.Constants;
+import com.hikvision.websocket.factory.NettyEventLoopFactory;
+import com.hikvision.websocket.netty.NettyClient;
+import com.hikvision.websocket.netty.exchange.MessageHeader;
+import com.hikvision.websocket.netty.exchange.Request;
+import com.hikvision.websocket.netty.exchange.Response;
+import com.hikvision.websocket.netty.exchange.ResponseFuture;
+import com.hikvision.websocket.netty.handler.DefaultChannelHandler;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The same request workload on the nio, epoll and io_uring transports: a client of the sdk sends requests
+ * to a device simulator on the loopback, which echoes every frame back as the response of the request.
+ * <ul>
+ *     <li>roundTrip: one request at a time per thread, the latency of the transport</li>
+ *     <li>pipelined: {@value #BATCH} requests in flight per thread, the throughput of the io threads</li>
+ * </ul>
+ * The transport is chosen once per jvm by {@link NettyEventLoopFactory}, so every transport runs in its own fork
+ * and the forks must not be turned off. A transport that is not available on the host fails its trial.
+ * <p>
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.hikvision.websocket.benchmark.TransportBenchmark}.
+ *
+ * @author zhangwei151
+ * @date 2026/10/20 15:10
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(4)
+public class TransportBenchmark {
+
+    private static final int COMMAND = 0x1001;
+
+    private static final int BATCH = 64;
+
+    private static final int TIMEOUT = 5000;
+
+    @Param({"NIO", "EPOLL", "IO_URING"})
+    private NettyEventLoopFactory.Transport transport;
+
+    @Param({"64"})
+    private int bodySize;
+
+    private EventLoopGroup deviceGroup;
+
+    private Channel device;
+
+    private NettyClient client;
+
+    private byte[] frame;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        // read once the factory is loaded, which happens first here in the forked jvm
+        System.setProperty(Constants.NETTY_EPOLL_ENABLE_KEY, String.valueOf(transport == NettyEventLoopFactory.Transport.EPOLL));
+        System.setProperty(Constants.NETTY_IO_URING_ENABLE_KEY, String.valueOf(transport == NettyEventLoopFactory.Transport.IO_URING));
+        if (NettyEventLoopFactory.transport() != transport) {
+            throw new IllegalStateException("The " + transport + " transport is not available, "
+                    + NettyEventLoopFactory.transport() + " is used instead");
+        }
+        deviceGroup = NettyEventLoopFactory.eventLoopGroup(1, "benchmark-device");
+        device = new ServerBootstrap()
+                .group(deviceGroup)
+                .channel(NettyEventLoopFactory.serverSocketChannelClass())
+                .childOption(ChannelOption.TCP_NODELAY, Boolean.TRUE)
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) {
+                        ch.pipeline()
+                                .addLast(new LengthFieldBasedFrameDecoder(1024, 2, 2, -4, 0))
+                                .addLast(new EchoHandler());
+                    }
+                })
+                .bind(new InetSocketAddress("127.0.0.1", 0))
+                .syncUninterruptibly()
+                .channel();
+        InetSocketAddress address = (InetSocketAddress) device.localAddress();
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put(Constants.DISPATCHER_KEY, Constants.DISPATCHER_DIRECT);
+        client = NettyClient.getOrAddClient(address, new URL(address.getHostString(), address.getPort(), parameters),
+                DefaultChannelHandler.getInstance());
+        frame = frame(COMMAND, bodySize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        NettyClient.closeAll(0);
+        NettyClient.shutdownEventLoopGroup(0);
+        if (device != null) {
+            device.close().syncUninterruptibly();
+        }
+        if (deviceGroup != null) {
+            deviceGroup.shutdownGracefully(0, 0, TimeUnit.MILLISECONDS).syncUninterruptibly();
+        }
+    }
+
+    @Benchmark
+    public Response roundTrip() throws Exception {
+        return checked(client.request(new Request(frame), TIMEOUT).get());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public Response pipelined() throws Exception {
+        @SuppressWarnings("unchecked")
+        ResponseFuture<Request, Response>[] futures = new ResponseFuture[BATCH];
+        for (int i = 0; i < BATCH; i++) {
+            futures[i] = client.request(new Request(frame), TIMEOUT);
+        }
+        Response res = null;
+        for (ResponseFuture<Request, Response> future : futures) {
+            res = checked(future.get());
+        }
+        return res;
+    }
+
+    private static Response checked(Response response) {
+        if (response.getStatus() != Response.OK) {
+            throw new IllegalStateException("Request failed with status " + response.getStatus());
+        }
+        return response;
+    }
+
+    /**
+     * a request frame of the command, wLength counts the header
+     */
+    static byte[] frame(int command, int bodySize) {
+        byte[] res = new byte[MessageHeader.HEAD_LENGTH + bodySize];
+        res[2] = (byte) (res.length >>> 8);
+        res[3] = (byte) res.length;
+        res[MessageHeader.COMMAND_OFFSET] = (byte) (command >>> 24);
+        res[MessageHeader.COMMAND_OFFSET + 1] = (byte) (command >>> 16);
+        res[MessageHeader.COMMAND_OFFSET + 2] = (byte) (command >>> 8);
+        res[MessageHeader.COMMAND_OFFSET + 3] = (byte) command;
+        return res;
+    }
+
+    /**
+     * answers every frame with the frame itself
+     */
+    private static final class EchoHandler extends ChannelInboundHandlerAdapter {
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            ctx.write(msg, ctx.voidPromise());
+        }
+
+        @Override
+        public void channelReadComplete(ChannelHandlerContext ctx) {
+            ctx.flush();
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(TransportBenchmark.class.getSimpleName()).build()).run();
+    }
+}
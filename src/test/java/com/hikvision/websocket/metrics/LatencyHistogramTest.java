@@ -0,0 +1,28 @@
+package com.hikvision.websocket.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * LatencyHistogramTest
+ *
+ * @author zhangwei151
+ * @date 2026/10/20 10:40
+ */
+class LatencyHistogramTest {
+
+    @Test
+    void latencyIsBucketedWithoutTruncation() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(TimeUnit.MICROSECONDS.toNanos(1900));
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(1));
+
+        // le=1ms holds the 1ms latency only, le=2ms both
+        assertEquals(1L, histogram.getCumulativeCount(0));
+        assertEquals(2L, histogram.getCumulativeCount(1));
+        assertEquals(1.9D, histogram.getMax(TimeUnit.MILLISECONDS), 1e-9);
+    }
+}
@@ -0,0 +1,86 @@
+package com.hikvision.websocket.netty.exchange;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * ResultCollectorTest
+ *
+ * @author zhangwei151
+ * @date 2026/10/20 10:10
+ */
+class ResultCollectorTest {
+
+    private static final int COMMAND = 0x1001;
+
+    @Test
+    void lateReplyOfTimedOutRequestIsNotTakenByTheNextRequest() throws Exception {
+        ResultCollector collector = new ResultCollector();
+        ResponseFuture<Request, Response> a = collector.createFuture(new Request(message(COMMAND, (byte) 'a')));
+        assertTrue(collector.sent(a));
+        assertThrows(TimeoutException.class, () -> a.get(10, TimeUnit.MILLISECONDS));
+        assertEquals(Response.CLIENT_TIMEOUT, a.get().getStatus());
+
+        ResponseFuture<Request, Response> b = collector.createFuture(new Request(message(COMMAND, (byte) 'b')));
+        assertTrue(collector.sent(b));
+
+        // the late reply of a is consumed by its placeholder, not delivered as an event
+        assertTrue(collector.received(new Response(message(COMMAND, (byte) 'A'))));
+        assertFalse(b.isDone());
+
+        byte[] replyB = message(COMMAND, (byte) 'B');
+        assertTrue(collector.received(new Response(replyB)));
+        assertArrayEquals(replyB, b.get(1, TimeUnit.SECONDS).getContent());
+        assertEquals(0, collector.getPendingCount());
+    }
+
+    @Test
+    void timedOutRequestWithoutReplyIsDroppedOnChannelInactive() throws Exception {
+        ResultCollector collector = new ResultCollector();
+        ResponseFuture<Request, Response> a = collector.createFuture(new Request(message(COMMAND, (byte) 'a')));
+        assertTrue(collector.sent(a));
+        collector.timeout(a, "timeout");
+        collector.failAll(Response.CHANNEL_INACTIVE, "channel inactive");
+
+        ResponseFuture<Request, Response> b = collector.createFuture(new Request(message(COMMAND, (byte) 'b')));
+        assertTrue(collector.sent(b));
+        byte[] replyB = message(COMMAND, (byte) 'B');
+        assertTrue(collector.received(new Response(replyB)));
+        assertArrayEquals(replyB, b.get(1, TimeUnit.SECONDS).getContent());
+    }
+
+    @Test
+    void replyArrivingBeforeTheTimeoutIsKept() throws Exception {
+        ResultCollector collector = new ResultCollector();
+        ResponseFuture<Request, Response> a = collector.createFuture(new Request(message(COMMAND, (byte) 'a')));
+        assertTrue(collector.sent(a));
+        byte[] replyA = message(COMMAND, (byte) 'A');
+        assertTrue(collector.received(new Response(replyA)));
+
+        // the waiter timed out just before the reply completed the future
+        assertFalse(collector.timeout(a, "timeout"));
+        assertArrayEquals(replyA, a.get(1, TimeUnit.SECONDS).getContent());
+        assertEquals(0, collector.getPendingCount());
+    }
+
+    /**
+     * a message with a header carrying the command and a one byte body
+     */
+    private static byte[] message(int command, byte body) {
+        byte[] res = new byte[MessageHeader.HEAD_LENGTH + 1];
+        res[MessageHeader.COMMAND_OFFSET] = (byte) (command >>> 24);
+        res[MessageHeader.COMMAND_OFFSET + 1] = (byte) (command >>> 16);
+        res[MessageHeader.COMMAND_OFFSET + 2] = (byte) (command >>> 8);
+        res[MessageHeader.COMMAND_OFFSET + 3] = (byte) command;
+        res[MessageHeader.HEAD_LENGTH] = body;
+        return res;
+    }
+}